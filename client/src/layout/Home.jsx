@@ -96,8 +96,8 @@ function Home() {
               <div className="card lesson-card h-100">
                 <img
                   src={
-                    user.imageData
-                      ? `data:${user.imageType};base64,${user.imageData}`
+                    user.imageUrl
+                      ? `http://localhost:8080${user.imageUrl}`
                       : 'https://via.placeholder.com/150'
                   }
                   className="card-img-top"
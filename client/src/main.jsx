@@ -2,6 +2,10 @@ import { StrictMode } from 'react'
 import { createRoot } from 'react-dom/client'
 import './index.css'
 import App from './App.jsx'
+import axios from 'axios'
+
+// send cookies to the API, so reads right after a write stay on the primary database
+axios.defaults.withCredentials = true
 
 createRoot(document.getElementById('root')).render(
   <StrictMode>
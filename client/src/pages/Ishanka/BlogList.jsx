@@ -14,7 +14,9 @@ function BlogList() {
 
   const fetchBlogs = async () => {
     try {
-      const res = await axios.get('http://localhost:8080/blog');
+      const res = await axios.get('http://localhost:8080/blog', {
+        params: { userId: localStorage.getItem('userId') },
+      });
       setBlogs(res.data);
       setLoading(false);
     } catch (err) {
@@ -148,7 +148,9 @@ export default function UserBlog() {
   useEffect(() => {
     const fetchBlogs = async () => {
       try {
-        const response = await axios.get("http://localhost:8080/blog");
+        const response = await axios.get("http://localhost:8080/blog", {
+          params: { userId: localStorage.getItem("userId") },
+        });
         setBlogs(response.data);
       } catch (err) {
         setError("Failed to fetch blogs. Please try again later.");
@@ -11,12 +11,11 @@ function EditUser() {
     email: '',
     age: '',
     description: '',
-    imageData: null,
-    imageType: '',
+    imageUrl: null,
   });
   const [imageFile, setImageFile] = useState(null);
 
-  const { name, email, age, description, imageData, imageType } = user;
+  const { name, email, age, description, imageUrl } = user;
 
   const onInputChange = (e) => {
     setUser({ ...user, [e.target.name]: e.target.value });
@@ -123,10 +122,10 @@ function EditUser() {
                 accept="image/*"
                 onChange={onImageChange}
               />
-              {imageData && (
+              {imageUrl && (
                 <div className="mt-2">
                   <img
-                    src={`data:${imageType};base64,${imageData}`}
+                    src={`http://localhost:8080${imageUrl}`}
                     alt="Current lesson image"
                     style={{ maxWidth: '150px' }}
                   />
@@ -221,7 +221,7 @@ const PostList = () => {
                       </p>
                       {post.user && (
                         <p className="text-gray-600 dark:text-gray-400">
-                          Created By: {post.user.fullname || "Unknown"} ({post.user.email || "No email"})
+                          Created By: {post.user.fullname || "Unknown"}
                         </p>
                       )}
                     </div>
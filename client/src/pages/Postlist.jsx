@@ -80,7 +80,7 @@ const PostCard = ({ post, index }) => {
           </p>
           {post.user && (
             <p className="text-sm text-gray-600">
-              <strong>Created By:</strong> {post.user.fullname || 'Unknown'} ({post.user.email || 'No email'})
+              <strong>Created By:</strong> {post.user.fullname || 'Unknown'}
             </p>
           )}
         </div>
@@ -164,7 +164,7 @@ function ProgressL() {
                 </p>
                 {progress.user && (
                   <p className="text-gray-600 dark:text-gray-400">
-                    Created By: {progress.user.fullname} ({progress.user.email})
+                    Created By: {progress.user.fullname}
                   </p>
                 )}
               </div>
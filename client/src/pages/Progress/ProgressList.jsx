@@ -80,7 +80,7 @@ const ProgressCard = ({ progress, index }) => {
           </p>
           {progress.user && (
             <p className="text-sm text-gray-600">
-              <strong>Created By:</strong> {progress.user.fullname} ({progress.user.email})
+              <strong>Created By:</strong> {progress.user.fullname}
             </p>
           )}
         </div>
@@ -104,7 +104,9 @@ const ProgressList = () => {
   useEffect(() => {
     const fetchProgress = async () => {
       try {
-        const response = await axios.get('http://localhost:8080/progress/all');
+        const response = await axios.get('http://localhost:8080/progress/all', {
+          params: { userId: localStorage.getItem('userId') },
+        });
         // Validate createdAt and updatedAt dates
         const validatedProgress = response.data.map((progress) => {
           const createdAtDate = progress.createdAt ? new Date(progress.createdAt) : null;
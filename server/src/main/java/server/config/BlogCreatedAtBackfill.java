@@ -0,0 +1,28 @@
+package server.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import server.repository.BlogRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Blogs created before the createdAt column existed have it null, which keeps them out of
+ * keyset pages. Stamp them once at startup; after that every new blog sets it on insert.
+ */
+@Component
+public class BlogCreatedAtBackfill implements ApplicationRunner {
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int updated = blogRepository.backfillCreatedAt(LocalDate.now());
+        if (updated > 0) {
+            System.out.println("Backfilled createdAt for " + updated + " blogs");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.counters")
+public class CounterProperties {
+
+    // pending view and like increments are written this often, and once more on shutdown
+    private long flushIntervalMs = 2000;
+    // rows per batched UPDATE transaction
+    private int batchSize = 500;
+    // an item with nothing pending for this many flushes is dropped from memory
+    private int evictAfterIdleFlushes = 30;
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getEvictAfterIdleFlushes() {
+        return evictAfterIdleFlushes;
+    }
+
+    public void setEvictAfterIdleFlushes(int evictAfterIdleFlushes) {
+        this.evictAfterIdleFlushes = evictAfterIdleFlushes;
+    }
+}
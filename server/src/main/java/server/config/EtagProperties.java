@@ -0,0 +1,30 @@
+package server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.etag")
+public class EtagProperties {
+
+    // collection, per-user and per-item versions kept in memory; an evicted one just costs a full response
+    private long maxKeys = 100_000;
+    // versions only see this instance's writes, so ETags also roll over this often (0 = never)
+    private long maxStaleSeconds = 60;
+
+    public long getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(long maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public long getMaxStaleSeconds() {
+        return maxStaleSeconds;
+    }
+
+    public void setMaxStaleSeconds(long maxStaleSeconds) {
+        this.maxStaleSeconds = maxStaleSeconds;
+    }
+}
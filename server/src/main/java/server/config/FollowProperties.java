@@ -0,0 +1,49 @@
+package server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.follow")
+public class FollowProperties {
+
+    // newest entries kept per follower timeline, and per celebrity outbox
+    private int timelineCapacity = 500;
+    // from this many followers on, an account's posts are merged in at read time instead of fanned out
+    private int celebrityFollowers = 10_000;
+    // newest posts and blogs (each) fanned out after a restart, when the in-memory timelines are empty
+    private int warmUpItems = 2000;
+    private int loadBatchSize = 10_000;
+
+    public int getTimelineCapacity() {
+        return timelineCapacity;
+    }
+
+    public void setTimelineCapacity(int timelineCapacity) {
+        this.timelineCapacity = timelineCapacity;
+    }
+
+    public int getCelebrityFollowers() {
+        return celebrityFollowers;
+    }
+
+    public void setCelebrityFollowers(int celebrityFollowers) {
+        this.celebrityFollowers = celebrityFollowers;
+    }
+
+    public int getWarmUpItems() {
+        return warmUpItems;
+    }
+
+    public void setWarmUpItems(int warmUpItems) {
+        this.warmUpItems = warmUpItems;
+    }
+
+    public int getLoadBatchSize() {
+        return loadBatchSize;
+    }
+
+    public void setLoadBatchSize(int loadBatchSize) {
+        this.loadBatchSize = loadBatchSize;
+    }
+}
@@ -0,0 +1,68 @@
+package server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.import")
+public class ImportProperties {
+
+    // threads storing the files of one import; the database work stays on the request thread
+    private int workers = 4;
+    // posts inserted per transaction, written as JDBC batches
+    private int chunkSize = 100;
+    private int maxItems = 1000;
+    // POST /post/import reads its own body: each "files" part is capped by app.media.max-upload-bytes,
+    // the "archive" part and the whole request by these, and the form fields (manifest) by the last
+    private long maxRequestBytes = 1024L * 1024 * 1024;
+    private long maxArchiveBytes = 1024L * 1024 * 1024;
+    private long maxFieldBytes = 4L * 1024 * 1024;
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public void setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    public long getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+
+    public void setMaxRequestBytes(long maxRequestBytes) {
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    public long getMaxArchiveBytes() {
+        return maxArchiveBytes;
+    }
+
+    public void setMaxArchiveBytes(long maxArchiveBytes) {
+        this.maxArchiveBytes = maxArchiveBytes;
+    }
+
+    public long getMaxFieldBytes() {
+        return maxFieldBytes;
+    }
+
+    public void setMaxFieldBytes(long maxFieldBytes) {
+        this.maxFieldBytes = maxFieldBytes;
+    }
+}
@@ -0,0 +1,199 @@
+package server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.media")
+public class MediaProperties {
+
+    // content-addressed store shared by post, blog and progress images
+    private String storeDir = "src/main/media/";
+    // uploads are rejected while streaming once they pass this size
+    private long maxUploadBytes = 50L * 1024 * 1024;
+    // decompression-bomb guard, checked from the headers before any pixel is decoded
+    private long maxImagePixels = 100_000_000L;
+    private int maxImageDimension = 30_000;
+    // "files" (one file per image) or "pack" (small images appended to segment files)
+    private String storage = "files";
+    // images up to this size are packed, larger ones stay files
+    private long packMaxEntryBytes = 256L * 1024;
+    private long packSegmentBytes = 256L * 1024 * 1024;
+    // segments with at least this share of deleted bytes are rewritten by compaction
+    private double packCompactMinDeadRatio = 0.3;
+    // move flat-layout files into hash shards in the background after startup
+    private boolean migrateLayout = false;
+    // queued deletions wait this long, so requests that already resolved the old file can finish
+    private int gcDelaySeconds = 300;
+    private int gcBatchSize = 100;
+    // files younger than this are never treated as orphans: their DB row may not be committed yet
+    private int gcOrphanGraceMinutes = 60;
+    // widths (px) of the resized copies generated for every uploaded image
+    private List<Integer> variantWidths = new ArrayList<>(List.of(256, 768, 1600));
+    private int variantWorkers = 2;
+    // resize jobs waiting beyond this are dropped and regenerated on first request
+    private int variantQueueCapacity = 200;
+    // compute placeholders for images uploaded before they existed, in the background at startup
+    private boolean placeholderBackfill = true;
+    // dHash bits two images may differ in and still count as near-duplicates (indexed up to 7)
+    private int duplicateMaxDistance = 6;
+    // total bytes of hot images kept in memory (direct buffers, so also bounded by -XX:MaxDirectMemorySize)
+    private long cacheMaxBytes = 64L * 1024 * 1024;
+    // larger files are always streamed from disk
+    private long cacheMaxEntryBytes = 2L * 1024 * 1024;
+
+    public String getStoreDir() {
+        return storeDir;
+    }
+
+    public void setStoreDir(String storeDir) {
+        this.storeDir = storeDir;
+    }
+
+    public long getMaxUploadBytes() {
+        return maxUploadBytes;
+    }
+
+    public void setMaxUploadBytes(long maxUploadBytes) {
+        this.maxUploadBytes = maxUploadBytes;
+    }
+
+    public long getMaxImagePixels() {
+        return maxImagePixels;
+    }
+
+    public void setMaxImagePixels(long maxImagePixels) {
+        this.maxImagePixels = maxImagePixels;
+    }
+
+    public int getMaxImageDimension() {
+        return maxImageDimension;
+    }
+
+    public void setMaxImageDimension(int maxImageDimension) {
+        this.maxImageDimension = maxImageDimension;
+    }
+
+    public String getStorage() {
+        return storage;
+    }
+
+    public void setStorage(String storage) {
+        this.storage = storage;
+    }
+
+    public long getPackMaxEntryBytes() {
+        return packMaxEntryBytes;
+    }
+
+    public void setPackMaxEntryBytes(long packMaxEntryBytes) {
+        this.packMaxEntryBytes = packMaxEntryBytes;
+    }
+
+    public long getPackSegmentBytes() {
+        return packSegmentBytes;
+    }
+
+    public void setPackSegmentBytes(long packSegmentBytes) {
+        this.packSegmentBytes = packSegmentBytes;
+    }
+
+    public double getPackCompactMinDeadRatio() {
+        return packCompactMinDeadRatio;
+    }
+
+    public void setPackCompactMinDeadRatio(double packCompactMinDeadRatio) {
+        this.packCompactMinDeadRatio = packCompactMinDeadRatio;
+    }
+
+    public boolean isMigrateLayout() {
+        return migrateLayout;
+    }
+
+    public void setMigrateLayout(boolean migrateLayout) {
+        this.migrateLayout = migrateLayout;
+    }
+
+    public int getGcDelaySeconds() {
+        return gcDelaySeconds;
+    }
+
+    public void setGcDelaySeconds(int gcDelaySeconds) {
+        this.gcDelaySeconds = gcDelaySeconds;
+    }
+
+    public int getGcBatchSize() {
+        return gcBatchSize;
+    }
+
+    public void setGcBatchSize(int gcBatchSize) {
+        this.gcBatchSize = gcBatchSize;
+    }
+
+    public int getGcOrphanGraceMinutes() {
+        return gcOrphanGraceMinutes;
+    }
+
+    public void setGcOrphanGraceMinutes(int gcOrphanGraceMinutes) {
+        this.gcOrphanGraceMinutes = gcOrphanGraceMinutes;
+    }
+
+    public List<Integer> getVariantWidths() {
+        return variantWidths;
+    }
+
+    public void setVariantWidths(List<Integer> variantWidths) {
+        this.variantWidths = variantWidths;
+    }
+
+    public int getVariantWorkers() {
+        return variantWorkers;
+    }
+
+    public void setVariantWorkers(int variantWorkers) {
+        this.variantWorkers = variantWorkers;
+    }
+
+    public int getVariantQueueCapacity() {
+        return variantQueueCapacity;
+    }
+
+    public void setVariantQueueCapacity(int variantQueueCapacity) {
+        this.variantQueueCapacity = variantQueueCapacity;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public long getCacheMaxEntryBytes() {
+        return cacheMaxEntryBytes;
+    }
+
+    public void setCacheMaxEntryBytes(long cacheMaxEntryBytes) {
+        this.cacheMaxEntryBytes = cacheMaxEntryBytes;
+    }
+
+    public boolean isPlaceholderBackfill() {
+        return placeholderBackfill;
+    }
+
+    public void setPlaceholderBackfill(boolean placeholderBackfill) {
+        this.placeholderBackfill = placeholderBackfill;
+    }
+
+    public int getDuplicateMaxDistance() {
+        return duplicateMaxDistance;
+    }
+
+    public void setDuplicateMaxDistance(int duplicateMaxDistance) {
+        this.duplicateMaxDistance = duplicateMaxDistance;
+    }
+}
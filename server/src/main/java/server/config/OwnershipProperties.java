@@ -0,0 +1,39 @@
+package server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.ownership")
+public class OwnershipProperties {
+
+    // users and owned items kept in memory for the existence and ownership checks
+    private long maxUsers = 10_000;
+    private long maxItems = 100_000;
+    // bounds how long another instance's user deletes can go unnoticed
+    private long ttlSeconds = 300;
+
+    public long getMaxUsers() {
+        return maxUsers;
+    }
+
+    public void setMaxUsers(long maxUsers) {
+        this.maxUsers = maxUsers;
+    }
+
+    public long getMaxItems() {
+        return maxItems;
+    }
+
+    public void setMaxItems(long maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
@@ -0,0 +1,55 @@
+package server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.pagination")
+public class PaginationProperties {
+
+    private int defaultSize = 20;
+    private int maxSize = 100;
+    // upper bound for the legacy unpaged list endpoints
+    private int unpagedCap = 500;
+    // rows read per query by the streaming export endpoints
+    private int exportBatchSize = 500;
+
+    public int getDefaultSize() {
+        return defaultSize;
+    }
+
+    public void setDefaultSize(int defaultSize) {
+        this.defaultSize = defaultSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getUnpagedCap() {
+        return unpagedCap;
+    }
+
+    public void setUnpagedCap(int unpagedCap) {
+        this.unpagedCap = unpagedCap;
+    }
+
+    public int getExportBatchSize() {
+        return exportBatchSize;
+    }
+
+    public void setExportBatchSize(int exportBatchSize) {
+        this.exportBatchSize = exportBatchSize;
+    }
+
+    public int clamp(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultSize;
+        }
+        return Math.min(requested, maxSize);
+    }
+}
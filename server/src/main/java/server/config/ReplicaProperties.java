@@ -0,0 +1,102 @@
+package server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.datasource")
+public class ReplicaProperties {
+
+    // read replicas of spring.datasource; with none configured every query goes to the primary
+    private List<Replica> replicas = new ArrayList<>();
+    // a replica further behind than this is skipped until it catches up
+    private long maxLagSeconds = 5;
+    private long lagCheckIntervalMs = 2000;
+    // MySQL reports Seconds_Behind_Source; any query whose first column is the lag in seconds works,
+    // no row or a null lag keeps the replica out of rotation
+    private String lagQuery = "SHOW REPLICA STATUS";
+    // after a write, the writer's reads stay on the primary for this long
+    private long stickySeconds = 10;
+    private long maxStickyUsers = 100_000;
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public long getMaxLagSeconds() {
+        return maxLagSeconds;
+    }
+
+    public void setMaxLagSeconds(long maxLagSeconds) {
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public long getLagCheckIntervalMs() {
+        return lagCheckIntervalMs;
+    }
+
+    public void setLagCheckIntervalMs(long lagCheckIntervalMs) {
+        this.lagCheckIntervalMs = lagCheckIntervalMs;
+    }
+
+    public String getLagQuery() {
+        return lagQuery;
+    }
+
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+
+    public long getStickySeconds() {
+        return stickySeconds;
+    }
+
+    public void setStickySeconds(long stickySeconds) {
+        this.stickySeconds = stickySeconds;
+    }
+
+    public long getMaxStickyUsers() {
+        return maxStickyUsers;
+    }
+
+    public void setMaxStickyUsers(long maxStickyUsers) {
+        this.maxStickyUsers = maxStickyUsers;
+    }
+
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package server.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import server.config.PaginationProperties;
+import server.etag.VersionStamps;
+import server.feed.FeedItem;
+import server.feed.FeedService;
+import server.pagination.CursorPage;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:5173")
+public class FeedController {
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    @Autowired
+    private VersionStamps versionStamps;
+
+    // posts, blogs and progress entries newest first, in one list instead of three
+    @GetMapping("/feed")
+    public CursorPage<FeedItem> getFeed(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            WebRequest request) {
+        if (versionStamps.notModifiedLists(request, VersionStamps.POST, VersionStamps.BLOG, VersionStamps.PROGRESS)) {
+            return null;
+        }
+        return feedService.page(cursor, paginationProperties.clamp(size));
+    }
+}
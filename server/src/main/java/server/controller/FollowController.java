@@ -0,0 +1,73 @@
+package server.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import server.config.PaginationProperties;
+import server.feed.FeedItem;
+import server.follow.FollowGraph;
+import server.follow.TimelineService;
+import server.ownership.OwnershipCache;
+import server.pagination.CursorPage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:5173")
+public class FollowController {
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private OwnershipCache ownershipCache;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    // userId starts following user {id}
+    @PostMapping("/user/{id}/follow")
+    public ResponseEntity<Map<String, Object>> follow(@PathVariable Long id, @RequestParam("userId") Long userId) {
+        if (id.equals(userId)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ownershipCache.requireUser(id);
+        ownershipCache.requireUser(userId);
+        followGraph.follow(userId, id);
+        return ResponseEntity.ok(counts(id));
+    }
+
+    @DeleteMapping("/user/{id}/follow")
+    public ResponseEntity<Map<String, Object>> unfollow(@PathVariable Long id, @RequestParam("userId") Long userId) {
+        ownershipCache.requireUser(id);
+        followGraph.unfollow(userId, id);
+        return ResponseEntity.ok(counts(id));
+    }
+
+    @GetMapping("/user/{id}/follows")
+    public Map<String, Object> getFollows(@PathVariable Long id) {
+        ownershipCache.requireUser(id);
+        return counts(id);
+    }
+
+    // posts and blogs of the accounts userId follows, newest first
+    @GetMapping("/timeline")
+    public CursorPage<FeedItem> getTimeline(
+            @RequestParam("userId") Long userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        ownershipCache.requireUser(userId);
+        return timelineService.page(userId, cursor, paginationProperties.clamp(size));
+    }
+
+    private Map<String, Object> counts(Long id) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("followers", followGraph.followerCount(id));
+        response.put("following", followGraph.followingCount(id));
+        return response;
+    }
+}
@@ -1,22 +1,42 @@
 package server.controller;
 
+import server.config.PaginationProperties;
+import server.etag.VersionStamps;
+import server.exception.ImageRejectedException;
 import server.exception.LprogressNotFoundException;
 import server.exception.UserNotFoundException;
+import server.media.HotImageCache;
+import server.media.ImagePlaceholders;
+import server.media.MediaDirectories;
+import server.media.MediaEntry;
+import server.media.MediaStore;
+import server.media.NearDuplicateIndex;
 import server.model.LprogressModel;
 import server.model.UserModel;
+import server.ownership.OwnershipCache;
+import server.pagination.CursorPage;
+import server.pagination.KeysetCursor;
+import server.pagination.KeysetExporter;
 import server.repository.LprogressRepository;
-import server.repository.UserRepository;
+import server.repository.ProgressSummary;
+import server.search.SearchIndex;
+import server.search.SearchService;
+import server.tag.TagService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -30,13 +50,49 @@ public class LprogressController {
     private LprogressRepository lprogressRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ObjectMapper objectMapper;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private PaginationProperties paginationProperties;
+
+    @Autowired
+    private KeysetExporter keysetExporter;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private OwnershipCache ownershipCache;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    @Autowired
+    private ImagePlaceholders imagePlaceholders;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private VersionStamps versionStamps;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-    private final String UPLOAD_DIR = "src/main/uploads/";
+    private final String UPLOAD_DIR = MediaDirectories.UPLOAD_DIR;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+    }
 
     @PostMapping("/progress")
     public LprogressModel newLprogressModel(
@@ -49,15 +105,9 @@ public class LprogressController {
             @RequestParam("userId") Long userId,
             @RequestParam("createdAt") String createdAt) throws IOException {
 
-        UserModel user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException(userId));
+        UserModel user = ownershipCache.userReference(userId);
 
-        String imageName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        File uploadDir = new File(UPLOAD_DIR);
-        if (!uploadDir.exists()) {
-            uploadDir.mkdirs();
-        }
-        file.transferTo(Paths.get(UPLOAD_DIR + imageName));
+        String imageName = mediaStore.store(file);
 
         LprogressModel newLprogressModel = new LprogressModel();
         newLprogressModel.setName(name);
@@ -66,6 +116,7 @@ public class LprogressController {
         newLprogressModel.setStatus(status);
         newLprogressModel.setTag(tag);
         newLprogressModel.setImage(imageName);
+        newLprogressModel.setPlaceholder(imagePlaceholders.compute(UPLOAD_DIR, imageName));
         try {
             LocalDate parsedDate = LocalDate.parse(createdAt, dateFormatter);
             newLprogressModel.setCreatedAt(parsedDate);
@@ -75,46 +126,102 @@ public class LprogressController {
         }
         newLprogressModel.setUser(user);
 
-        return lprogressRepository.save(newLprogressModel);
+        LprogressModel saved;
+        try {
+            // the row and its tags commit together or not at all
+            saved = tx.execute(txStatus -> {
+                LprogressModel row = lprogressRepository.save(newLprogressModel);
+                tagService.assign(TagService.PROGRESS, row.getId(), userId, row.getCreatedAt(), row.getTag());
+                return row;
+            });
+        } catch (RuntimeException e) {
+            mediaStore.release(imageName);
+            throw e;
+        }
+        try {
+            versionStamps.changed(VersionStamps.PROGRESS, saved.getId(), userId);
+            searchService.index(saved);
+            nearDuplicateIndex.register(UPLOAD_DIR, imageName);
+        } catch (RuntimeException e) {
+            // the progress is committed, so the request still succeeds
+            System.err.println("Saved progress " + saved.getId() + " but failed to update its caches: " + e.getMessage());
+        }
+        return saved;
     }
 
     @GetMapping("/progress")
-    public List<LprogressModel> getUserProgress(@RequestParam("userId") Long userId) {
-        UserModel user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException(userId));
-        return lprogressRepository.findByUser(user);
+    public List<ProgressSummary> getUserProgress(@RequestParam("userId") Long userId, WebRequest request) {
+        ownershipCache.requireUser(userId);
+        if (versionStamps.notModifiedForUser(request, VersionStamps.PROGRESS, userId)) {
+            return null;
+        }
+        return lprogressRepository.findSummariesByUser(userId);
     }
 
     @GetMapping("/progress/{id}")
-    public LprogressModel getProgressId(@PathVariable Long id, @RequestParam("userId") Long userId) {
-        UserModel user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException(userId));
-        LprogressModel progress = lprogressRepository.findById(id)
-                .orElseThrow(() -> new LprogressNotFoundException(id));
-        if (!progress.getUser().getId().equals(userId)) {
-            throw new LprogressNotFoundException("Progress not owned by user");
+    public LprogressModel getProgressId(@PathVariable Long id, @RequestParam("userId") Long userId, WebRequest request) {
+        ownershipCache.requireUser(userId);
+        checkOwner(id, userId);
+        if (versionStamps.notModifiedItem(request, VersionStamps.PROGRESS, id)) {
+            return null;
         }
-        return progress;
+        return lprogressRepository.findById(id)
+                .orElseThrow(() -> new LprogressNotFoundException(id));
     }
 
     @GetMapping("/progress/update/{id}")
-    public LprogressModel getProgressId(@PathVariable Long id) {
+    public LprogressModel getProgressId(@PathVariable Long id, WebRequest request) {
+        if (versionStamps.notModifiedItem(request, VersionStamps.PROGRESS, id)) {
+            return null;
+        }
         return lprogressRepository.findById(id)
                 .orElseThrow(() -> new LprogressNotFoundException(id));
     }
 
     @GetMapping("/progress/all")
-    public List<LprogressModel> getAllProgress() {
-        return lprogressRepository.findAll();
+    public List<ProgressSummary> getAllProgress(WebRequest request) {
+        if (versionStamps.notModifiedList(request, VersionStamps.PROGRESS)) {
+            return null;
+        }
+        return lprogressRepository.findFirstPage(Limit.of(paginationProperties.getUnpagedCap()));
+    }
+
+    @GetMapping("/progress/page")
+    public CursorPage<ProgressSummary> getProgressPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            WebRequest request) {
+        if (versionStamps.notModifiedList(request, VersionStamps.PROGRESS)) {
+            return null;
+        }
+        int pageSize = paginationProperties.clamp(size);
+        Limit limit = Limit.of(pageSize + 1);
+        List<ProgressSummary> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = lprogressRepository.findFirstPage(limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = lprogressRepository.findPageAfter(after.getCreatedAt(), after.getId(), limit);
+        }
+        return CursorPage.of(rows, pageSize, progress -> new KeysetCursor(progress.getCreatedAt(), progress.getId()));
+    }
+
+    @GetMapping("/progress/export")
+    public ResponseEntity<StreamingResponseBody> exportProgress(
+            @RequestParam(value = "format", defaultValue = KeysetExporter.JSON) String format) {
+        return keysetExporter.<ProgressSummary>export("progress", format, (last, size) -> last == null
+                ? lprogressRepository.findFirstPage(Limit.of(size))
+                : lprogressRepository.findPageAfter(last.getCreatedAt(), last.getId(), Limit.of(size)));
     }
 
     @GetMapping("/uploads/{filename}")
-    public ResponseEntity<FileSystemResource> getImage(@PathVariable String filename) {
-        File file = new File(UPLOAD_DIR + filename);
-        if (!file.exists()) {
+    public ResponseEntity<Resource> getImage(@PathVariable String filename,
+                                                       @RequestParam(value = "w", required = false) Integer width) {
+        MediaEntry image = mediaStore.resolve(UPLOAD_DIR, filename, width);
+        if (image == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(new FileSystemResource(file));
+        return hotImageCache.serve(image);
     }
 
     @PutMapping("/progress/{id}")
@@ -133,8 +240,8 @@ public class LprogressController {
                         .body("Error: 'progress details' part is missing or empty");
             }
 
-            UserModel user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
+            ownershipCache.requireUser(userId);
+            checkOwner(id, userId);
 
             LprogressModel newProgress;
             try {
@@ -146,9 +253,6 @@ public class LprogressController {
             }
 
             LprogressModel updatedProgress = lprogressRepository.findById(id).map(existingProgress -> {
-                if (!existingProgress.getUser().getId().equals(userId)) {
-                    throw new LprogressNotFoundException("Progress not owned by user");
-                }
                 existingProgress.setName(newProgress.getName() != null ? newProgress.getName() : existingProgress.getName());
                 existingProgress.setTopic(newProgress.getTopic() != null ? newProgress.getTopic() : existingProgress.getTopic());
                 existingProgress.setDescription(newProgress.getDescription() != null ? newProgress.getDescription() : existingProgress.getDescription());
@@ -160,34 +264,50 @@ public class LprogressController {
                 }
                 existingProgress.setUpdatedAt(newProgress.getUpdatedAt());
 
+                String oldImage = existingProgress.getImage();
+                boolean imageReplaced = false;
                 if (file != null && !file.isEmpty()) {
                     try {
-                        String imageName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-                        File uploadDir = new File(UPLOAD_DIR);
-                        if (!uploadDir.exists()) {
-                            uploadDir.mkdirs();
-                        }
-                        file.transferTo(Paths.get(UPLOAD_DIR + imageName));
-                        String oldImage = existingProgress.getImage();
-                        if (oldImage != null && !oldImage.isEmpty()) {
-                            File oldImageFile = new File(UPLOAD_DIR + oldImage);
-                            if (oldImageFile.exists()) {
-                                oldImageFile.delete();
-                            }
-                        }
-                        existingProgress.setImage(imageName);
+                        existingProgress.setImage(mediaStore.store(file));
+                        existingProgress.setPlaceholder(imagePlaceholders.compute(UPLOAD_DIR, existingProgress.getImage()));
+                        imageReplaced = true;
                     } catch (IOException e) {
                         System.err.println("Error saving file: " + e.getMessage());
                         throw new RuntimeException("Failed to save image", e);
                     }
                 }
 
+                LprogressModel saved;
                 try {
-                    return lprogressRepository.save(existingProgress);
-                } catch (Exception e) {
+                    // the row and its tags commit together or not at all; flushing the row first makes
+                    // concurrent edits of the same item queue on it before they touch its tags
+                    saved = tx.execute(txStatus -> {
+                        LprogressModel row = lprogressRepository.saveAndFlush(existingProgress);
+                        tagService.assign(TagService.PROGRESS, row.getId(), userId, row.getCreatedAt(), row.getTag());
+                        return row;
+                    });
+                } catch (RuntimeException e) {
+                    if (imageReplaced) {
+                        mediaStore.release(existingProgress.getImage());
+                    }
                     System.err.println("Error saving to database: " + e.getMessage());
                     throw new RuntimeException("Failed to update progress in database", e);
                 }
+                try {
+                    if (imageReplaced) {
+                        // also drops the extra reference when the same bytes were uploaded again
+                        mediaStore.release(UPLOAD_DIR, oldImage);
+                    }
+                    versionStamps.changed(VersionStamps.PROGRESS, saved.getId(), userId);
+                    searchService.index(saved);
+                    if (imageReplaced) {
+                        nearDuplicateIndex.register(UPLOAD_DIR, saved.getImage());
+                    }
+                } catch (RuntimeException e) {
+                    // the progress is committed, so the request still succeeds
+                    System.err.println("Saved progress " + saved.getId() + " but failed to update its caches: " + e.getMessage());
+                }
+                return saved;
             }).orElseThrow(() -> new LprogressNotFoundException(id));
 
             return ResponseEntity.ok(updatedProgress);
@@ -200,6 +320,9 @@ public class LprogressController {
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Error: " + e.getMessage());
+        } catch (ImageRejectedException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body("Error: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error: Failed to update progress - " + e.getMessage());
@@ -209,27 +332,19 @@ public class LprogressController {
     @DeleteMapping("/progress/{id}")
     public ResponseEntity<String> deleteProgress(@PathVariable Long id, @RequestParam("userId") Long userId) {
         try {
-            UserModel user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
+            ownershipCache.requireUser(userId);
+            checkOwner(id, userId);
             LprogressModel progressItem = lprogressRepository.findById(id)
                     .orElseThrow(() -> new LprogressNotFoundException(id));
-            if (!progressItem.getUser().getId().equals(userId)) {
-                throw new LprogressNotFoundException("Progress not owned by user");
-            }
-
-            String image = progressItem.getImage();
-            if (image != null && !image.isEmpty()) {
-                File imageFile = new File(UPLOAD_DIR + image);
-                if (imageFile.exists()) {
-                    if (imageFile.delete()) {
-                        System.out.println("Image deleted");
-                    } else {
-                        System.out.println("Failed to delete image");
-                    }
-                }
-            }
 
-            lprogressRepository.deleteById(id);
+            tx.executeWithoutResult(status -> {
+                lprogressRepository.deleteById(id);
+                tagService.unassign(TagService.PROGRESS, id);
+            });
+            ownershipCache.invalidate(OwnershipCache.Kind.PROGRESS, id);
+            versionStamps.changed(VersionStamps.PROGRESS, id, userId);
+            searchService.remove(SearchIndex.Type.PROGRESS, id);
+            mediaStore.release(UPLOAD_DIR, progressItem.getImage());
             return ResponseEntity.ok("Data with id " + id + " and image deleted");
         } catch (UserNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -239,4 +354,14 @@ public class LprogressController {
                     .body("Error: Progress not found or not owned by user - " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private void checkOwner(Long id, Long userId) {
+        Long owner = ownershipCache.ownerOf(OwnershipCache.Kind.PROGRESS, id);
+        if (owner == null) {
+            throw new LprogressNotFoundException(id);
+        }
+        if (!owner.equals(userId)) {
+            throw new LprogressNotFoundException("Progress not owned by user");
+        }
+    }
+}
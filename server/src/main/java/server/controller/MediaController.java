@@ -0,0 +1,86 @@
+package server.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import server.exception.UserNotFoundException;
+import server.media.HammingIndex;
+import server.media.HotImageCache;
+import server.media.MediaGarbageCollector;
+import server.media.NearDuplicateIndex;
+import server.config.MediaProperties;
+import server.model.UserModel;
+import server.repository.UserRepository;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:5173")
+@RequestMapping("/media")
+public class MediaController {
+
+    @Autowired
+    private MediaGarbageCollector mediaGarbageCollector;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    @GetMapping("/gc")
+    public Map<String, Object> getGcStats() {
+        return mediaGarbageCollector.stats();
+    }
+
+    @PostMapping("/gc/run")
+    public Map<String, Object> runGc() {
+        mediaGarbageCollector.processQueue();
+        return mediaGarbageCollector.stats();
+    }
+
+    @PostMapping("/gc/reconcile")
+    public Map<String, Object> reconcile() {
+        mediaGarbageCollector.reconcile();
+        mediaGarbageCollector.processQueue();
+        return mediaGarbageCollector.stats();
+    }
+
+    @PostMapping("/gc/compact")
+    public Map<String, Object> compactPacks() {
+        mediaGarbageCollector.compactPacks();
+        return mediaGarbageCollector.stats();
+    }
+
+    @GetMapping("/cache")
+    public Map<String, Object> getCacheStats() {
+        return hotImageCache.stats();
+    }
+
+    @GetMapping("/duplicates")
+    public List<List<Map<String, Object>>> getDuplicateClusters(
+            @RequestParam("userId") Long userId,
+            @RequestParam(value = "maxDistance", required = false) Integer maxDistance) {
+        UserModel user = userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+        return nearDuplicateIndex.clustersForUser(user, maxDistance != null ? maxDistance : mediaProperties.getDuplicateMaxDistance());
+    }
+
+    @GetMapping("/duplicates/of/{name}")
+    public List<HammingIndex.Match> getNearDuplicates(
+            @PathVariable String name,
+            @RequestParam(value = "maxDistance", required = false) Integer maxDistance) {
+        return nearDuplicateIndex.nearDuplicatesOf(name, maxDistance != null ? maxDistance : mediaProperties.getDuplicateMaxDistance());
+    }
+
+    @GetMapping("/duplicates/stats")
+    public Map<String, Object> getDuplicateStats() {
+        return nearDuplicateIndex.stats();
+    }
+}
@@ -1,22 +1,50 @@
 package server.controller;
 
+import server.config.PaginationProperties;
+import server.counter.EngagementCounters;
+import server.counter.EngagementCounts;
+import server.etag.VersionStamps;
+import server.follow.TimelineService;
 import server.exception.PostNotFoundException;
+import server.exception.ImageRejectedException;
+import server.exception.InvalidImportException;
 import server.exception.UserNotFoundException;
+import server.importer.ImportReport;
+import server.importer.PostImporter;
+import server.media.HotImageCache;
+import server.media.ImagePlaceholders;
+import server.media.MediaDirectories;
+import server.media.MediaEntry;
+import server.media.MediaStore;
+import server.media.NearDuplicateIndex;
+import server.model.PhotoMetadata;
 import server.model.PostModel;
 import server.model.UserModel;
+import server.ownership.OwnershipCache;
+import server.pagination.CursorPage;
+import server.pagination.KeysetCursor;
+import server.pagination.KeysetExporter;
+import server.repository.PhotoMetadataRepository;
 import server.repository.PostRepository;
-import server.repository.UserRepository;
+import server.repository.PostSummary;
+import server.search.SearchIndex;
+import server.search.SearchService;
+import server.tag.TagService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -30,13 +58,61 @@ public class PostController {
     private PostRepository postRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ObjectMapper objectMapper;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private PaginationProperties paginationProperties;
+
+    @Autowired
+    private KeysetExporter keysetExporter;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private OwnershipCache ownershipCache;
+
+    @Autowired
+    private PostImporter postImporter;
 
-    private final String UPLOAD_DIR = "src/main/post/";
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    @Autowired
+    private ImagePlaceholders imagePlaceholders;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private PhotoMetadataRepository photoMetadataRepository;
+
+    @Autowired
+    private VersionStamps versionStamps;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EngagementCounters engagementCounters;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    private final String UPLOAD_DIR = MediaDirectories.POST_DIR;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+    }
 
     @PostMapping("/post")
     public PostModel newPostModel(
@@ -49,15 +125,9 @@ public class PostController {
             @RequestParam("userId") Long userId,
             @RequestParam("createdAt") String createdAt) throws IOException {
 
-        UserModel user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException(userId));
+        UserModel user = ownershipCache.userReference(userId);
 
-        String imageName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        File uploadDir = new File(UPLOAD_DIR);
-        if (!uploadDir.exists()) {
-            uploadDir.mkdirs();
-        }
-        file.transferTo(Paths.get(UPLOAD_DIR + imageName));
+        String imageName = mediaStore.store(file);
 
         PostModel newPostModel = new PostModel();
         newPostModel.setName(name);
@@ -66,6 +136,7 @@ public class PostController {
         newPostModel.setStatus(status);
         newPostModel.setTag(tag);
         newPostModel.setImage(imageName);
+        newPostModel.setPlaceholder(imagePlaceholders.compute(UPLOAD_DIR, imageName));
         try {
             LocalDate parsedDate = LocalDate.parse(createdAt, dateFormatter);
             newPostModel.setCreatedAt(parsedDate);
@@ -75,46 +146,178 @@ public class PostController {
         }
         newPostModel.setUser(user);
 
-        return postRepository.save(newPostModel);
+        PostModel saved;
+        try {
+            // the row and its tags commit together or not at all
+            saved = tx.execute(txStatus -> {
+                PostModel row = postRepository.save(newPostModel);
+                tagService.assign(TagService.POST, row.getId(), userId, row.getCreatedAt(), row.getTag());
+                return row;
+            });
+        } catch (RuntimeException e) {
+            mediaStore.release(imageName);
+            throw e;
+        }
+        try {
+            versionStamps.changed(VersionStamps.POST, saved.getId(), userId);
+            searchService.index(saved);
+            nearDuplicateIndex.register(UPLOAD_DIR, imageName);
+            timelineService.postPublished(saved.getId(), userId);
+        } catch (RuntimeException e) {
+            // the post is committed, so the request still succeeds
+            System.err.println("Saved post " + saved.getId() + " but failed to update its caches: " + e.getMessage());
+        }
+        return saved;
+    }
+
+    /**
+     * Bulk import: a JSON manifest of posts plus their photos, either as "files" parts or as one
+     * "archive" ZIP. Repeat the request with the returned importId to resume an interrupted import.
+     */
+    @PostMapping("/post/import")
+    public ImportReport importPosts(
+            @RequestParam("manifest") String manifest,
+            @RequestParam(value = "files", required = false) List<MultipartFile> files,
+            @RequestParam(value = "archive", required = false) MultipartFile archive,
+            @RequestParam("userId") Long userId,
+            @RequestParam(value = "importId", required = false) String importId) throws IOException {
+        if (archive != null && !archive.isEmpty()) {
+            if (files != null && !files.isEmpty()) {
+                throw new InvalidImportException("Send either files or an archive, not both");
+            }
+            return postImporter.importArchive(userId, importId, manifest, archive);
+        }
+        return postImporter.importFiles(userId, importId, manifest, files);
     }
 
     @GetMapping("/post")
-    public List<PostModel> getUserPosts(@RequestParam("userId") Long userId) {
-        UserModel user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException(userId));
-        return postRepository.findByUser(user);
+    public List<PostSummary> getUserPosts(@RequestParam("userId") Long userId, WebRequest request) {
+        ownershipCache.requireUser(userId);
+        if (versionStamps.notModifiedForUser(request, VersionStamps.POST, userId)) {
+            return null;
+        }
+        return postRepository.findSummariesByUser(userId);
     }
 
     @GetMapping("/post/{id}")
-    public PostModel getPostId(@PathVariable Long id, @RequestParam("userId") Long userId) {
-        UserModel user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException(userId));
-        PostModel post = postRepository.findById(id)
-                .orElseThrow(() -> new PostNotFoundException(id));
-        if (!post.getUser().getId().equals(userId)) {
-            throw new PostNotFoundException("Post not owned by user");
+    public PostModel getPostId(@PathVariable Long id, @RequestParam("userId") Long userId, WebRequest request) {
+        ownershipCache.requireUser(userId);
+        checkOwner(id, userId);
+        if (versionStamps.notModifiedItem(request, VersionStamps.POST, id)) {
+            return null;
         }
-        return post;
+        return postRepository.findById(id)
+                .orElseThrow(() -> new PostNotFoundException(id));
     }
 
     @GetMapping("/post/update/{id}")
-    public PostModel getPostForUpdate(@PathVariable Long id) {
+    public PostModel getPostForUpdate(@PathVariable Long id, WebRequest request) {
+        if (versionStamps.notModifiedItem(request, VersionStamps.POST, id)) {
+            return null;
+        }
         return postRepository.findById(id)
                 .orElseThrow(() -> new PostNotFoundException(id));
     }
 
+    // views and likes are counted in memory and written to the database in batches
+    @PostMapping("/post/{id}/view")
+    public ResponseEntity<Void> viewPost(@PathVariable Long id) {
+        requirePost(id);
+        engagementCounters.view(EngagementCounters.Kind.POST, id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/post/{id}/like")
+    public EngagementCounts likePost(@PathVariable Long id) {
+        requirePost(id);
+        engagementCounters.like(EngagementCounters.Kind.POST, id);
+        return getPostCounts(id);
+    }
+
+    @DeleteMapping("/post/{id}/like")
+    public EngagementCounts unlikePost(@PathVariable Long id) {
+        requirePost(id);
+        engagementCounters.unlike(EngagementCounters.Kind.POST, id);
+        return getPostCounts(id);
+    }
+
+    @GetMapping("/post/{id}/counts")
+    public EngagementCounts getPostCounts(@PathVariable Long id) {
+        EngagementCounts counts = engagementCounters.counts(EngagementCounters.Kind.POST, id);
+        if (counts == null) {
+            throw new PostNotFoundException(id);
+        }
+        return counts;
+    }
+
     @GetMapping("/post/all")
-    public List<PostModel> getAllPosts() {
-        return postRepository.findAll();
+    public List<PostSummary> getAllPosts(WebRequest request) {
+        if (versionStamps.notModifiedList(request, VersionStamps.POST)) {
+            return null;
+        }
+        return postRepository.findFirstPage(Limit.of(paginationProperties.getUnpagedCap()));
+    }
+
+    @GetMapping("/post/page")
+    public CursorPage<PostSummary> getPostPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            WebRequest request) {
+        if (versionStamps.notModifiedList(request, VersionStamps.POST)) {
+            return null;
+        }
+        int pageSize = paginationProperties.clamp(size);
+        Limit limit = Limit.of(pageSize + 1);
+        List<PostSummary> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = postRepository.findFirstPage(limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = postRepository.findPageAfter(after.getCreatedAt(), after.getId(), limit);
+        }
+        return CursorPage.of(rows, pageSize, post -> new KeysetCursor(post.getCreatedAt(), post.getId()));
+    }
+
+    @GetMapping("/post/export")
+    public ResponseEntity<StreamingResponseBody> exportPosts(
+            @RequestParam(value = "format", defaultValue = KeysetExporter.JSON) String format) {
+        return keysetExporter.<PostSummary>export("posts", format, (last, size) -> last == null
+                ? postRepository.findFirstPage(Limit.of(size))
+                : postRepository.findPageAfter(last.getCreatedAt(), last.getId(), Limit.of(size)));
+    }
+
+    @GetMapping("/post/photos")
+    public ResponseEntity<List<PostSummary>> findPostsByPhoto(
+            @RequestParam(value = "lens", required = false) String lens,
+            @RequestParam(value = "camera", required = false) String camera,
+            @RequestParam(value = "minIso", defaultValue = "0") int minIso,
+            @RequestParam(value = "size", required = false) Integer size) {
+        Limit limit = Limit.of(paginationProperties.clamp(size));
+        if (lens != null && !lens.isBlank()) {
+            return ResponseEntity.ok(postRepository.findByLensAndMinIso(lens, minIso, limit));
+        }
+        if (camera != null && !camera.isBlank()) {
+            return ResponseEntity.ok(postRepository.findByCameraAndMinIso(camera, minIso, limit));
+        }
+        // an unfiltered search would scan every post
+        return ResponseEntity.badRequest().build();
+    }
+
+    @GetMapping("/post/image/{filename}/metadata")
+    public ResponseEntity<PhotoMetadata> getImageMetadata(@PathVariable String filename) {
+        return photoMetadataRepository.findById(filename)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/post/image/{filename}")
-    public ResponseEntity<FileSystemResource> getImage(@PathVariable String filename) {
-        File file = new File(UPLOAD_DIR + filename);
-        if (!file.exists()) {
+    public ResponseEntity<Resource> getImage(@PathVariable String filename,
+                                                       @RequestParam(value = "w", required = false) Integer width) {
+        MediaEntry image = mediaStore.resolve(UPLOAD_DIR, filename, width);
+        if (image == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(new FileSystemResource(file));
+        return hotImageCache.serve(image);
     }
 
     @PutMapping("/post/{id}")
@@ -129,8 +332,8 @@ public class PostController {
                         .body("Error: 'post details' part is missing or empty");
             }
 
-            UserModel user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
+            ownershipCache.requireUser(userId);
+            checkOwner(id, userId);
 
             PostModel newPost;
             try {
@@ -142,9 +345,6 @@ public class PostController {
             }
 
             PostModel updatedPost = postRepository.findById(id).map(existingPost -> {
-                if (!existingPost.getUser().getId().equals(userId)) {
-                    throw new PostNotFoundException("Post not owned by user");
-                }
                 existingPost.setName(newPost.getName() != null ? newPost.getName() : existingPost.getName());
                 existingPost.setTopic(newPost.getTopic() != null ? newPost.getTopic() : existingPost.getTopic());
                 existingPost.setDescription(newPost.getDescription() != null ? newPost.getDescription() : existingPost.getDescription());
@@ -156,34 +356,50 @@ public class PostController {
                 }
                 existingPost.setUpdatedAt(newPost.getUpdatedAt());
 
+                String oldImage = existingPost.getImage();
+                boolean imageReplaced = false;
                 if (file != null && !file.isEmpty()) {
                     try {
-                        String imageName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-                        File uploadDir = new File(UPLOAD_DIR);
-                        if (!uploadDir.exists()) {
-                            uploadDir.mkdirs();
-                        }
-                        file.transferTo(Paths.get(UPLOAD_DIR + imageName));
-                        String oldImage = existingPost.getImage();
-                        if (oldImage != null && !oldImage.isEmpty()) {
-                            File oldImageFile = new File(UPLOAD_DIR + oldImage);
-                            if (oldImageFile.exists()) {
-                                oldImageFile.delete();
-                            }
-                        }
-                        existingPost.setImage(imageName);
+                        existingPost.setImage(mediaStore.store(file));
+                        existingPost.setPlaceholder(imagePlaceholders.compute(UPLOAD_DIR, existingPost.getImage()));
+                        imageReplaced = true;
                     } catch (IOException e) {
                         System.err.println("Error saving file: " + e.getMessage());
                         throw new RuntimeException("Failed to save image", e);
                     }
                 }
 
+                PostModel saved;
                 try {
-                    return postRepository.save(existingPost);
-                } catch (Exception e) {
+                    // the row and its tags commit together or not at all; flushing the row first makes
+                    // concurrent edits of the same item queue on it before they touch its tags
+                    saved = tx.execute(txStatus -> {
+                        PostModel row = postRepository.saveAndFlush(existingPost);
+                        tagService.assign(TagService.POST, row.getId(), userId, row.getCreatedAt(), row.getTag());
+                        return row;
+                    });
+                } catch (RuntimeException e) {
+                    if (imageReplaced) {
+                        mediaStore.release(existingPost.getImage());
+                    }
                     System.err.println("Error saving to database: " + e.getMessage());
                     throw new RuntimeException("Failed to update post in database", e);
                 }
+                try {
+                    if (imageReplaced) {
+                        // also drops the extra reference when the same bytes were uploaded again
+                        mediaStore.release(UPLOAD_DIR, oldImage);
+                    }
+                    versionStamps.changed(VersionStamps.POST, saved.getId(), userId);
+                    searchService.index(saved);
+                    if (imageReplaced) {
+                        nearDuplicateIndex.register(UPLOAD_DIR, saved.getImage());
+                    }
+                } catch (RuntimeException e) {
+                    // the post is committed, so the request still succeeds
+                    System.err.println("Saved post " + saved.getId() + " but failed to update its caches: " + e.getMessage());
+                }
+                return saved;
             }).orElseThrow(() -> new PostNotFoundException(id));
 
             return ResponseEntity.ok(updatedPost);
@@ -196,6 +412,9 @@ public class PostController {
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Error: " + e.getMessage());
+        } catch (ImageRejectedException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body("Error: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error: Failed to update post - " + e.getMessage());
@@ -205,27 +424,19 @@ public class PostController {
     @DeleteMapping("/post/{id}")
     public ResponseEntity<String> deletePost(@PathVariable Long id, @RequestParam("userId") Long userId) {
         try {
-            UserModel user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
+            ownershipCache.requireUser(userId);
+            checkOwner(id, userId);
             PostModel postItem = postRepository.findById(id)
                     .orElseThrow(() -> new PostNotFoundException(id));
-            if (!postItem.getUser().getId().equals(userId)) {
-                throw new PostNotFoundException("Post not owned by user");
-            }
-
-            String image = postItem.getImage();
-            if (image != null && !image.isEmpty()) {
-                File imageFile = new File(UPLOAD_DIR + image);
-                if (imageFile.exists()) {
-                    if (imageFile.delete()) {
-                        System.out.println("Image deleted");
-                    } else {
-                        System.out.println("Failed to delete image");
-                    }
-                }
-            }
 
-            postRepository.deleteById(id);
+            tx.executeWithoutResult(status -> {
+                postRepository.deleteById(id);
+                tagService.unassign(TagService.POST, id);
+            });
+            ownershipCache.invalidate(OwnershipCache.Kind.POST, id);
+            versionStamps.changed(VersionStamps.POST, id, userId);
+            searchService.remove(SearchIndex.Type.POST, id);
+            mediaStore.release(UPLOAD_DIR, postItem.getImage());
             return ResponseEntity.ok("Data with id " + id + " and image deleted");
         } catch (UserNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -235,4 +446,20 @@ public class PostController {
                     .body("Error: Post not found or not owned by user - " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private void requirePost(Long id) {
+        if (ownershipCache.ownerOf(OwnershipCache.Kind.POST, id) == null) {
+            throw new PostNotFoundException(id);
+        }
+    }
+
+    private void checkOwner(Long id, Long userId) {
+        Long owner = ownershipCache.ownerOf(OwnershipCache.Kind.POST, id);
+        if (owner == null) {
+            throw new PostNotFoundException(id);
+        }
+        if (!owner.equals(userId)) {
+            throw new PostNotFoundException("Post not owned by user");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package server.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import server.config.PaginationProperties;
+import server.search.SearchHit;
+import server.search.SearchIndex;
+import server.search.SearchService;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:5173")
+@RequestMapping("/search")
+public class SearchController {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    // q: words to match, a trailing * matches any word starting with it
+    @GetMapping
+    public ResponseEntity<List<SearchHit>> search(
+            @RequestParam("q") String query,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "size", required = false) Integer size) {
+        if (query.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        SearchIndex.Type searchType = null;
+        if (type != null && !type.isBlank()) {
+            try {
+                searchType = SearchIndex.Type.valueOf(type.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(searchService.search(query, userId, searchType, paginationProperties.clamp(size)));
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        return searchService.stats();
+    }
+}
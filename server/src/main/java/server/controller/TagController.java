@@ -0,0 +1,63 @@
+package server.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import server.config.PaginationProperties;
+import server.pagination.CursorPage;
+import server.pagination.KeysetCursor;
+import server.repository.LprogressRepository;
+import server.repository.PostRepository;
+import server.repository.PostSummary;
+import server.repository.ProgressSummary;
+import server.repository.TagFacet;
+import server.tag.TagService;
+
+import java.util.List;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:5173")
+@RequestMapping("/tags")
+public class TagController {
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    // tag cloud, for one user when userId is given
+    @GetMapping
+    public List<TagFacet> getTagCloud(
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return tagService.cloud(userId, paginationProperties.clamp(size));
+    }
+
+    @GetMapping("/{tag}/posts")
+    public CursorPage<PostSummary> getPostsByTag(
+            @PathVariable String tag,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return tagService.browse(tag, TagService.POST, decode(cursor), paginationProperties.clamp(size),
+                postRepository::findSummariesByIdIn, PostSummary::getId);
+    }
+
+    @GetMapping("/{tag}/progress")
+    public CursorPage<ProgressSummary> getProgressByTag(
+            @PathVariable String tag,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return tagService.browse(tag, TagService.PROGRESS, decode(cursor), paginationProperties.clamp(size),
+                lprogressRepository::findSummariesByIdIn, ProgressSummary::getId);
+    }
+
+    private static KeysetCursor decode(String cursor) {
+        return cursor == null || cursor.isEmpty() ? null : KeysetCursor.decode(cursor);
+    }
+}
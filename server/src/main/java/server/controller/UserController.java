@@ -1,12 +1,22 @@
 package server.controller;
 
+import server.etag.VersionStamps;
 import server.exception.UserNotFoundException;
+import server.follow.FollowGraph;
+import server.follow.TimelineService;
 import server.model.UserModel;
+import server.ownership.OwnershipCache;
+import server.pagination.KeysetExporter;
+import server.portfolio.PortfolioExporter;
 import server.repository.UserRepository;
+import server.repository.UserSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -18,10 +28,30 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private KeysetExporter keysetExporter;
+
+    @Autowired
+    private OwnershipCache ownershipCache;
+
+    @Autowired
+    private PortfolioExporter portfolioExporter;
+
+    @Autowired
+    private VersionStamps versionStamps;
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Autowired
+    private TimelineService timelineService;
+
     //Insert
     @PostMapping("/user")
     public UserModel newUserModel(@RequestBody UserModel newUserModel){
-        return  userRepository.save(newUserModel);
+        UserModel saved = userRepository.save(newUserModel);
+        versionStamps.changed(VersionStamps.USER, saved.getId(), null);
+        return saved;
     }
 
     //user login
@@ -48,10 +78,35 @@ public class UserController {
 
     //Display
     @GetMapping("/user")
-    List<UserModel> getAllUsers(){return  userRepository.findAll();}
+    List<UserModel> getAllUsers(WebRequest request){
+        if (versionStamps.notModifiedList(request, VersionStamps.USER)) {
+            return null;
+        }
+        return  userRepository.findAll();
+    }
+
+    @GetMapping("/user/export")
+    ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(value = "format", defaultValue = KeysetExporter.JSON) String format) {
+        return keysetExporter.<UserSummary>export("users", format, (last, size) ->
+                userRepository.findExportBatch(last == null ? Long.MIN_VALUE : last.getId(), Limit.of(size)));
+    }
+
+    // everything the user has posted plus its images, as a resumable ZIP (or just the NDJSON manifest)
+    @GetMapping("/user/{id}/portfolio")
+    ResponseEntity<StreamingResponseBody> exportPortfolio(
+            @PathVariable Long id,
+            @RequestParam(value = "format", defaultValue = PortfolioExporter.ZIP) String format,
+            @RequestHeader(value = "Range", required = false) String range,
+            @RequestHeader(value = "If-Range", required = false) String ifRange) {
+        return portfolioExporter.export(id, format, range, ifRange);
+    }
 
     @GetMapping("/user/{id}")
-    UserModel getUserId(@PathVariable Long id){
+    UserModel getUserId(@PathVariable Long id, WebRequest request){
+        if (versionStamps.notModifiedItem(request, VersionStamps.USER, id)) {
+            return null;
+        }
         return userRepository.findById(id)
                 .orElseThrow(()-> new UserNotFoundException(id));
     }
@@ -65,7 +120,10 @@ public class UserController {
                     userModel.setEmail(newUserModel.getEmail());
                     userModel.setPassword(newUserModel.getPassword());
                     userModel.setPhone(newUserModel.getPhone());
-                    return userRepository.save(userModel);
+                    UserModel saved = userRepository.save(userModel);
+                    ownershipCache.invalidateUser(id);
+                    userChanged(id);
+                    return saved;
                 }).orElseThrow(()-> new UserNotFoundException(id));
     }
 
@@ -77,7 +135,19 @@ public class UserController {
             throw new UserNotFoundException(id);
         }
         userRepository.deleteById(id);
+        ownershipCache.invalidateUser(id);
+        followGraph.removeUser(id);
+        timelineService.forgetUser(id);
+        userChanged(id);
         return "User account" + id + "deleted";
     }
 
+    // list rows of every kind carry the owner's name
+    private void userChanged(Long id) {
+        versionStamps.changed(VersionStamps.USER, id, null);
+        versionStamps.changedAll(VersionStamps.POST);
+        versionStamps.changedAll(VersionStamps.BLOG);
+        versionStamps.changedAll(VersionStamps.PROGRESS);
+    }
+
 }
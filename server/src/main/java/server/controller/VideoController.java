@@ -1,14 +1,25 @@
 package server.controller;
 
+import server.exception.ImageRejectedException;
 import server.exception.VideoNotFoundException;
+import server.media.HotImageCache;
+import server.media.MediaEntry;
+import server.media.MediaStore;
 import server.model.Video;
+import server.pagination.KeysetExporter;
+import server.repository.VideoSummary;
 import server.repository.videoRepositery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.List;
 
@@ -20,17 +31,34 @@ public class VideoController {
     @Autowired
     private videoRepositery videoRepositery;
 
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    @Autowired
+    private KeysetExporter keysetExporter;
+
     // Existing methods (unchanged)
     @PostMapping
     public Video createUser(@RequestBody Video video) {
         return videoRepositery.save(video);
     }
 
+    // Rows carry only image metadata and imageUrl; the bytes are fetched from /{id}/image
     @GetMapping
     public List<Video> getAllUsers() {
         return videoRepositery.findAll();
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(value = "format", defaultValue = KeysetExporter.JSON) String format) {
+        return keysetExporter.<VideoSummary>export("videos", format, (last, size) ->
+                videoRepositery.findExportBatch(last == null ? Long.MIN_VALUE : last.getId(), Limit.of(size)));
+    }
+
     @GetMapping("/{id}")
     public Video getUserById(@PathVariable Long id) {
         return videoRepositery.findById(id)
@@ -52,10 +80,10 @@ public class VideoController {
 
     @DeleteMapping("/{id}")
     public String deleteUser(@PathVariable Long id) {
-        if (!videoRepositery.existsById(id)) {
-            throw new VideoNotFoundException(id);
-        }
+        Video video = videoRepositery.findById(id)
+                .orElseThrow(() -> new VideoNotFoundException(id));
         videoRepositery.deleteById(id);
+        mediaStore.release(video.getImageKey());
         return "Video with ID " + id + " has been deleted successfully.";
     }
 
@@ -78,22 +106,96 @@ public class VideoController {
             Video video = videoRepositery.findById(id)
                     .orElseThrow(() -> new VideoNotFoundException(id));
 
-            // Set image details
+            // Stream the file into the media store; it is never held in memory as a whole
+            String oldImageKey = video.getImageKey();
+            String imageKey = mediaStore.store(imageFile);
+            video.setImageKey(imageKey);
             video.setImageName(imageFile.getOriginalFilename());
             video.setImageType(imageFile.getContentType());
-            video.setImageData(imageFile.getBytes()); // Updated to imageData
+            video.setImageSize(imageFile.getSize());
 
             // Save updated video
-            Video updatedVideo = videoRepositery.save(video);
+            Video updatedVideo;
+            try {
+                updatedVideo = videoRepositery.save(video);
+            } catch (RuntimeException e) {
+                mediaStore.release(imageKey);
+                throw e;
+            }
+            mediaStore.release(oldImageKey);
+            if (oldImageKey == null) {
+                clearLegacyImage(id);
+            }
 
             // Return success response
             return new ResponseEntity<>(updatedVideo, HttpStatus.OK);
         } catch (IOException e) {
             // Handle file processing errors
             return new ResponseEntity<>("Failed to process image file: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (ImageRejectedException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
         } catch (Exception e) {
             // Handle other errors
             return new ResponseEntity<>("Failed to upload image: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{id}/image")
+    public ResponseEntity<Resource> getUserImage(@PathVariable Long id) throws IOException {
+        Video video = videoRepositery.findById(id)
+                .orElseThrow(() -> new VideoNotFoundException(id));
+        String imageKey = video.getImageKey();
+        if (imageKey == null) {
+            imageKey = migrateLegacyImage(id);
+        }
+        if (imageKey == null) {
+            return ResponseEntity.notFound().build();
+        }
+        MediaEntry image = mediaStore.resolve(null, imageKey, null);
+        if (image == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return hotImageCache.serve(image);
+    }
+
+    /**
+     * Moves bytes uploaded before the media store existed out of the users row, once per row.
+     * Concurrent first downloads may both store the bytes, but only one sets the row's key; the
+     * others drop their reference and serve that one.
+     *
+     * @return the row's image key, or null when it has no image
+     */
+    private String migrateLegacyImage(Long id) throws IOException {
+        byte[] legacy;
+        try {
+            legacy = videoRepositery.findLegacyImageData(id);
+        } catch (DataAccessException e) {
+            return null; // schema created after the move has no image_data column
+        }
+        if (legacy == null || legacy.length == 0) {
+            return null;
+        }
+        String key = mediaStore.store(new ByteArrayInputStream(legacy));
+        int claimed;
+        try {
+            claimed = videoRepositery.claimImageKey(id, key, (long) legacy.length);
+        } catch (RuntimeException e) {
+            mediaStore.release(key);
+            throw e;
+        }
+        if (claimed == 0) {
+            mediaStore.release(key);
+            return videoRepositery.findImageKey(id);
+        }
+        clearLegacyImage(id);
+        return key;
+    }
+
+    private void clearLegacyImage(Long id) {
+        try {
+            videoRepositery.clearLegacyImageData(id);
+        } catch (DataAccessException e) {
+            // no image_data column to clear
+        }
+    }
+}
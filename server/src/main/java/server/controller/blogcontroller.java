@@ -1,23 +1,44 @@
 package server.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import server.config.PaginationProperties;
+import server.counter.EngagementCounters;
+import server.counter.EngagementCounts;
+import server.etag.VersionStamps;
+import server.follow.TimelineService;
 import server.exception.BlogNotFoundException;
+import server.exception.ImageRejectedException;
+import server.exception.InvalidCursorException;
 import server.exception.UserNotFoundException;
+import server.media.HotImageCache;
+import server.media.ImagePlaceholders;
+import server.media.MediaDirectories;
+import server.media.MediaEntry;
+import server.media.MediaStore;
+import server.media.NearDuplicateIndex;
 import server.model.BlogModel;
 import server.model.UserModel;
+import server.ownership.OwnershipCache;
+import server.pagination.CursorPage;
+import server.pagination.KeysetCursor;
+import server.pagination.KeysetExporter;
 import server.repository.BlogRepository;
-import server.repository.UserRepository;
+import server.repository.BlogSummary;
+import server.search.SearchIndex;
+import server.search.SearchService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.util.*;
 
 @RestController
@@ -29,12 +50,42 @@ public class blogcontroller {
     private BlogRepository blogRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private OwnershipCache ownershipCache;
 
     @Autowired
     private ObjectMapper objectMapper;
 
-    private static final String UPLOAD_DIR = "src/main/uploads/";
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    @Autowired
+    private KeysetExporter keysetExporter;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    @Autowired
+    private ImagePlaceholders imagePlaceholders;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private VersionStamps versionStamps;
+
+    @Autowired
+    private EngagementCounters engagementCounters;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    private static final String UPLOAD_DIR = MediaDirectories.UPLOAD_DIR;
 
     @PostMapping("/add")
     @Transactional
@@ -54,29 +105,23 @@ public class blogcontroller {
                 return ResponseEntity.badRequest().body(response);
             }
 
-            UserModel user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
+            UserModel user = ownershipCache.userReference(userId);
 
             BlogModel newBlog = new BlogModel();
             newBlog.setTitle(title);
             newBlog.setContent(content);
             newBlog.setAuthor(author);
             newBlog.setCategory(category);
+            newBlog.setCreatedAt(LocalDate.now());
             newBlog.setUser(user);
 
-            String imageName = null;
             if (file != null && !file.isEmpty()) {
                 System.out.println("Processing image");
-                File uploadDir = new File(UPLOAD_DIR);
-                if (!uploadDir.exists()) {
-                    System.out.println("Creating upload directory: " + UPLOAD_DIR);
-                    uploadDir.mkdirs();
-                }
-                imageName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-                System.out.println("Saving image: " + imageName);
                 try {
-                    file.transferTo(Paths.get(UPLOAD_DIR, imageName));
+                    String imageName = mediaStore.store(file);
+                    System.out.println("Saved image: " + imageName);
                     newBlog.setImage(imageName);
+                    newBlog.setPlaceholder(imagePlaceholders.compute(UPLOAD_DIR, imageName));
                 } catch (IOException e) {
                     System.err.println("Failed to upload image: " + e.getMessage());
                     response.put("error", "Failed to upload image: " + e.getMessage());
@@ -86,6 +131,10 @@ public class blogcontroller {
 
             System.out.println("Blog ID before save: " + newBlog.getId());
             BlogModel savedBlog = blogRepository.save(newBlog);
+            versionStamps.changed(VersionStamps.BLOG, savedBlog.getId(), userId);
+            searchService.index(savedBlog);
+            nearDuplicateIndex.register(UPLOAD_DIR, savedBlog.getImage());
+            timelineService.blogPublished(savedBlog.getId(), userId);
             System.out.println("Blog ID after save: " + savedBlog.getId());
             response.put("message", "Blog added successfully");
             response.put("blogId", savedBlog.getId().toString());
@@ -94,6 +143,10 @@ public class blogcontroller {
             System.err.println("User not found: " + e.getMessage());
             response.put("error", "User not found: " + userId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        } catch (ImageRejectedException e) {
+            System.err.println(e.getMessage());
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
         } catch (Exception e) {
             System.err.println("Error in /blog/add: " + e.getMessage());
             e.printStackTrace();
@@ -103,10 +156,13 @@ public class blogcontroller {
     }
 
     @GetMapping
-    public ResponseEntity<List<BlogModel>> getAllBlogs() {
+    public ResponseEntity<List<BlogSummary>> getAllBlogs(WebRequest request) {
         try {
             System.out.println("Received /blog request");
-            List<BlogModel> blogs = blogRepository.findAll();
+            if (versionStamps.notModifiedList(request, VersionStamps.BLOG)) {
+                return null;
+            }
+            List<BlogSummary> blogs = blogRepository.findFirstPage(Limit.of(paginationProperties.getUnpagedCap()));
             return ResponseEntity.ok(blogs);
         } catch (Exception e) {
             System.err.println("Error in /blog: " + e.getMessage());
@@ -115,10 +171,52 @@ public class blogcontroller {
         }
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<BlogSummary>> getBlogPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            WebRequest request) {
+        try {
+            System.out.println("Received /blog/page request");
+            if (versionStamps.notModifiedList(request, VersionStamps.BLOG)) {
+                return null;
+            }
+            int pageSize = paginationProperties.clamp(size);
+            Limit limit = Limit.of(pageSize + 1);
+            List<BlogSummary> rows;
+            if (cursor == null || cursor.isEmpty()) {
+                rows = blogRepository.findFirstPage(limit);
+            } else {
+                KeysetCursor after = KeysetCursor.decode(cursor);
+                rows = blogRepository.findPageAfter(after.getCreatedAt(), after.getId(), limit);
+            }
+            return ResponseEntity.ok(CursorPage.of(rows, pageSize, blog -> new KeysetCursor(blog.getCreatedAt(), blog.getId())));
+        } catch (InvalidCursorException e) {
+            System.err.println("Invalid cursor: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            System.err.println("Error in /blog/page: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBlogs(
+            @RequestParam(value = "format", defaultValue = KeysetExporter.JSON) String format) {
+        System.out.println("Received /blog/export request");
+        return keysetExporter.<BlogSummary>export("blogs", format, (last, size) -> last == null
+                ? blogRepository.findFirstPage(Limit.of(size))
+                : blogRepository.findPageAfter(last.getCreatedAt(), last.getId(), Limit.of(size)));
+    }
+
     @GetMapping("/get/{id}")
-    public ResponseEntity<BlogModel> getBlog(@PathVariable Long id) {
+    public ResponseEntity<BlogModel> getBlog(@PathVariable Long id, WebRequest request) {
         try {
             System.out.println("Received /blog/get/" + id + " request");
+            if (versionStamps.notModifiedItem(request, VersionStamps.BLOG, id)) {
+                return null;
+            }
             BlogModel blog = blogRepository.findById(id)
                     .orElseThrow(() -> new BlogNotFoundException(id));
             return ResponseEntity.ok(blog);
@@ -132,13 +230,52 @@ public class blogcontroller {
         }
     }
 
+    // views and likes are counted in memory and written to the database in batches
+    @PostMapping("/{id}/view")
+    public ResponseEntity<Void> viewBlog(@PathVariable Long id) {
+        if (ownershipCache.ownerOf(OwnershipCache.Kind.BLOG, id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        engagementCounters.view(EngagementCounters.Kind.BLOG, id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/{id}/like")
+    public ResponseEntity<EngagementCounts> likeBlog(@PathVariable Long id) {
+        if (ownershipCache.ownerOf(OwnershipCache.Kind.BLOG, id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        engagementCounters.like(EngagementCounters.Kind.BLOG, id);
+        return getBlogCounts(id);
+    }
+
+    @DeleteMapping("/{id}/like")
+    public ResponseEntity<EngagementCounts> unlikeBlog(@PathVariable Long id) {
+        if (ownershipCache.ownerOf(OwnershipCache.Kind.BLOG, id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        engagementCounters.unlike(EngagementCounters.Kind.BLOG, id);
+        return getBlogCounts(id);
+    }
+
+    @GetMapping("/{id}/counts")
+    public ResponseEntity<EngagementCounts> getBlogCounts(@PathVariable Long id) {
+        EngagementCounts counts = engagementCounters.counts(EngagementCounters.Kind.BLOG, id);
+        if (counts == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(counts);
+    }
+
     @GetMapping("/user")
-    public ResponseEntity<List<BlogModel>> getUserBlogs(@RequestParam("userId") Long userId) {
+    public ResponseEntity<List<BlogSummary>> getUserBlogs(@RequestParam("userId") Long userId, WebRequest request) {
         try {
             System.out.println("Received /blog/user?userId=" + userId + " request");
-            UserModel user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
-            List<BlogModel> blogs = blogRepository.findByUser(user);
+            ownershipCache.requireUser(userId);
+            if (versionStamps.notModifiedForUser(request, VersionStamps.BLOG, userId)) {
+                return null;
+            }
+            List<BlogSummary> blogs = blogRepository.findSummariesByUser(userId);
             return ResponseEntity.ok(blogs);
         } catch (UserNotFoundException e) {
             System.err.println("User not found: " + e.getMessage());
@@ -151,13 +288,14 @@ public class blogcontroller {
     }
 
     @GetMapping("/uploads/{filename}")
-    public ResponseEntity<FileSystemResource> getImage(@PathVariable String filename) {
+    public ResponseEntity<Resource> getImage(@PathVariable String filename,
+                                                       @RequestParam(value = "w", required = false) Integer width) {
         System.out.println("Received /blog/uploads/" + filename + " request");
-        File file = new File(UPLOAD_DIR + filename);
-        if (!file.exists()) {
+        MediaEntry image = mediaStore.resolve(UPLOAD_DIR, filename, width);
+        if (image == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(new FileSystemResource(file));
+        return hotImageCache.serve(image);
     }
 
     @PutMapping("/update/{id}")
@@ -172,37 +310,25 @@ public class blogcontroller {
             @RequestParam(value = "userId") Long userId) {
         try {
             System.out.println("Received /blog/update/" + id + " request");
+            ownershipCache.requireUser(userId);
+            checkOwner(id, userId);
             BlogModel existingBlog = blogRepository.findById(id)
                     .orElseThrow(() -> new BlogNotFoundException(id));
 
-            UserModel user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
-            if (!existingBlog.getUser().getId().equals(userId)) {
-                throw new BlogNotFoundException("Blog not owned by user");
-            }
-
             if (title != null) existingBlog.setTitle(title);
             if (content != null) existingBlog.setContent(content);
             if (author != null) existingBlog.setAuthor(author);
             if (category != null) existingBlog.setCategory(category);
 
             if (file != null && !file.isEmpty()) {
-                File uploadDir = new File(UPLOAD_DIR);
-                if (!uploadDir.exists()) {
-                    uploadDir.mkdirs();
-                }
-                String imageName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-                System.out.println("Saving new image: " + imageName);
                 try {
-                    file.transferTo(Paths.get(UPLOAD_DIR, imageName));
                     String oldImage = existingBlog.getImage();
-                    if (oldImage != null && !oldImage.isEmpty()) {
-                        File oldImageFile = new File(UPLOAD_DIR + oldImage);
-                        if (oldImageFile.exists()) {
-                            oldImageFile.delete();
-                        }
-                    }
+                    String imageName = mediaStore.store(file);
+                    System.out.println("Saved new image: " + imageName);
                     existingBlog.setImage(imageName);
+                    existingBlog.setPlaceholder(imagePlaceholders.compute(UPLOAD_DIR, imageName));
+                    // released after commit; also drops the extra reference when the same bytes were uploaded again
+                    mediaStore.release(UPLOAD_DIR, oldImage);
                 } catch (IOException e) {
                     System.err.println("Error uploading image: " + e.getMessage());
                     throw new RuntimeException("Error uploading image", e);
@@ -211,6 +337,11 @@ public class blogcontroller {
 
             System.out.println("Saving updated blog");
             BlogModel updatedBlog = blogRepository.save(existingBlog);
+            versionStamps.changed(VersionStamps.BLOG, id, userId);
+            searchService.index(updatedBlog);
+            if (file != null && !file.isEmpty()) {
+                nearDuplicateIndex.register(UPLOAD_DIR, updatedBlog.getImage());
+            }
             return ResponseEntity.ok(updatedBlog);
         } catch (BlogNotFoundException e) {
             System.err.println("Blog not found: " + e.getMessage());
@@ -218,6 +349,9 @@ public class blogcontroller {
         } catch (UserNotFoundException e) {
             System.err.println("User not found: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (ImageRejectedException e) {
+            System.err.println(e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(null);
         } catch (Exception e) {
             System.err.println("Error in /blog/update/" + id + ": " + e.getMessage());
             e.printStackTrace();
@@ -231,30 +365,16 @@ public class blogcontroller {
         Map<String, String> response = new HashMap<>();
         try {
             System.out.println("Received /blog/" + id + " delete request");
+            ownershipCache.requireUser(userId);
+            checkOwner(id, userId);
             BlogModel blog = blogRepository.findById(id)
                     .orElseThrow(() -> new BlogNotFoundException(id));
 
-            UserModel user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
-            if (!blog.getUser().getId().equals(userId)) {
-                throw new BlogNotFoundException("Blog not owned by user");
-            }
-
-            String image = blog.getImage();
-            if (image != null && !image.isEmpty()) {
-                File imageFile = new File(UPLOAD_DIR + image);
-                if (imageFile.exists()) {
-                    if (!imageFile.delete()) {
-                        System.out.println("Failed to delete image: " + image);
-                    } else {
-                        System.out.println("Deleted image: " + image);
-                    }
-                } else {
-                    System.out.println("Image file not found: " + image);
-                }
-            }
-
             blogRepository.deleteById(id);
+            ownershipCache.invalidate(OwnershipCache.Kind.BLOG, id);
+            versionStamps.changed(VersionStamps.BLOG, id, userId);
+            searchService.remove(SearchIndex.Type.BLOG, id);
+            mediaStore.release(UPLOAD_DIR, blog.getImage());
             System.out.println("Blog with id " + id + " deleted from database");
             response.put("message", "Blog with id " + id + " deleted successfully");
             return ResponseEntity.ok(response);
@@ -273,4 +393,14 @@ public class blogcontroller {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
-}
\ No newline at end of file
+
+    private void checkOwner(Long id, Long userId) {
+        Long owner = ownershipCache.ownerOf(OwnershipCache.Kind.BLOG, id);
+        if (owner == null) {
+            throw new BlogNotFoundException(id);
+        }
+        if (!owner.equals(userId)) {
+            throw new BlogNotFoundException("Blog not owned by user");
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package server.counter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import server.config.CounterProperties;
+import server.repository.BlogRepository;
+import server.repository.CountsRow;
+import server.repository.PostRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind view and like counters for posts and blogs.
+ * <p>
+ * Increments only touch a per-item {@link LongAdder}, so a hot post never makes requests queue on
+ * its row lock. {@link #flush()} turns whatever is pending into one {@code n = n + ?} UPDATE per
+ * item, sent as JDBC batches, every {@code app.counters.flush-interval-ms} and once more on
+ * shutdown. {@link #counts} adds the pending increments to the persisted values, read from the
+ * primary: a replica would miss the latest flushes. A chunk is taken out of the pending increments,
+ * written and committed under the write side of {@link #flushLock} and counts are read under the
+ * read side, so a read sees each delta either pending or persisted, never both or neither.
+ * <p>
+ * Items without pending increments are eventually dropped from memory. An increment may already
+ * hold a dropped entry, so increments register in the current epoch and eviction waits for the
+ * previous epoch to drain before re-queuing whatever landed in the dropped entries.
+ */
+@Component
+public class EngagementCounters {
+
+    public enum Kind {
+        POST("post_model"), BLOG("blog_model");
+
+        private final String sql;
+
+        Kind(String table) {
+            // likes can be taken back, but never below zero
+            this.sql = "update " + table + " set view_count = view_count + ?, "
+                    + "like_count = greatest(like_count + ?, 0) where id = ?";
+        }
+    }
+
+    @Autowired
+    private CounterProperties counterProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    private final Map<Key, Pending> pending = new ConcurrentHashMap<>();
+    // increments in progress, per epoch
+    private final LongAdder[] active = {new LongAdder(), new LongAdder()};
+    private volatile int epoch;
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private TransactionTemplate tx;
+    // read-write, so the routing data source sends it to the primary
+    private TransactionTemplate primaryReads;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        primaryReads = new TransactionTemplate(transactionManager);
+        primaryReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void view(Kind kind, Long id) {
+        add(kind, id, 1, 0);
+    }
+
+    public void like(Kind kind, Long id) {
+        add(kind, id, 0, 1);
+    }
+
+    public void unlike(Kind kind, Long id) {
+        add(kind, id, 0, -1);
+    }
+
+    // null when the item does not exist
+    public EngagementCounts counts(Kind kind, Long id) {
+        flushLock.readLock().lock();
+        try {
+            CountsRow row = primaryReads.execute(status ->
+                    (kind == Kind.POST ? postRepository.findCounts(id) : blogRepository.findCounts(id)).orElse(null));
+            if (row == null) {
+                return null;
+            }
+            long views = row.getViewCount();
+            long likes = row.getLikeCount();
+            Pending p = pending.get(new Key(kind, id));
+            if (p != null) {
+                views += p.views.sum();
+                likes += p.likes.sum();
+            }
+            return new EngagementCounts(views, Math.max(likes, 0));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    private void add(Kind kind, Long id, long views, long likes) {
+        LongAdder inProgress;
+        while (true) {
+            int current = epoch;
+            inProgress = active[current];
+            inProgress.increment();
+            // registered too late for an eviction that already flipped the epoch: register in the new one
+            if (epoch == current) {
+                break;
+            }
+            inProgress.decrement();
+        }
+        try {
+            Key key = new Key(kind, id);
+            Pending p = pending.get(key);
+            if (p == null) {
+                p = pending.computeIfAbsent(key, k -> new Pending());
+            }
+            if (views != 0) {
+                p.views.add(views);
+            }
+            if (likes != 0) {
+                p.likes.add(likes);
+            }
+        } finally {
+            inProgress.decrement();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval-ms:2000}", initialDelayString = "${app.counters.flush-interval-ms:2000}")
+    public synchronized void flush() {
+        List<Map.Entry<Key, Pending>> changed = new ArrayList<>();
+        List<Key> idle = new ArrayList<>();
+        for (Map.Entry<Key, Pending> entry : pending.entrySet()) {
+            Pending p = entry.getValue();
+            if (p.views.sum() == 0 && p.likes.sum() == 0) {
+                if (++p.idleFlushes >= counterProperties.getEvictAfterIdleFlushes()) {
+                    idle.add(entry.getKey());
+                }
+                continue;
+            }
+            p.idleFlushes = 0;
+            changed.add(entry);
+        }
+
+        int batchSize = Math.max(1, counterProperties.getBatchSize());
+        for (int from = 0; from < changed.size(); from += batchSize) {
+            flushLock.writeLock().lock();
+            try {
+                write(take(changed.subList(from, Math.min(from + batchSize, changed.size()))));
+            } finally {
+                flushLock.writeLock().unlock();
+            }
+        }
+        evict(idle);
+    }
+
+    private static List<Delta> take(List<Map.Entry<Key, Pending>> entries) {
+        List<Delta> deltas = new ArrayList<>(entries.size());
+        for (Map.Entry<Key, Pending> entry : entries) {
+            Pending p = entry.getValue();
+            long views = p.views.sum();
+            long likes = p.likes.sum();
+            p.views.add(-views);
+            p.likes.add(-likes);
+            deltas.add(new Delta(entry.getKey(), p, views, likes));
+        }
+        return deltas;
+    }
+
+    private void write(List<Delta> chunk) {
+        try {
+            tx.executeWithoutResult(status -> {
+                for (Kind kind : Kind.values()) {
+                    List<Object[]> args = new ArrayList<>();
+                    for (Delta delta : chunk) {
+                        if (delta.key.kind == kind) {
+                            args.add(new Object[]{delta.views, delta.likes, delta.key.id});
+                        }
+                    }
+                    if (!args.isEmpty()) {
+                        // rows deleted in the meantime simply match nothing
+                        jdbcTemplate.batchUpdate(kind.sql, args);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Counter flush of " + chunk.size() + " items failed, retrying next time: " + e.getMessage());
+            for (Delta delta : chunk) {
+                delta.pending.views.add(delta.views);
+                delta.pending.likes.add(delta.likes);
+            }
+        }
+    }
+
+    private void evict(List<Key> idle) {
+        if (idle.isEmpty()) {
+            return;
+        }
+        List<Key> keys = new ArrayList<>();
+        List<Pending> removed = new ArrayList<>();
+        // reads would miss increments that landed in a removed entry until they are re-queued
+        flushLock.writeLock().lock();
+        try {
+            for (Key key : idle) {
+                Pending p = pending.remove(key);
+                if (p != null) {
+                    keys.add(key);
+                    removed.add(p);
+                }
+            }
+            // increments starting from now on cannot find the removed entries; wait out those that might have
+            int previous = epoch;
+            epoch = 1 - previous;
+            while (active[previous].sum() != 0) {
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < removed.size(); i++) {
+                long views = removed.get(i).views.sum();
+                long likes = removed.get(i).likes.sum();
+                if (views != 0 || likes != 0) {
+                    add(keys.get(i).kind, keys.get(i).id, views, likes);
+                }
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            long views = 0;
+            long likes = 0;
+            for (Pending p : pending.values()) {
+                views += p.views.sum();
+                likes += p.likes.sum();
+            }
+            if (views != 0 || likes != 0) {
+                System.err.println("Counter increments lost on shutdown: " + views + " views, " + likes + " likes");
+            }
+        }
+    }
+
+    private record Key(Kind kind, Long id) {
+    }
+
+    private record Delta(Key key, Pending pending, long views, long likes) {
+    }
+
+    private static final class Pending {
+        final LongAdder views = new LongAdder();
+        final LongAdder likes = new LongAdder();
+        // only touched by flush()
+        int idleFlushes;
+    }
+}
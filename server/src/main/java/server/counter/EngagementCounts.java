@@ -0,0 +1,34 @@
+package server.counter;
+
+/**
+ * View and like counts of a post or blog: the persisted values plus increments not yet flushed.
+ */
+public class EngagementCounts {
+
+    private long views;
+    private long likes;
+
+    public EngagementCounts() {
+    }
+
+    public EngagementCounts(long views, long likes) {
+        this.views = views;
+        this.likes = likes;
+    }
+
+    public long getViews() {
+        return views;
+    }
+
+    public void setViews(long views) {
+        this.views = views;
+    }
+
+    public long getLikes() {
+        return likes;
+    }
+
+    public void setLikes(long likes) {
+        this.likes = likes;
+    }
+}
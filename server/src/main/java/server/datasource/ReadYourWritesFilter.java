@@ -0,0 +1,106 @@
+package server.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import server.config.ReplicaProperties;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Decides which GET requests may read from replicas. A client that has just written keeps reading
+ * from the primary for {@code app.datasource.sticky-seconds}, so it sees its own upload or edit
+ * even while replicas are behind. The writer is recognised by a short-lived cookie and, for
+ * clients that don't send cookies, by the {@code userId} parameter of the write.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.datasource", name = "replicas[0].url")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String STICKY_COOKIE = "primary_until";
+
+    @Autowired
+    private ReplicaProperties replicaProperties;
+
+    // userId -> until when (epoch ms) that user's reads stay on the primary
+    private Cache<String, Long> recentWriters;
+
+    @Override
+    protected void initFilterBean() {
+        recentWriters = Caffeine.newBuilder()
+                .maximumSize(replicaProperties.getMaxStickyUsers())
+                .expireAfterWrite(Duration.ofSeconds(replicaProperties.getStickySeconds()))
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            // set before the handler runs, the response may be committed by the time it returns
+            if (!"OPTIONS".equals(method)) {
+                markWriter(request, response);
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+        if (isSticky(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ReplicaRoutingDataSource.allowReplicaReads();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.clear();
+        }
+    }
+
+    private void markWriter(HttpServletRequest request, HttpServletResponse response) {
+        long until = System.currentTimeMillis() + replicaProperties.getStickySeconds() * 1000;
+        String userId = request.getParameter("userId");
+        if (userId != null && !userId.isBlank()) {
+            recentWriters.put(userId.trim(), until);
+        }
+        Cookie cookie = new Cookie(STICKY_COOKIE, Long.toString(until));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) replicaProperties.getStickySeconds());
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+
+    private boolean isSticky(HttpServletRequest request) {
+        long now = System.currentTimeMillis();
+        String userId = request.getParameter("userId");
+        if (userId != null) {
+            Long until = recentWriters.getIfPresent(userId.trim());
+            if (until != null && until > now) {
+                return true;
+            }
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (STICKY_COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue()) > now;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
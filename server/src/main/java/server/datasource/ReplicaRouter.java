@@ -0,0 +1,133 @@
+package server.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import server.config.ReplicaProperties;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The configured read replicas and whether each one may currently serve reads. A replica is used
+ * only after a lag check has seen it within {@code app.datasource.max-lag-seconds}; a failed check
+ * or a failed connection takes it out of rotation until the next check passes, so reads fall back
+ * to the primary rather than seeing stale or missing rows.
+ */
+public class ReplicaRouter implements AutoCloseable {
+
+    private static final String[] LAG_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+    private static final int LAG_QUERY_TIMEOUT_SECONDS = 2;
+
+    private final ReplicaProperties replicaProperties;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRouter(ReplicaProperties replicaProperties) {
+        this.replicaProperties = replicaProperties;
+        List<ReplicaProperties.Replica> configured = replicaProperties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReplicaProperties.Replica replica = configured.get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setReadOnly(true);
+            replicas.add(new Replica("replica-" + i, dataSource));
+        }
+    }
+
+    // a healthy replica in round-robin order, or null when the primary has to serve the read
+    Replica next() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    void markDown(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            System.err.println("Replica " + replica.name + " taken out of rotation: " + e.getMessage());
+        }
+        replica.healthy = false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.lag-check-interval-ms:2000}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            try {
+                Long lag = lagSeconds(replica.dataSource);
+                replica.lagSeconds = lag == null ? -1 : lag;
+                replica.healthy = lag != null && lag <= replicaProperties.getMaxLagSeconds();
+            } catch (SQLException e) {
+                replica.lagSeconds = -1;
+                replica.healthy = false;
+            }
+            if (wasHealthy != replica.healthy) {
+                System.out.println("Replica " + replica.name + (replica.healthy ? " back in rotation" : " out of rotation")
+                        + " (lag " + (replica.lagSeconds < 0 ? "unknown" : replica.lagSeconds + "s") + ")");
+            }
+        }
+    }
+
+    // null when replication is stopped or broken, or when the query returns no row (the server is not a replica)
+    private Long lagSeconds(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(LAG_QUERY_TIMEOUT_SECONDS);
+            try (ResultSet rs = statement.executeQuery(replicaProperties.getLagQuery())) {
+                if (!rs.next()) {
+                    return null;
+                }
+                long lag = rs.getLong(lagColumn(rs.getMetaData()));
+                return rs.wasNull() ? null : lag;
+            }
+        }
+    }
+
+    private static int lagColumn(ResultSetMetaData meta) throws SQLException {
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            for (String name : LAG_COLUMNS) {
+                if (name.equalsIgnoreCase(meta.getColumnLabel(i))) {
+                    return i;
+                }
+            }
+        }
+        return 1;
+    }
+
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    static final class Replica {
+        final String name;
+        final HikariDataSource dataSource;
+        volatile boolean healthy;
+        volatile long lagSeconds = -1;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
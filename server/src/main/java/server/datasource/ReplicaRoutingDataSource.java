@@ -0,0 +1,74 @@
+package server.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out primary connections, except for reads made while serving a GET request that
+ * {@link ReadYourWritesFilter} has cleared for replicas: those go to a healthy replica when they
+ * run in a read-only transaction or outside any transaction. Everything else (writes, read-write
+ * transactions, scheduled jobs, startup) stays on the primary.
+ * <p>
+ * The choice is made when Hibernate acquires the connection, which with
+ * {@code hibernate.connection.handling_mode=DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION}
+ * happens per transaction rather than once per open-in-view session. It has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which hands out the
+ * real connection only at the first statement, once the transaction is known to be read-only or not.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final ThreadLocal<Boolean> REPLICA_READS = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final ReplicaRouter router;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaRouter router) {
+        this.primary = primary;
+        this.router = router;
+    }
+
+    static void allowReplicaReads() {
+        REPLICA_READS.set(Boolean.TRUE);
+    }
+
+    static void clear() {
+        REPLICA_READS.remove();
+    }
+
+    // whether the current request's reads may be served by a replica
+    public static boolean replicaReadsAllowed() {
+        return REPLICA_READS.get() != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readsFromReplica()) {
+            ReplicaRouter.Replica replica = router.next();
+            if (replica != null) {
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException e) {
+                    router.markDown(replica, e);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    private static boolean readsFromReplica() {
+        if (REPLICA_READS.get() == null) {
+            return false;
+        }
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
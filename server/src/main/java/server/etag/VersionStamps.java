@@ -0,0 +1,181 @@
+package server.etag;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import server.config.EtagProperties;
+import server.config.ReplicaProperties;
+import server.datasource.ReplicaRoutingDataSource;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version stamps for the JSON list and detail endpoints, so a poll whose If-None-Match
+ * still matches is answered 304 before any query runs or any JSON is written.
+ * <p>
+ * Controllers call {@link #changed} after every create, update or delete; it moves the stamps of
+ * the collection, of the owner's collection and of the item itself. {@link #changedAll} covers
+ * changes that touch many rows of a kind at once (profile renames, placeholder backfill).
+ * <p>
+ * Every stamp is drawn from one counter, so a stamp is never reused. A key that is not (or no
+ * longer) cached gets the current counter value, which is at least as new as anything it was
+ * stamped with before, so eviction can only cost a full response, never a wrong 304.
+ * <p>
+ * A request whose reads may go to a replica (see {@link ReplicaRoutingDataSource}) keeps getting a
+ * key's previous stamp until every replica still in rotation must have the change, so a lagging
+ * replica's old rows never go out under the new stamp. Such a client is at most that far behind
+ * and then sees the new stamp; a writer reading from the primary sees it at once.
+ */
+@Component
+public class VersionStamps {
+
+    public static final String POST = "post";
+    public static final String BLOG = "blog";
+    public static final String PROGRESS = "progress";
+    public static final String USER = "user";
+
+    // never handed out by the counter; served to replica reads of a key whose last change is unknown
+    private static final long NO_STAMP = -1;
+
+    @Autowired
+    private EtagProperties etagProperties;
+
+    @Autowired
+    private ReplicaProperties replicaProperties;
+
+    private final AtomicLong counter = new AtomicLong();
+    // distinguishes this run's ETags from those of earlier runs and other instances
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() >>> 24, 36);
+    private Cache<String, Stamp> stamps;
+
+    @PostConstruct
+    void init() {
+        stamps = Caffeine.newBuilder()
+                .maximumSize(etagProperties.getMaxKeys())
+                .build();
+    }
+
+    public void changed(String kind, Long id, Long ownerId) {
+        afterCommit(() -> {
+            bump(kind);
+            if (ownerId != null) {
+                bump(ownerKey(kind, ownerId));
+            }
+            if (id != null) {
+                bump(itemKey(kind, id));
+            }
+        });
+    }
+
+    public void changedAll(String kind) {
+        afterCommit(() -> bump(generationKey(kind)));
+    }
+
+    // bumping before the commit would let a concurrent poll pair the new ETag with the old rows
+    private static void afterCommit(Runnable bump) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump.run();
+            }
+        });
+    }
+
+    // each returns true when the response has been completed as 304 Not Modified
+    public boolean notModifiedList(WebRequest request, String kind) {
+        return notModified(request, kind, kind);
+    }
+
+    public boolean notModifiedForUser(WebRequest request, String kind, Long userId) {
+        return notModified(request, kind, ownerKey(kind, userId));
+    }
+
+    public boolean notModifiedItem(WebRequest request, String kind, Long id) {
+        return notModified(request, kind, itemKey(kind, id));
+    }
+
+    // a list merged from several collections, like the activity feed
+    public boolean notModifiedLists(WebRequest request, String... kinds) {
+        StringBuilder tag = new StringBuilder("W/\"").append(instance);
+        for (String kind : kinds) {
+            appendStamps(tag, kind, kind);
+        }
+        return request.checkNotModified(etag(request, tag));
+    }
+
+    private boolean notModified(WebRequest request, String kind, String key) {
+        StringBuilder tag = new StringBuilder("W/\"").append(instance);
+        appendStamps(tag, kind, key);
+        return request.checkNotModified(etag(request, tag));
+    }
+
+    private void appendStamps(StringBuilder tag, String kind, String key) {
+        tag.append('-').append(Long.toString(stamp(generationKey(kind)), 36))
+                .append('-').append(Long.toString(stamp(key), 36));
+    }
+
+    private String etag(WebRequest request, StringBuilder tag) {
+        long maxStale = etagProperties.getMaxStaleSeconds();
+        if (maxStale > 0) {
+            tag.append('-').append(Long.toString(System.currentTimeMillis() / (maxStale * 1000), 36));
+        }
+        // the same collection is served by several URLs and query strings
+        HttpServletRequest servletRequest = ((NativeWebRequest) request).getNativeRequest(HttpServletRequest.class);
+        if (servletRequest != null) {
+            String query = servletRequest.getQueryString();
+            int hash = servletRequest.getRequestURI().hashCode() * 31 + (query == null ? 0 : query.hashCode());
+            tag.append('-').append(Integer.toHexString(hash));
+        }
+        return tag.append('"').toString();
+    }
+
+    private long stamp(String key) {
+        // a key seen for the first time may have changed just before, as far as replicas go
+        Stamp stamp = stamps.get(key, k -> new Stamp(counter.get(), NO_STAMP, System.currentTimeMillis()));
+        if (ReplicaRoutingDataSource.replicaReadsAllowed() && replicasMayLag(stamp, System.currentTimeMillis())) {
+            return stamp.previous();
+        }
+        return stamp.current();
+    }
+
+    private void bump(String key) {
+        long now = System.currentTimeMillis();
+        stamps.asMap().compute(key, (k, old) -> {
+            long previous = old == null ? NO_STAMP : replicasMayLag(old, now) ? old.previous() : old.current();
+            return new Stamp(counter.incrementAndGet(), previous, now);
+        });
+    }
+
+    // a replica in rotation was at most max-lag behind at its last check
+    private boolean replicasMayLag(Stamp stamp, long now) {
+        return now - stamp.changedAt() < replicaProperties.getMaxLagSeconds() * 1000 + replicaProperties.getLagCheckIntervalMs();
+    }
+
+    // previous is what replica reads get until the change has reached every replica in rotation
+    private record Stamp(long current, long previous, long changedAt) {
+    }
+
+    private static String generationKey(String kind) {
+        return kind + "!";
+    }
+
+    private static String ownerKey(String kind, Long userId) {
+        return kind + ":user:" + userId;
+    }
+
+    private static String itemKey(String kind, Long id) {
+        return kind + ":" + id;
+    }
+}
@@ -0,0 +1,22 @@
+package server.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ControllerAdvice
+public class ImageRejectedAdvice {
+    @ResponseBody
+    @ExceptionHandler(ImageRejectedException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public Map<String, String> exceptionHandler(ImageRejectedException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("errormessage", exception.getMessage());
+        return errorMap;
+    }
+}
@@ -0,0 +1,7 @@
+package server.exception;
+
+public class ImageRejectedException extends RuntimeException {
+    public ImageRejectedException(String reason) {
+        super("Image rejected: " + reason);
+    }
+}
@@ -0,0 +1,71 @@
+package server.feed;
+
+import server.exception.InvalidCursorException;
+import server.pagination.KeysetCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position of the feed in each of its sources: the last row returned from that source, nothing
+ * yet (null), or {@link #EXHAUSTED} once the source has no rows left.
+ * Clients only ever see the encoded form, like {@link KeysetCursor}.
+ */
+public class FeedCursor {
+
+    public static final KeysetCursor EXHAUSTED = new KeysetCursor(LocalDate.MIN, Long.MIN_VALUE);
+
+    private final KeysetCursor[] positions;
+
+    public FeedCursor(KeysetCursor[] positions) {
+        this.positions = positions;
+    }
+
+    public KeysetCursor position(int source) {
+        return positions[source];
+    }
+
+    public String encode() {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < positions.length; i++) {
+            if (i > 0) {
+                raw.append('|');
+            }
+            KeysetCursor position = positions[i];
+            if (position == EXHAUSTED) {
+                raw.append('x');
+            } else if (position != null) {
+                raw.append(position.getCreatedAt().toEpochDay()).append(':').append(position.getId());
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FeedCursor decode(String cursor, int sources) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != sources) {
+                throw new InvalidCursorException(cursor);
+            }
+            KeysetCursor[] positions = new KeysetCursor[sources];
+            for (int i = 0; i < sources; i++) {
+                String part = parts[i];
+                if (part.equals("x")) {
+                    positions[i] = EXHAUSTED;
+                } else if (!part.isEmpty()) {
+                    int sep = part.indexOf(':');
+                    if (sep < 0) {
+                        throw new InvalidCursorException(cursor);
+                    }
+                    positions[i] = new KeysetCursor(LocalDate.ofEpochDay(Long.parseLong(part.substring(0, sep))),
+                            Long.parseLong(part.substring(sep + 1)));
+                }
+            }
+            return new FeedCursor(positions);
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package server.feed;
+
+import java.time.LocalDate;
+
+/**
+ * One entry of the activity feed: a post, blog or progress row as the list endpoints return it.
+ */
+public class FeedItem {
+
+    private final String type;
+    private final Long id;
+    private final LocalDate createdAt;
+    private final Object item;
+
+    public FeedItem(String type, Long id, LocalDate createdAt, Object item) {
+        this.type = type;
+        this.id = id;
+        this.createdAt = createdAt;
+        this.item = item;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getCreatedAt() {
+        return createdAt;
+    }
+
+    public Object getItem() {
+        return item;
+    }
+}
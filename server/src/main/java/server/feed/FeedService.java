@@ -0,0 +1,158 @@
+package server.feed;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import server.pagination.CursorPage;
+import server.pagination.KeysetCursor;
+import server.repository.BlogRepository;
+import server.repository.BlogSummary;
+import server.repository.LprogressRepository;
+import server.repository.PostRepository;
+import server.repository.PostSummary;
+import server.repository.ProgressSummary;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * The home page feed: posts, blogs and progress entries in one (createdAt desc, id desc) list.
+ * <p>
+ * Each source is read with its own keyset query and the heads are merged through a priority queue.
+ * A source first gets an even share of the page; when its rows run out before the page is full it
+ * is asked for just the remainder (plus one row, to know whether anything follows), so a page never
+ * reads more than it needs from a source that dominates it. The cursor records where the page left
+ * off in every source.
+ */
+@Component
+public class FeedService {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    private List<Source<?>> sources;
+
+    @PostConstruct
+    void init() {
+        sources = List.of(
+                new Source<>("post", 0, postRepository::findFirstPage, postRepository::findPageAfter,
+                        PostSummary::getCreatedAt, PostSummary::getId),
+                new Source<>("blog", 1, blogRepository::findFirstPage, blogRepository::findPageAfter,
+                        BlogSummary::getCreatedAt, BlogSummary::getId),
+                new Source<>("progress", 2, lprogressRepository::findFirstPage, lprogressRepository::findPageAfter,
+                        ProgressSummary::getCreatedAt, ProgressSummary::getId));
+    }
+
+    public CursorPage<FeedItem> page(String cursor, int size) {
+        FeedCursor from = cursor == null || cursor.isEmpty() ? null : FeedCursor.decode(cursor, sources.size());
+        int share = size / sources.size() + 1;
+
+        List<Reader<?>> readers = new ArrayList<>(sources.size());
+        PriorityQueue<Reader<?>> heads = new PriorityQueue<>(NEWEST_FIRST);
+        for (Source<?> source : sources) {
+            Reader<?> reader = new Reader<>(source, from == null ? null : from.position(source.rank));
+            readers.add(reader);
+            if (reader.position != FeedCursor.EXHAUSTED) {
+                reader.fill(share);
+                if (reader.hasNext()) {
+                    heads.add(reader);
+                }
+            }
+        }
+
+        List<FeedItem> items = new ArrayList<>(size);
+        while (items.size() < size && !heads.isEmpty()) {
+            Reader<?> reader = heads.poll();
+            items.add(reader.next());
+            if (!reader.hasNext() && !reader.exhausted) {
+                reader.fill(size - items.size() + 1);
+            }
+            if (reader.hasNext()) {
+                heads.add(reader);
+            }
+        }
+
+        if (heads.isEmpty()) {
+            return new CursorPage<>(items, null);
+        }
+        KeysetCursor[] positions = new KeysetCursor[readers.size()];
+        for (Reader<?> reader : readers) {
+            positions[reader.source.rank] = !reader.hasNext() && reader.exhausted ? FeedCursor.EXHAUSTED : reader.position;
+        }
+        return new CursorPage<>(items, new FeedCursor(positions).encode());
+    }
+
+    // newest first; equal (createdAt, id) pairs from different sources are ordered by source
+    private static final Comparator<Reader<?>> NEWEST_FIRST = Comparator
+            .comparing((Reader<?> r) -> r.headCreatedAt(), Comparator.reverseOrder())
+            .thenComparing(r -> r.headId(), Comparator.reverseOrder())
+            .thenComparingInt(r -> r.source.rank);
+
+    @FunctionalInterface
+    private interface FirstPage<T> {
+        List<T> find(Limit limit);
+    }
+
+    @FunctionalInterface
+    private interface PageAfter<T> {
+        List<T> find(LocalDate createdAt, Long id, Limit limit);
+    }
+
+    private record Source<T>(String type, int rank, FirstPage<T> first, PageAfter<T> after,
+                             Function<T, LocalDate> createdAt, Function<T, Long> id) {
+    }
+
+    private static final class Reader<T> {
+        final Source<T> source;
+        final ArrayDeque<T> buffer = new ArrayDeque<>();
+        // last row handed out (or the cursor's position before that); buffered rows all come after it
+        KeysetCursor position;
+        boolean exhausted;
+
+        Reader(Source<T> source, KeysetCursor position) {
+            this.source = source;
+            this.position = position;
+        }
+
+        // only called with an empty buffer, so the last row handed out is also the last row read
+        void fill(int rows) {
+            List<T> page = position == null
+                    ? source.first.find(Limit.of(rows))
+                    : source.after.find(position.getCreatedAt(), position.getId(), Limit.of(rows));
+            buffer.addAll(page);
+            exhausted = page.size() < rows;
+        }
+
+        boolean hasNext() {
+            return !buffer.isEmpty();
+        }
+
+        LocalDate headCreatedAt() {
+            return source.createdAt.apply(buffer.peekFirst());
+        }
+
+        Long headId() {
+            return source.id.apply(buffer.peekFirst());
+        }
+
+        FeedItem next() {
+            T row = buffer.pollFirst();
+            LocalDate createdAt = source.createdAt.apply(row);
+            Long id = source.id.apply(row);
+            position = new KeysetCursor(createdAt, id);
+            return new FeedItem(source.type, id, createdAt, row);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package server.follow;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import server.config.FollowProperties;
+import server.model.Follow;
+import server.repository.FollowRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who follows whom, held in memory as primitive {@link LongSet}s in both directions and persisted
+ * in the follow table, which is read once at startup.
+ * <p>
+ * Accounts that reach {@code app.follow.celebrity-followers} followers become celebrities for the
+ * rest of the run: their new posts are no longer copied into every follower's timeline but merged
+ * in when a follower reads. Every follower keeps the (short) set of celebrities they follow, so a
+ * read never has to look at the whole following list. Like the other in-memory indexes, the graph
+ * only sees follows made through this instance.
+ */
+@Component
+public class FollowGraph {
+
+    private static final long[] NONE = new long[0];
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private FollowProperties followProperties;
+
+    private final Map<Long, LongSet> following = new ConcurrentHashMap<>();
+    private final Map<Long, LongSet> followers = new ConcurrentHashMap<>();
+    private final Set<Long> celebrities = ConcurrentHashMap.newKeySet();
+    private final Map<Long, LongSet> followedCelebrities = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void load() {
+        long start = System.currentTimeMillis();
+        long after = Long.MIN_VALUE;
+        int edges = 0;
+        while (true) {
+            List<Follow> batch = followRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(followProperties.getLoadBatchSize()));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Follow follow : batch) {
+                addEdge(follow.getFollowerId(), follow.getFolloweeId());
+                after = follow.getId();
+                edges++;
+            }
+        }
+        if (edges > 0) {
+            System.out.println("Loaded " + edges + " follows (" + celebrities.size() + " celebrity accounts) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    // false when the follow already existed
+    public boolean follow(long followerId, long followeeId) {
+        if (isFollowing(followerId, followeeId)) {
+            return false;
+        }
+        try {
+            followRepository.save(new Follow(followerId, followeeId));
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request stored it first
+        }
+        return addEdge(followerId, followeeId);
+    }
+
+    public boolean unfollow(long followerId, long followeeId) {
+        int deleted = followRepository.deleteFollow(followerId, followeeId);
+        return removeEdge(followerId, followeeId) || deleted > 0;
+    }
+
+    public void removeUser(long userId) {
+        followRepository.deleteAllOfUser(userId);
+        for (long followee : following(userId)) {
+            removeEdge(userId, followee);
+        }
+        for (long follower : followers(userId)) {
+            removeEdge(follower, userId);
+        }
+        celebrities.remove(userId);
+    }
+
+    public boolean isFollowing(long followerId, long followeeId) {
+        LongSet set = following.get(followerId);
+        if (set == null) {
+            return false;
+        }
+        synchronized (set) {
+            return set.contains(followeeId);
+        }
+    }
+
+    public boolean isCelebrity(long userId) {
+        return celebrities.contains(userId);
+    }
+
+    public int followerCount(long userId) {
+        return size(followers.get(userId));
+    }
+
+    public int followingCount(long userId) {
+        return size(following.get(userId));
+    }
+
+    // snapshots, safe to iterate while the graph changes
+    public long[] followers(long userId) {
+        return snapshot(followers.get(userId));
+    }
+
+    public long[] following(long userId) {
+        return snapshot(following.get(userId));
+    }
+
+    public long[] followedCelebrities(long userId) {
+        return snapshot(followedCelebrities.get(userId));
+    }
+
+    private synchronized boolean addEdge(long followerId, long followeeId) {
+        if (!add(following, followerId, followeeId)) {
+            return false;
+        }
+        add(followers, followeeId, followerId);
+        if (celebrities.contains(followeeId)) {
+            add(followedCelebrities, followerId, followeeId);
+        } else if (followerCount(followeeId) >= followProperties.getCelebrityFollowers()) {
+            celebrities.add(followeeId);
+            for (long follower : followers(followeeId)) {
+                add(followedCelebrities, follower, followeeId);
+            }
+        }
+        return true;
+    }
+
+    private synchronized boolean removeEdge(long followerId, long followeeId) {
+        if (!remove(following, followerId, followeeId)) {
+            return false;
+        }
+        remove(followers, followeeId, followerId);
+        remove(followedCelebrities, followerId, followeeId);
+        return true;
+    }
+
+    private static boolean add(Map<Long, LongSet> sets, long key, long value) {
+        LongSet set = sets.computeIfAbsent(key, k -> new LongSet());
+        synchronized (set) {
+            return set.add(value);
+        }
+    }
+
+    // only called under the graph's monitor, so an emptied set cannot gain members before it is dropped
+    private static boolean remove(Map<Long, LongSet> sets, long key, long value) {
+        LongSet set = sets.get(key);
+        if (set == null) {
+            return false;
+        }
+        synchronized (set) {
+            if (!set.remove(value)) {
+                return false;
+            }
+            if (set.size() == 0) {
+                sets.remove(key);
+            }
+            return true;
+        }
+    }
+
+    private static int size(LongSet set) {
+        if (set == null) {
+            return 0;
+        }
+        synchronized (set) {
+            return set.size();
+        }
+    }
+
+    private static long[] snapshot(LongSet set) {
+        if (set == null) {
+            return NONE;
+        }
+        synchronized (set) {
+            return set.toArray();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package server.follow;
+
+/**
+ * Open-addressing hash set of positive longs: one {@code long[]}, no boxing and no entry objects,
+ * so a user following thousands of accounts costs about 16 bytes per edge. 0 marks a free slot.
+ * Not thread-safe; {@link FollowGraph} guards every set with its own monitor.
+ */
+final class LongSet {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] slots;
+    private int size;
+
+    LongSet() {
+        slots = new long[4];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long value) {
+        if (value <= 0) {
+            return false; // would match a free slot
+        }
+        int mask = slots.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == 0) {
+                return false;
+            }
+        }
+    }
+
+    boolean add(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Ids must be positive: " + value);
+        }
+        // keep at least a third of the slots free so probe runs stay short
+        if ((size + 1) * 3 > slots.length * 2) {
+            rehash(slots.length * 2);
+        }
+        int mask = slots.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == value) {
+                return false;
+            }
+            if (slot == 0) {
+                slots[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    boolean remove(long value) {
+        if (value <= 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int i = slot(value, mask);
+        while (slots[i] != value) {
+            if (slots[i] == 0) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // backward-shift the rest of the probe run instead of leaving a tombstone
+        int hole = i;
+        for (int j = (hole + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = slot(slots[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                slots[hole] = slots[j];
+                hole = j;
+            }
+        }
+        slots[hole] = 0;
+        size--;
+        if (slots.length > 16 && size * 8 < slots.length) {
+            rehash(slots.length / 2);
+        }
+        return true;
+    }
+
+    long[] toArray() {
+        if (size == 0) {
+            return EMPTY;
+        }
+        long[] values = new long[size];
+        int n = 0;
+        for (long slot : slots) {
+            if (slot != 0) {
+                values[n++] = slot;
+            }
+        }
+        return values;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int i = slot(value, mask);
+                while (slots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = value;
+            }
+        }
+    }
+
+    private static int slot(long value, int mask) {
+        // time-ordered ids differ mostly in their high bits, so mix before masking
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
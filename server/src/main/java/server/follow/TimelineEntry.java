@@ -0,0 +1,27 @@
+package server.follow;
+
+/**
+ * A post or blog in a timeline. {@code ref} packs the kind into the top byte and the id below it;
+ * entries are ordered by (stamp, ref), stamp being the publish time in epoch milliseconds.
+ */
+record TimelineEntry(long stamp, long ref, long author) {
+
+    static final int POST = 0;
+    static final int BLOG = 1;
+
+    static long ref(int kind, long id) {
+        return (long) kind << 56 | id;
+    }
+
+    int kind() {
+        return (int) (ref >>> 56);
+    }
+
+    long id() {
+        return ref & 0x00FF_FFFF_FFFF_FFFFL;
+    }
+
+    boolean isOlderThan(long otherStamp, long otherRef) {
+        return stamp < otherStamp || (stamp == otherStamp && ref < otherRef);
+    }
+}
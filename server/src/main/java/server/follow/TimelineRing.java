@@ -0,0 +1,110 @@
+package server.follow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The newest entries of one timeline, oldest first in three parallel {@code long} arrays used as a
+ * ring. A full ring overwrites its oldest entry. The arrays start small and double up to the
+ * capacity, since most timelines never fill.
+ */
+final class TimelineRing {
+
+    private final int capacity;
+    private long[] stamps;
+    private long[] refs;
+    private long[] authors;
+    // physical index of the oldest entry
+    private int head;
+    private int size;
+
+    TimelineRing(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        int initial = Math.min(8, this.capacity);
+        stamps = new long[initial];
+        refs = new long[initial];
+        authors = new long[initial];
+    }
+
+    synchronized void add(long stamp, long ref, long author) {
+        if (size == stamps.length && stamps.length < capacity) {
+            grow(Math.min(stamps.length * 2, capacity));
+        }
+        if (size == stamps.length) {
+            if (!isOlder(0, stamp, ref)) {
+                // older than everything a full ring keeps
+                return;
+            }
+            head = (head + 1) % stamps.length;
+            size--;
+        }
+        // publishes racing each other can arrive slightly out of order; shift them into place
+        int at = size;
+        while (at > 0 && !isOlder(at - 1, stamp, ref)) {
+            copy(at - 1, at);
+            at--;
+        }
+        int slot = physical(at);
+        stamps[slot] = stamp;
+        refs[slot] = ref;
+        authors[slot] = author;
+        size++;
+    }
+
+    // up to max entries older than (stamp, ref), newest first; binary search, then one step per entry
+    synchronized List<TimelineEntry> before(long stamp, long ref, int max) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (isOlder(mid, stamp, ref)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        List<TimelineEntry> entries = new ArrayList<>(Math.min(max, lo));
+        for (int i = lo - 1; i >= 0 && entries.size() < max; i--) {
+            int slot = physical(i);
+            entries.add(new TimelineEntry(stamps[slot], refs[slot], authors[slot]));
+        }
+        return entries;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private boolean isOlder(int index, long stamp, long ref) {
+        int slot = physical(index);
+        return stamps[slot] < stamp || (stamps[slot] == stamp && refs[slot] < ref);
+    }
+
+    private void copy(int from, int to) {
+        int src = physical(from);
+        int dst = physical(to);
+        stamps[dst] = stamps[src];
+        refs[dst] = refs[src];
+        authors[dst] = authors[src];
+    }
+
+    private int physical(int index) {
+        return (head + index) % stamps.length;
+    }
+
+    private void grow(int length) {
+        long[] newStamps = new long[length];
+        long[] newRefs = new long[length];
+        long[] newAuthors = new long[length];
+        for (int i = 0; i < size; i++) {
+            int slot = physical(i);
+            newStamps[i] = stamps[slot];
+            newRefs[i] = refs[slot];
+            newAuthors[i] = authors[slot];
+        }
+        stamps = newStamps;
+        refs = newRefs;
+        authors = newAuthors;
+        head = 0;
+    }
+}
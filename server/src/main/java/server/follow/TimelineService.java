@@ -0,0 +1,329 @@
+package server.follow;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import server.config.FollowProperties;
+import server.exception.InvalidCursorException;
+import server.feed.FeedItem;
+import server.pagination.CursorPage;
+import server.repository.BlogRepository;
+import server.repository.BlogSummary;
+import server.repository.PostRepository;
+import server.repository.PostSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Personal timelines: the posts and blogs of the accounts a user follows, newest first.
+ * <p>
+ * A new post or blog is pushed into a bounded {@link TimelineRing} of every follower when it is
+ * committed (fan-out on write). Celebrity accounts (see {@link FollowGraph}) only push into their
+ * own outbox ring, which their followers' reads merge in (fan-out on read), so one post never turns
+ * into millions of writes. A page reads at most page size + 1 entries from the reader's timeline
+ * and from each followed celebrity's outbox, plus one batch query per kind to load the rows.
+ * <p>
+ * The rings live in memory only. After a restart they are refilled in the background from the
+ * newest {@code app.follow.warm-up-items} posts and blogs; until that is done each post or blog is
+ * delivered once, whether the warm-up or its publish gets to it first.
+ * <p>
+ * A page loads its rows from the primary: an entry is pushed as soon as its row commits, and a
+ * replica that has not caught up would make a new post look deleted.
+ */
+@Component
+public class TimelineService implements ApplicationRunner {
+
+    @Autowired
+    private FollowProperties followProperties;
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<Long, TimelineRing> timelines = new ConcurrentHashMap<>();
+    private final Map<Long, TimelineRing> outboxes = new ConcurrentHashMap<>();
+    // refs delivered since startup, until the warm-up is done; null afterwards
+    private volatile Set<Long> warmUpDelivered = new HashSet<>();
+    // read-write, so the routing data source sends it to the primary
+    private TransactionTemplate primaryReads;
+
+    @PostConstruct
+    void init() {
+        primaryReads = new TransactionTemplate(transactionManager);
+        primaryReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void postPublished(Long id, Long authorId) {
+        published(TimelineEntry.POST, id, authorId);
+    }
+
+    public void blogPublished(Long id, Long authorId) {
+        published(TimelineEntry.BLOG, id, authorId);
+    }
+
+    public void forgetUser(Long userId) {
+        timelines.remove(userId);
+        outboxes.remove(userId);
+    }
+
+    public CursorPage<FeedItem> page(Long userId, String cursor, int size) {
+        long beforeStamp = Long.MAX_VALUE;
+        long beforeRef = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isEmpty()) {
+            long[] position = decode(cursor);
+            beforeStamp = position[0];
+            beforeRef = position[1];
+        }
+
+        PriorityQueue<Reader> heads = new PriorityQueue<>(NEWEST_FIRST);
+        addReader(heads, timelines.get(userId), true, beforeStamp, beforeRef, size + 1);
+        for (long celebrity : followGraph.followedCelebrities(userId)) {
+            addReader(heads, outboxes.get(celebrity), false, beforeStamp, beforeRef, size + 1);
+        }
+
+        List<TimelineEntry> entries = new ArrayList<>(size);
+        Set<Long> seen = new HashSet<>();
+        while (entries.size() < size && !heads.isEmpty()) {
+            Reader reader = heads.poll();
+            TimelineEntry entry = reader.next();
+            // unfollowed accounts stay in the ring until their entries age out
+            boolean keep = (!reader.inbox || followGraph.isFollowing(userId, entry.author())) && seen.add(entry.ref());
+            if (keep) {
+                entries.add(entry);
+            }
+            if (!reader.hasNext() && !reader.exhausted) {
+                reader.fill(size - entries.size() + 1);
+            }
+            if (reader.hasNext()) {
+                heads.add(reader);
+            }
+        }
+
+        List<FeedItem> items = primaryReads.execute(status -> load(entries));
+        if (heads.isEmpty() || entries.isEmpty()) {
+            return new CursorPage<>(items, null);
+        }
+        TimelineEntry last = entries.get(entries.size() - 1);
+        return new CursorPage<>(items, encode(last.stamp(), last.ref()));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (followProperties.getWarmUpItems() <= 0) {
+            warmUpDelivered = null;
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "timeline-warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        try {
+            Limit limit = Limit.of(followProperties.getWarmUpItems());
+            List<TimelineEntry> entries = new ArrayList<>();
+            for (PostSummary post : postRepository.findFirstPage(limit)) {
+                if (post.getUser() != null) {
+                    entries.add(new TimelineEntry(stampOf(post.getCreatedAt()), TimelineEntry.ref(TimelineEntry.POST, post.getId()), post.getUser().getId()));
+                }
+            }
+            for (BlogSummary blog : blogRepository.findFirstPage(limit)) {
+                if (blog.getUser() != null) {
+                    entries.add(new TimelineEntry(stampOf(blog.getCreatedAt()), TimelineEntry.ref(TimelineEntry.BLOG, blog.getId()), blog.getUser().getId()));
+                }
+            }
+            // oldest first, so the rings append instead of shifting
+            entries.sort(Comparator.comparingLong(TimelineEntry::stamp).thenComparingLong(TimelineEntry::ref));
+            for (TimelineEntry entry : entries) {
+                deliverOnce(entry.stamp(), entry.ref(), entry.author());
+            }
+            if (!entries.isEmpty()) {
+                System.out.println("Filled timelines from " + entries.size() + " posts and blogs in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        } catch (Exception e) {
+            System.err.println("Timeline warm-up stopped: " + e.getMessage());
+        } finally {
+            warmUpDelivered = null;
+        }
+    }
+
+    private void published(int kind, Long id, Long authorId) {
+        if (id == null || authorId == null) {
+            return;
+        }
+        long ref = TimelineEntry.ref(kind, id);
+        // before the commit, a follower could see an id that does not exist yet (or never will)
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliverOnce(System.currentTimeMillis(), ref, authorId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliverOnce(System.currentTimeMillis(), ref, authorId);
+            }
+        });
+    }
+
+    // a row committed while the warm-up runs can also be in its query, with a different stamp
+    private void deliverOnce(long stamp, long ref, long author) {
+        Set<Long> delivered = warmUpDelivered;
+        if (delivered == null) {
+            deliver(stamp, ref, author);
+            return;
+        }
+        synchronized (delivered) {
+            if (delivered.add(ref)) {
+                deliver(stamp, ref, author);
+            }
+        }
+    }
+
+    private void deliver(long stamp, long ref, long author) {
+        if (followGraph.isCelebrity(author)) {
+            ring(outboxes, author).add(stamp, ref, author);
+            return;
+        }
+        for (long follower : followGraph.followers(author)) {
+            ring(timelines, follower).add(stamp, ref, author);
+        }
+    }
+
+    private TimelineRing ring(Map<Long, TimelineRing> rings, long userId) {
+        return rings.computeIfAbsent(userId, id -> new TimelineRing(followProperties.getTimelineCapacity()));
+    }
+
+    private void addReader(PriorityQueue<Reader> heads, TimelineRing ring, boolean inbox,
+                           long beforeStamp, long beforeRef, int rows) {
+        if (ring == null) {
+            return;
+        }
+        Reader reader = new Reader(ring, inbox, beforeStamp, beforeRef);
+        reader.fill(rows);
+        if (reader.hasNext()) {
+            heads.add(reader);
+        }
+    }
+
+    // rows deleted since they were published are left out
+    private List<FeedItem> load(List<TimelineEntry> entries) {
+        List<Long> postIds = new ArrayList<>();
+        List<Long> blogIds = new ArrayList<>();
+        for (TimelineEntry entry : entries) {
+            (entry.kind() == TimelineEntry.POST ? postIds : blogIds).add(entry.id());
+        }
+        Map<Long, PostSummary> posts = postIds.isEmpty() ? Map.of()
+                : postRepository.findSummariesByIdIn(postIds).stream().collect(Collectors.toMap(PostSummary::getId, Function.identity()));
+        Map<Long, BlogSummary> blogs = blogIds.isEmpty() ? Map.of()
+                : blogRepository.findSummariesByIdIn(blogIds).stream().collect(Collectors.toMap(BlogSummary::getId, Function.identity()));
+
+        List<FeedItem> items = new ArrayList<>(entries.size());
+        for (TimelineEntry entry : entries) {
+            if (entry.kind() == TimelineEntry.POST) {
+                PostSummary post = posts.get(entry.id());
+                if (post != null) {
+                    items.add(new FeedItem("post", post.getId(), post.getCreatedAt(), post));
+                }
+            } else {
+                BlogSummary blog = blogs.get(entry.id());
+                if (blog != null) {
+                    items.add(new FeedItem("blog", blog.getId(), blog.getCreatedAt(), blog));
+                }
+            }
+        }
+        return items;
+    }
+
+    private static long stampOf(LocalDate date) {
+        return date == null ? 0 : date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private static String encode(long stamp, long ref) {
+        String raw = stamp + ":" + ref;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep < 0) {
+                throw new InvalidCursorException(cursor);
+            }
+            return new long[]{Long.parseLong(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1))};
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    private static final Comparator<Reader> NEWEST_FIRST = Comparator
+            .comparingLong((Reader r) -> r.buffer.peekFirst().stamp()).reversed()
+            .thenComparing(Comparator.comparingLong((Reader r) -> r.buffer.peekFirst().ref()).reversed());
+
+    private static final class Reader {
+        final TimelineRing ring;
+        final boolean inbox;
+        final ArrayDeque<TimelineEntry> buffer = new ArrayDeque<>();
+        long stamp;
+        long ref;
+        boolean exhausted;
+
+        Reader(TimelineRing ring, boolean inbox, long stamp, long ref) {
+            this.ring = ring;
+            this.inbox = inbox;
+            this.stamp = stamp;
+            this.ref = ref;
+        }
+
+        // only called with an empty buffer, so (stamp, ref) is also the last entry read
+        void fill(int rows) {
+            List<TimelineEntry> entries = ring.before(stamp, ref, rows);
+            buffer.addAll(entries);
+            exhausted = entries.size() < rows;
+        }
+
+        boolean hasNext() {
+            return !buffer.isEmpty();
+        }
+
+        TimelineEntry next() {
+            TimelineEntry entry = buffer.pollFirst();
+            stamp = entry.stamp();
+            ref = entry.ref();
+            return entry;
+        }
+    }
+}
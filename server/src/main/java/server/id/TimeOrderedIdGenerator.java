@@ -0,0 +1,41 @@
+package server.id;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate side of {@link TimeOrderedId}. All entities share one {@link TimeOrderedIds}; the node
+ * comes from the {@code app.id-node} Hibernate setting ({@code spring.jpa.properties.app.id-node}),
+ * which must differ between instances writing to the same database.
+ * <p>
+ * The id is known before the insert, unlike an identity column, so Hibernate can batch inserts.
+ */
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+    public static final String NODE_SETTING = "app.id-node";
+
+    // one counter per node for the whole process, however many entities and session factories use it
+    private static final Map<Integer, TimeOrderedIds> BY_NODE = new ConcurrentHashMap<>();
+
+    private TimeOrderedIds ids = BY_NODE.computeIfAbsent(0, TimeOrderedIds::new);
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        Object node = serviceRegistry.requireService(ConfigurationService.class).getSettings().get(NODE_SETTING);
+        if (node != null) {
+            ids = BY_NODE.computeIfAbsent(Integer.parseInt(node.toString().trim()), TimeOrderedIds::new);
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner) {
+        return ids.nextId();
+    }
+}
@@ -0,0 +1,60 @@
+package server.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered 53-bit ids: 41 bits of milliseconds since 2024-01-01 UTC, 5 bits of node id and 7
+ * bits of sequence. They fit a JavaScript number, so the frontend reads them without rounding,
+ * and they sort in creation order across nodes as far as the clocks agree, which the keyset
+ * pages and the id-ordered backfills rely on.
+ * <p>
+ * Handing one out is a compare-and-set on a counter, with no database round trip. When the 128
+ * ids of a millisecond run out, or the clock steps back, ids continue from the last one handed
+ * out, so they never repeat or go backwards within a process.
+ */
+public final class TimeOrderedIds {
+
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    public static final int NODE_BITS = 5;
+    public static final int SEQUENCE_BITS = 7;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final int TIME_BITS = 41;
+
+    private final long node;
+    private final LongSupplier clock;
+    // last (time << SEQUENCE_BITS | sequence) handed out; the node bits are added on the way out
+    private final AtomicLong last = new AtomicLong();
+
+    public TimeOrderedIds(int node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    public TimeOrderedIds(int node, LongSupplier clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Id node must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = last.get();
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            // a full sequence carries into the time bits, borrowing the next millisecond
+            long next = now > previous >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : previous + 1;
+            if (last.compareAndSet(previous, next)) {
+                long time = next >>> SEQUENCE_BITS;
+                if (time >>> TIME_BITS != 0) {
+                    throw new IllegalStateException("Id time bits exhausted");
+                }
+                return time << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | next & ((1 << SEQUENCE_BITS) - 1);
+            }
+        }
+    }
+
+    public static long millisOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+}
@@ -0,0 +1,86 @@
+package server.importer;
+
+/**
+ * One entry of a bulk import manifest: the post fields plus the name of its file among the
+ * uploaded parts or inside the ZIP. {@code key} identifies the item across runs of the import
+ * and defaults to the file name.
+ */
+public class ImportItem {
+
+    private String key;
+    private String file;
+    private String name;
+    private String topic;
+    private String description;
+    private String status;
+    private String tag;
+    private String createdAt; // yyyy-MM-dd, as for POST /post
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    String effectiveKey() {
+        return key != null && !key.isBlank() ? key : file;
+    }
+}
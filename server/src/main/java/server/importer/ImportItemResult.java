@@ -0,0 +1,37 @@
+package server.importer;
+
+public class ImportItemResult {
+
+    public static final String IMPORTED = "imported";
+    // committed by an earlier run of the same import
+    public static final String SKIPPED = "skipped";
+    public static final String FAILED = "failed";
+
+    private final String key;
+    private final String status;
+    private final Long postId;
+    private final String error;
+
+    public ImportItemResult(String key, String status, Long postId, String error) {
+        this.key = key;
+        this.status = status;
+        this.postId = postId;
+        this.error = error;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
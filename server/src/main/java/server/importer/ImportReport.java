@@ -0,0 +1,39 @@
+package server.importer;
+
+import java.util.List;
+
+public class ImportReport {
+
+    private final String importId;
+    private final List<ImportItemResult> items;
+
+    public ImportReport(String importId, List<ImportItemResult> items) {
+        this.importId = importId;
+        this.items = items;
+    }
+
+    // send this back with the same manifest to resume an interrupted import
+    public String getImportId() {
+        return importId;
+    }
+
+    public long getImported() {
+        return count(ImportItemResult.IMPORTED);
+    }
+
+    public long getSkipped() {
+        return count(ImportItemResult.SKIPPED);
+    }
+
+    public long getFailed() {
+        return count(ImportItemResult.FAILED);
+    }
+
+    public List<ImportItemResult> getItems() {
+        return items;
+    }
+
+    private long count(String status) {
+        return items.stream().filter(item -> status.equals(item.getStatus())).count();
+    }
+}
@@ -0,0 +1,284 @@
+package server.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import server.config.ImportProperties;
+import server.config.MediaProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the multipart body of {@code POST /post/import} itself. The container's limits
+ * ({@code spring.servlet.multipart.*}) are sized for requests carrying one image, and it checks
+ * them only after writing a part to disk in full. This filter caps every part while it streams
+ * in: "files" parts by {@code app.media.max-upload-bytes}, the "archive" part and form fields by
+ * {@code app.import.*}, and the whole upload by {@code app.import.max-request-bytes}. The parts
+ * are handed on through {@link HttpServletRequest#getParts()}, so the controller binds them as usual.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ImportUploadFilter extends OncePerRequestFilter {
+
+    static final String IMPORT_PATH = "/post/import";
+    static final String ARCHIVE_PART = "archive";
+
+    @Autowired
+    private ImportProperties importProperties;
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return !"POST".equals(request.getMethod())
+                || !IMPORT_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))
+                || contentType == null
+                || !contentType.toLowerCase(Locale.ROOT).startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        List<SpooledPart> parts = new ArrayList<>();
+        try {
+            try {
+                read(request, parts);
+            } catch (MultipartReader.LimitExceededException e) {
+                reject(response, HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+                return;
+            } catch (IOException | IllegalArgumentException e) {
+                reject(response, HttpStatus.BAD_REQUEST, "Malformed import upload: " + e.getMessage());
+                return;
+            }
+            chain.doFilter(new ImportRequest(request, parts), response);
+        } finally {
+            for (SpooledPart part : parts) {
+                part.delete();
+            }
+        }
+    }
+
+    private void read(HttpServletRequest request, List<SpooledPart> parts) throws IOException {
+        String boundary = MediaType.parseMediaType(request.getContentType()).getParameter("boundary");
+        if (boundary == null || boundary.isEmpty()) {
+            throw new IllegalArgumentException("no multipart boundary");
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        MultipartReader reader = new MultipartReader(request.getInputStream(), boundary);
+        long remaining = importProperties.getMaxRequestBytes();
+        for (Map<String, String> headers = reader.nextPart(); headers != null; headers = reader.nextPart()) {
+            ContentDisposition disposition = ContentDisposition.parse(headers.getOrDefault("content-disposition", ""));
+            if (disposition.getName() == null) {
+                throw new IllegalArgumentException("part without a name");
+            }
+            SpooledPart part = new SpooledPart(disposition.getName(), disposition.getFilename(), headers);
+            parts.add(part);
+            long limit = part.filename == null ? importProperties.getMaxFieldBytes()
+                    : ARCHIVE_PART.equals(part.name) ? importProperties.getMaxArchiveBytes()
+                    : mediaProperties.getMaxUploadBytes();
+            long cap = Math.min(limit, remaining);
+            try {
+                remaining -= part.fill(reader, cap);
+            } catch (MultipartReader.LimitExceededException e) {
+                throw new MultipartReader.LimitExceededException(cap < limit
+                        ? "Import larger than " + importProperties.getMaxRequestBytes() + " bytes"
+                        : "Part \"" + part.name + "\" larger than " + limit + " bytes");
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("errormessage", message));
+    }
+
+    /**
+     * A part read ahead of the handler: form fields in memory, files in a temp file.
+     */
+    private static final class SpooledPart implements Part {
+
+        final String name;
+        final String filename;
+        private final Map<String, String> headers;
+        private byte[] bytes;
+        private Path file;
+        private long size;
+
+        SpooledPart(String name, String filename, Map<String, String> headers) {
+            this.name = name;
+            this.filename = filename;
+            this.headers = headers;
+        }
+
+        long fill(MultipartReader reader, long limit) throws IOException {
+            if (filename == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                size = reader.readBody(out, limit);
+                bytes = out.toByteArray();
+            } else {
+                file = Files.createTempFile("post-import-", ".part");
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    size = reader.readBody(out, limit);
+                }
+            }
+            return size;
+        }
+
+        String text() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public String getContentType() {
+            return headers.get("content-type");
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getSubmittedFileName() {
+            return filename;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public void write(String fileName) throws IOException {
+            try (InputStream in = getInputStream()) {
+                Files.copy(in, Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        @Override
+        public void delete() throws IOException {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name) {
+            String value = getHeader(name);
+            return value == null ? List.of() : List.of(value);
+        }
+
+        @Override
+        public Collection<String> getHeaderNames() {
+            return headers.keySet();
+        }
+    }
+
+    /**
+     * Serves the spooled parts, and the form fields among them as request parameters. The body has
+     * been read, so the container only parses the query string.
+     */
+    private static final class ImportRequest extends HttpServletRequestWrapper {
+
+        private final List<SpooledPart> parts;
+        private final Map<String, String[]> parameters = new LinkedHashMap<>();
+
+        ImportRequest(HttpServletRequest request, List<SpooledPart> parts) {
+            super(request);
+            this.parts = parts;
+            parameters.putAll(request.getParameterMap());
+            for (SpooledPart part : parts) {
+                if (part.filename == null) {
+                    String[] values = parameters.getOrDefault(part.name, new String[0]);
+                    String[] added = new String[values.length + 1];
+                    System.arraycopy(values, 0, added, 0, values.length);
+                    added[values.length] = part.text();
+                    parameters.put(part.name, added);
+                }
+            }
+        }
+
+        @Override
+        public Collection<Part> getParts() {
+            return Collections.unmodifiableList(parts);
+        }
+
+        @Override
+        public Part getPart(String name) {
+            for (SpooledPart part : parts) {
+                if (part.name.equals(name)) {
+                    return part;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            String[] values = parameters.get(name);
+            return values == null || values.length == 0 ? null : values[0];
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return Collections.unmodifiableMap(parameters);
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(parameters.keySet());
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return parameters.get(name);
+        }
+    }
+}
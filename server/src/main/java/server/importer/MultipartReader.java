@@ -0,0 +1,160 @@
+package server.importer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a multipart/form-data body one part at a time, straight from the request stream, so the
+ * caller decides per part how much it accepts while the bytes arrive.
+ */
+final class MultipartReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+    private static final int MAX_HEADERS = 32;
+
+    private final InputStream in;
+    // CRLF "--" boundary; the body starts with "--" boundary, so a CRLF is put in front of it
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int end;
+    // the preamble counts as the body of a part before the first
+    private boolean inBody = true;
+    private boolean finished;
+
+    MultipartReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        end = 2;
+    }
+
+    /**
+     * Skips what is left of the current part (the preamble, the first time) and reads the headers
+     * of the next one.
+     *
+     * @return the next part's headers with lower-cased names, or null after the last part
+     */
+    Map<String, String> nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (inBody) {
+            readBody(OutputStream.nullOutputStream(), Long.MAX_VALUE);
+        }
+        if (!fill(2)) {
+            throw new EOFException("Multipart body ends without its closing boundary");
+        }
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        String rest = readLine();
+        if (!rest.isBlank()) {
+            throw new IOException("Malformed multipart boundary line");
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0 || headers.size() == MAX_HEADERS) {
+                throw new IOException("Malformed multipart part header");
+            }
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        inBody = true;
+        return headers;
+    }
+
+    /**
+     * Copies the current part's body to {@code out}, stopping at the next boundary.
+     *
+     * @throws LimitExceededException once the body is longer than {@code limit}; the request is
+     *                                then left unread
+     */
+    long readBody(OutputStream out, long limit) throws IOException {
+        long copied = 0;
+        while (true) {
+            int found = indexOfDelimiter();
+            int available = found >= 0 ? found - pos : Math.max(0, end - pos - (delimiter.length - 1));
+            if (copied + available > limit) {
+                throw new LimitExceededException("Part larger than " + limit + " bytes");
+            }
+            out.write(buffer, pos, available);
+            copied += available;
+            pos += available;
+            if (found >= 0) {
+                pos += delimiter.length;
+                inBody = false;
+                return copied;
+            }
+            if (!fill(delimiter.length)) {
+                throw new EOFException("Multipart body ends inside a part");
+            }
+        }
+    }
+
+    private int indexOfDelimiter() {
+        outer:
+        for (int i = pos; i <= end - delimiter.length; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    // makes at least min unread bytes available; false at the end of the stream
+    private boolean fill(int min) throws IOException {
+        if (end - pos >= min) {
+            return true;
+        }
+        System.arraycopy(buffer, pos, buffer, 0, end - pos);
+        end -= pos;
+        pos = 0;
+        while (end < min) {
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                return false;
+            }
+            end += read;
+        }
+        return true;
+    }
+
+    // browsers send file names in part headers as raw UTF-8
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true) {
+            if (!fill(1)) {
+                throw new EOFException("Multipart body ends inside the part headers");
+            }
+            byte b = buffer[pos++];
+            if (b == '\n') {
+                String text = line.toString(StandardCharsets.UTF_8);
+                return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+            }
+            if (line.size() == MAX_HEADER_LINE) {
+                throw new IOException("Multipart part header too long");
+            }
+            line.write(b);
+        }
+    }
+
+    static final class LimitExceededException extends IOException {
+        LimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package server.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import server.config.ImportProperties;
+import server.etag.VersionStamps;
+import server.follow.TimelineService;
+import server.exception.InvalidImportException;
+import server.media.ImagePlaceholders;
+import server.media.MediaDirectories;
+import server.media.MediaStore;
+import server.media.NearDuplicateIndex;
+import server.model.ImportRecord;
+import server.model.PostModel;
+import server.model.UserModel;
+import server.ownership.OwnershipCache;
+import server.repository.ImportRecordRepository;
+import server.repository.PostRepository;
+import server.search.SearchService;
+import server.tag.TagService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Turns a manifest plus its photos, uploaded as parts or as one ZIP, into posts. Files are stored
+ * by a small worker pool while the request thread waits; the posts are then inserted a chunk per
+ * transaction, each chunk going out as JDBC batches.
+ * <p>
+ * Every inserted post gets an {@link ImportRecord} in the same transaction. Sending the same
+ * manifest with the returned import id again reports the recorded items as skipped and imports
+ * only the rest, so an interrupted import is resumed by simply repeating it.
+ */
+@Component
+public class PostImporter {
+
+    private static final int MAX_IMPORT_ID_LENGTH = 64;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    @Autowired
+    private ImportProperties importProperties;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private ImportRecordRepository importRecordRepository;
+
+    @Autowired
+    private OwnershipCache ownershipCache;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private ImagePlaceholders imagePlaceholders;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private VersionStamps versionStamps;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ExecutorService workers;
+    private TransactionTemplate tx;
+
+    interface ImportFile {
+        InputStream open() throws IOException;
+    }
+
+    private static final class Pending {
+        final int index;
+        final String key;
+        final ImportItem item;
+        final LocalDate createdAt;
+        final ImportFile file;
+        String image;
+        String placeholder;
+        // set once, by the store task when it hands its image over or by the request thread when it
+        // gives up waiting; whichever comes second owns the stored image and releases it
+        final AtomicBoolean settled = new AtomicBoolean();
+
+        Pending(int index, String key, ImportItem item, LocalDate createdAt, ImportFile file) {
+            this.index = index;
+            this.key = key;
+            this.item = item;
+            this.createdAt = createdAt;
+            this.file = file;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(1, importProperties.getWorkers()), task -> {
+            Thread thread = new Thread(task, "post-import-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Manifest items name their file by the part's original filename.
+     */
+    public ImportReport importFiles(Long userId, String importId, String manifest, List<MultipartFile> files) {
+        Map<String, ImportFile> byName = new HashMap<>();
+        if (files != null) {
+            for (MultipartFile file : files) {
+                if (file.getOriginalFilename() != null && !file.isEmpty()) {
+                    byName.put(file.getOriginalFilename(), file::getInputStream);
+                }
+            }
+        }
+        return run(userId, importId, manifest, byName);
+    }
+
+    /**
+     * Manifest items name their file by its path in the archive, or by its bare name when that is
+     * unique. Entries are read straight from the archive by the workers.
+     */
+    public ImportReport importArchive(Long userId, String importId, String manifest, MultipartFile archive) throws IOException {
+        Path copy = Files.createTempFile("post-import-", ".zip");
+        try {
+            archive.transferTo(copy);
+            try (ZipFile zip = new ZipFile(copy.toFile())) {
+                Map<String, ImportFile> byName = new HashMap<>();
+                Set<String> ambiguous = new HashSet<>();
+                for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    ImportFile file = () -> zip.getInputStream(entry);
+                    byName.put(entry.getName(), file);
+                    String baseName = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                    if (!baseName.equals(entry.getName()) && byName.putIfAbsent(baseName, file) != null) {
+                        ambiguous.add(baseName);
+                    }
+                }
+                ambiguous.forEach(byName::remove);
+                return run(userId, importId, manifest, byName);
+            } catch (ZipException e) {
+                throw new InvalidImportException("Archive is not a readable ZIP: " + e.getMessage());
+            }
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    private ImportReport run(Long userId, String importId, String manifestJson, Map<String, ImportFile> files) {
+        ownershipCache.requireUser(userId);
+        List<ImportItem> manifest = parse(manifestJson);
+        String id = importId == null || importId.isBlank() ? UUID.randomUUID().toString() : importId.trim();
+        if (id.length() > MAX_IMPORT_ID_LENGTH) {
+            throw new InvalidImportException("Import id longer than " + MAX_IMPORT_ID_LENGTH + " characters");
+        }
+
+        Map<String, Long> done = new HashMap<>();
+        for (ImportRecord record : importRecordRepository.findByUserIdAndImportId(userId, id)) {
+            done.put(record.getItemKey(), record.getPostId());
+        }
+
+        ImportItemResult[] results = new ImportItemResult[manifest.size()];
+        List<Pending> pending = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < manifest.size(); i++) {
+            ImportItem item = manifest.get(i);
+            String key = item.effectiveKey();
+            if (key == null || key.isBlank()) {
+                results[i] = failed(null, "Item has neither key nor file");
+            } else if (!keys.add(key)) {
+                results[i] = failed(key, "Duplicate item key");
+            } else if (done.containsKey(key)) {
+                results[i] = new ImportItemResult(key, ImportItemResult.SKIPPED, done.get(key), null);
+            } else if (item.getName() == null || item.getName().isBlank()) {
+                results[i] = failed(key, "Name is required");
+            } else if (item.getFile() == null || !files.containsKey(item.getFile())) {
+                results[i] = failed(key, "File not uploaded: " + item.getFile());
+            } else {
+                try {
+                    LocalDate createdAt = LocalDate.parse(String.valueOf(item.getCreatedAt()), DATE);
+                    pending.add(new Pending(i, key, item, createdAt, files.get(item.getFile())));
+                } catch (DateTimeParseException e) {
+                    results[i] = failed(key, "Invalid createdAt date format. Use YYYY-MM-DD.");
+                }
+            }
+        }
+
+        List<Future<?>> stores = new ArrayList<>(pending.size());
+        for (Pending item : pending) {
+            stores.add(workers.submit(() -> {
+                store(item);
+                if (!item.settled.compareAndSet(false, true)) {
+                    mediaStore.release(MediaDirectories.POST_DIR, item.image);
+                }
+                return null;
+            }));
+        }
+        List<Pending> stored = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            Pending item = pending.get(i);
+            try {
+                stores.get(i).get();
+                stored.add(item);
+            } catch (ExecutionException e) {
+                results[item.index] = failed(item.key, "Failed to store file: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // nothing is inserted for this and the remaining items, so none may keep its image
+                for (int j = i; j < pending.size(); j++) {
+                    Pending abandoned = pending.get(j);
+                    stores.get(j).cancel(true);
+                    if (!abandoned.settled.compareAndSet(false, true)) {
+                        mediaStore.release(MediaDirectories.POST_DIR, abandoned.image);
+                    }
+                    results[abandoned.index] = failed(abandoned.key, "Import interrupted");
+                }
+                break;
+            }
+        }
+
+        int chunkSize = Math.max(1, importProperties.getChunkSize());
+        for (int from = 0; from < stored.size(); from += chunkSize) {
+            insertChunk(userId, id, stored.subList(from, Math.min(stored.size(), from + chunkSize)), results);
+        }
+        return new ImportReport(id, Arrays.asList(results));
+    }
+
+    private List<ImportItem> parse(String manifestJson) {
+        List<ImportItem> manifest;
+        try {
+            manifest = manifestJson == null ? null : objectMapper.readValue(manifestJson, new TypeReference<List<ImportItem>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new InvalidImportException("Invalid manifest: " + e.getOriginalMessage());
+        }
+        if (manifest == null || manifest.isEmpty()) {
+            throw new InvalidImportException("Manifest has no items");
+        }
+        if (manifest.size() > importProperties.getMaxItems()) {
+            throw new InvalidImportException("Manifest has more than " + importProperties.getMaxItems() + " items");
+        }
+        return manifest;
+    }
+
+    private void store(Pending item) throws IOException {
+        try (InputStream in = item.file.open()) {
+            item.image = mediaStore.store(in);
+        }
+        item.placeholder = imagePlaceholders.compute(MediaDirectories.POST_DIR, item.image);
+    }
+
+    private void insertChunk(Long userId, String importId, List<Pending> chunk, ImportItemResult[] results) {
+        List<PostModel> posts;
+        try {
+            posts = insert(userId, importId, chunk);
+        } catch (RuntimeException e) {
+            // one bad row rolls back the whole chunk; retry its items alone so only that one fails
+            for (Pending item : chunk) {
+                insertAlone(userId, importId, item, results);
+            }
+            return;
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            imported(chunk.get(i), posts.get(i), results);
+        }
+    }
+
+    private void insertAlone(Long userId, String importId, Pending item, ImportItemResult[] results) {
+        PostModel post;
+        try {
+            post = insert(userId, importId, List.of(item)).get(0);
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent run of the same import got there first
+            mediaStore.release(MediaDirectories.POST_DIR, item.image);
+            results[item.index] = importRecordRepository.findByUserIdAndImportIdAndItemKey(userId, importId, item.key)
+                    .map(record -> new ImportItemResult(item.key, ImportItemResult.SKIPPED, record.getPostId(), null))
+                    .orElseGet(() -> failed(item.key, "Failed to save post: " + e.getMostSpecificCause().getMessage()));
+            return;
+        } catch (RuntimeException e) {
+            mediaStore.release(MediaDirectories.POST_DIR, item.image);
+            results[item.index] = failed(item.key, "Failed to save post: " + e.getMessage());
+            return;
+        }
+        imported(item, post, results);
+    }
+
+    private List<PostModel> insert(Long userId, String importId, List<Pending> chunk) {
+        return tx.execute(status -> {
+            UserModel user = ownershipCache.userReference(userId);
+            List<PostModel> posts = new ArrayList<>(chunk.size());
+            for (Pending item : chunk) {
+                PostModel post = new PostModel();
+                post.setName(item.item.getName());
+                post.setTopic(item.item.getTopic());
+                post.setDescription(item.item.getDescription());
+                post.setStatus(item.item.getStatus());
+                post.setTag(item.item.getTag());
+                post.setImage(item.image);
+                post.setPlaceholder(item.placeholder);
+                post.setCreatedAt(item.createdAt);
+                post.setUpdatedAt(item.createdAt);
+                post.setUser(user);
+                posts.add(post);
+            }
+            // ids are assigned in memory, so both lists go out as batched inserts at the next flush
+            postRepository.saveAll(posts);
+            List<ImportRecord> records = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                records.add(new ImportRecord(userId, importId, chunk.get(i).key, posts.get(i).getId()));
+            }
+            importRecordRepository.saveAll(records);
+            // the tags commit with their posts, so a post is never imported without them
+            for (PostModel post : posts) {
+                tagService.assign(TagService.POST, post.getId(), userId, post.getCreatedAt(), post.getTag());
+            }
+            versionStamps.changed(VersionStamps.POST, null, userId);
+            for (PostModel post : posts) {
+                timelineService.postPublished(post.getId(), userId);
+            }
+            return posts;
+        });
+    }
+
+    private void imported(Pending item, PostModel post, ImportItemResult[] results) {
+        results[item.index] = new ImportItemResult(item.key, ImportItemResult.IMPORTED, post.getId(), null);
+        try {
+            searchService.index(post);
+            nearDuplicateIndex.register(MediaDirectories.POST_DIR, post.getImage());
+        } catch (RuntimeException e) {
+            // the post is committed, so it still counts as imported
+            System.err.println("Imported post " + post.getId() + " but failed to update its caches: " + e.getMessage());
+        }
+    }
+
+    private static ImportItemResult failed(String key, String error) {
+        return new ImportItemResult(key, ImportItemResult.FAILED, null, error);
+    }
+}
@@ -0,0 +1,177 @@
+package server.media;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory multi-index hash over 64-bit perceptual hashes. Each hash is filed under its four
+ * 16-bit chunks in four tables of 65536 buckets. Two hashes within Hamming distance 7 differ in at
+ * most one bit in at least one chunk (pigeonhole), so a query only compares against the buckets of
+ * its own chunks and their one-bit neighbours, 68 buckets instead of every hash. Larger distances
+ * fall back to a linear scan.
+ * <p>
+ * Hashes and names sit in flat arrays and buckets hold int slots: about 100 bytes per entry
+ * including the name lookup map, plus the name strings.
+ */
+public final class HammingIndex {
+
+    public static final int MAX_INDEXED_DISTANCE = 7;
+    private static final int TABLES = 4;
+    private static final int CHUNK_BITS = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] hashes = new long[1024];
+    private String[] names = new String[1024];
+    private int slotCount;
+    private int live;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final int[][][] buckets = new int[TABLES][1 << CHUNK_BITS][];
+    private final int[][] bucketSizes = new int[TABLES][1 << CHUNK_BITS];
+
+    public record Match(String name, long hash, int distance) {
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Adds or replaces the hash for a name.
+     */
+    public void put(String name, long hash) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slots.get(name);
+            if (existing != null) {
+                if (hashes[existing] == hash) {
+                    return;
+                }
+                names[existing] = null;
+                live--;
+            }
+            if (slotCount == hashes.length) {
+                hashes = Arrays.copyOf(hashes, slotCount * 2);
+                names = Arrays.copyOf(names, slotCount * 2);
+            }
+            int slot = slotCount++;
+            hashes[slot] = hash;
+            names[slot] = name;
+            slots.put(name, slot);
+            live++;
+            for (int table = 0; table < TABLES; table++) {
+                int value = chunkOf(hash, table);
+                int[] bucket = buckets[table][value];
+                int size = bucketSizes[table][value];
+                if (bucket == null) {
+                    bucket = new int[4];
+                } else if (size == bucket.length) {
+                    bucket = Arrays.copyOf(bucket, size * 2);
+                }
+                bucket[size] = slot;
+                buckets[table][value] = bucket;
+                bucketSizes[table][value] = size + 1;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removed slots stay in their buckets and are skipped by queries.
+     */
+    public void remove(String name) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(name);
+            if (slot != null) {
+                names[slot] = null;
+                live--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Long get(String name) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(name);
+            return slot == null ? null : hashes[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every indexed hash within {@code maxDistance} of {@code hash}, including an exact match.
+     */
+    public List<Match> search(long hash, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (maxDistance > MAX_INDEXED_DISTANCE) {
+                for (int slot = 0; slot < slotCount; slot++) {
+                    collect(matches, slot, hash, maxDistance);
+                }
+                return matches;
+            }
+            for (int table = 0; table < TABLES; table++) {
+                int value = chunkOf(hash, table);
+                for (int flip = -1; flip < CHUNK_BITS; flip++) {
+                    int probe = flip < 0 ? value : value ^ (1 << flip);
+                    int[] bucket = buckets[table][probe];
+                    int size = bucketSizes[table][probe];
+                    for (int i = 0; i < size; i++) {
+                        int slot = bucket[i];
+                        // report each slot once: from the first table whose chunk is within one bit
+                        if (distance(hash, hashes[slot]) <= maxDistance && firstNearTable(hash, hashes[slot]) == table) {
+                            collect(matches, slot, hash, maxDistance);
+                        }
+                    }
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(List<Match> matches, int slot, long hash, int maxDistance) {
+        String name = names[slot];
+        if (name == null) {
+            return;
+        }
+        int distance = distance(hash, hashes[slot]);
+        if (distance <= maxDistance) {
+            matches.add(new Match(name, hashes[slot], distance));
+        }
+    }
+
+    private static int firstNearTable(long a, long b) {
+        long diff = a ^ b;
+        for (int table = 0; table < TABLES; table++) {
+            if (Integer.bitCount(chunkOf(diff, table)) <= 1) {
+                return table;
+            }
+        }
+        return -1;
+    }
+
+    private static int chunkOf(long value, int table) {
+        return (int) (value >>> (table * CHUNK_BITS)) & 0xFFFF;
+    }
+}
@@ -0,0 +1,141 @@
+package server.media;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import server.config.MediaProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the bytes of frequently requested images in memory so hot portfolio images are served
+ * without touching the disk. The cache is bounded by total bytes, not entries, and uses Caffeine's
+ * W-TinyLFU admission, so a burst of one-off requests cannot push out the images that are viewed
+ * all the time. Bytes live in direct buffers, outside the Java heap; only files up to
+ * {@code app.media.cache-max-entry-bytes} are cached, larger ones are streamed from disk. Packed
+ * images are already memory-mapped and are served from their segment without a copy.
+ * <p>
+ * Stored files never change, so invalidation only matters when a file is released or deleted, to
+ * hand its memory back early.
+ */
+@Component
+public class HotImageCache {
+
+    // rough per-entry cost of the key, buffer object and cache node on top of the bytes
+    private static final int ENTRY_OVERHEAD = 256;
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    private Cache<String, CachedImage> cache;
+    private long maxEntryBytes;
+
+    @PostConstruct
+    void init() {
+        maxEntryBytes = Math.min(mediaProperties.getCacheMaxEntryBytes(), Integer.MAX_VALUE - ENTRY_OVERHEAD);
+        cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(0, mediaProperties.getCacheMaxBytes()))
+                .weigher((String path, CachedImage image) -> image.bytes.capacity() + ENTRY_OVERHEAD)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Response for an image resolved by {@link MediaStore#resolve}, from memory when possible.
+     */
+    public ResponseEntity<Resource> serve(MediaEntry entry) {
+        File file = entry.getFile();
+        if (file == null) {
+            ByteBuffer bytes = entry.getBytes();
+            return ImageResponses.of(new ByteBufferResource(bytes, entry.getKey()),
+                    entry.getName(), bytes.remaining(), entry.lastModified(), entry.isStandIn());
+        }
+        String key = entry.getKey();
+        if (cache.policy().getIfPresentQuietly(key) == null && file.length() > maxEntryBytes) {
+            return ImageResponses.of(file, entry.isStandIn());
+        }
+        CachedImage image;
+        try {
+            image = cache.get(key, k -> load(file));
+        } catch (UncheckedIOException e) {
+            System.err.println("Failed to cache image " + file.getName() + ": " + e.getMessage());
+            image = null;
+        }
+        if (image == null) {
+            return ImageResponses.of(file, entry.isStandIn());
+        }
+        return ImageResponses.of(new ByteBufferResource(image.bytes, key),
+                file.getName(), image.bytes.capacity(), image.lastModified, entry.isStandIn());
+    }
+
+    /**
+     * Drops an image and its variants.
+     */
+    public void invalidate(MediaStorage directory, String name) {
+        List<String> keys = new ArrayList<>();
+        keys.add(MediaEntry.keyOf(directory.getBase(), name));
+        for (int width : mediaProperties.getVariantWidths()) {
+            keys.add(MediaEntry.keyOf(directory.getBase(), ImageVariantService.variantName(name, width)));
+        }
+        cache.invalidateAll(keys);
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("weightedBytes", cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        result.put("maxBytes", mediaProperties.getCacheMaxBytes());
+        result.put("maxEntryBytes", maxEntryBytes);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("evictionBytes", stats.evictionWeight());
+        result.put("loadFailures", stats.loadFailureCount());
+        return result;
+    }
+
+    /**
+     * @return null when the file is gone or grew past the entry limit, which Caffeine treats as "do not store"
+     */
+    private CachedImage load(File file) {
+        Path path = file.toPath();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxEntryBytes) {
+                return null;
+            }
+            long lastModified = file.lastModified();
+            ByteBuffer bytes = ByteBuffer.allocateDirect((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                // read until full or EOF
+            }
+            bytes.flip();
+            return new CachedImage(bytes.asReadOnlyBuffer(), lastModified);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record CachedImage(ByteBuffer bytes, long lastModified) {
+    }
+}
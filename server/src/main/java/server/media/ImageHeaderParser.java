@@ -0,0 +1,388 @@
+package server.media;
+
+import server.model.PhotoMetadata;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads dimensions and EXIF camera settings from the start of an image stream without decoding
+ * any pixels. Reading stops at the first pixel data (JPEG SOF / PNG IDAT), so for a caller that
+ * copies the stream while parsing, only the headers have been consumed when this returns.
+ * <p>
+ * Understands JPEG (APP1 Exif), PNG (IHDR, eXIf), GIF, BMP and WebP dimensions. Never throws on
+ * malformed input: whatever was read before the problem is returned.
+ */
+public final class ImageHeaderParser {
+
+    // APP1 and eXIf payloads larger than this are skipped rather than buffered
+    private static final int MAX_EXIF_BYTES = 256 * 1024;
+    private static final int MAX_PNG_CHUNKS = 1024;
+    private static final DateTimeFormatter EXIF_DATE = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    private ImageHeaderParser() {
+    }
+
+    /**
+     * @return what was found, or null when the stream is not an image format known here
+     */
+    public static PhotoMetadata parse(InputStream in) throws IOException {
+        Reader reader = new Reader(in);
+        PhotoMetadata metadata = new PhotoMetadata();
+        try {
+            int b0 = reader.u8();
+            int b1 = reader.u8();
+            if (b0 == 0xFF && b1 == 0xD8) {
+                metadata.setFormat("jpeg");
+                parseJpeg(reader, metadata);
+            } else if (b0 == 0x89 && b1 == 'P') {
+                metadata.setFormat("png");
+                parsePng(reader, metadata);
+            } else if (b0 == 'G' && b1 == 'I') {
+                metadata.setFormat("gif");
+                reader.skip(4);
+                metadata.setWidth(reader.u16le());
+                metadata.setHeight(reader.u16le());
+            } else if (b0 == 'B' && b1 == 'M') {
+                metadata.setFormat("bmp");
+                parseBmp(reader, metadata);
+            } else if (b0 == 'R' && b1 == 'I') {
+                parseWebp(reader, metadata);
+            }
+        } catch (EOFException e) {
+            // truncated header: keep what was read
+        }
+        return metadata.getFormat() == null ? null : metadata;
+    }
+
+    private static void parseJpeg(Reader reader, PhotoMetadata metadata) throws IOException {
+        while (true) {
+            int marker = reader.u8();
+            if (marker != 0xFF) {
+                return; // not at a marker: corrupt
+            }
+            while (marker == 0xFF) {
+                marker = reader.u8(); // fill bytes
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                return; // end of image / start of scan: no frame header seen
+            }
+            if ((marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) {
+                continue; // no length field
+            }
+            int length = reader.u16be() - 2;
+            if (length < 0) {
+                return;
+            }
+            if (marker == 0xE1 && length >= 6 && length <= MAX_EXIF_BYTES && metadata.getCameraModel() == null) {
+                byte[] segment = reader.bytes(length);
+                if (segment[0] == 'E' && segment[1] == 'x' && segment[2] == 'i' && segment[3] == 'f'
+                        && segment[4] == 0 && segment[5] == 0) {
+                    parseTiff(segment, 6, metadata);
+                }
+            } else if (isStartOfFrame(marker) && length >= 5) {
+                reader.skip(1); // sample precision
+                metadata.setHeight(reader.u16be());
+                metadata.setWidth(reader.u16be());
+                return; // Exif always precedes the frame header
+            } else {
+                reader.skip(length);
+            }
+        }
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static void parsePng(Reader reader, PhotoMetadata metadata) throws IOException {
+        reader.skip(6); // rest of the signature
+        for (int i = 0; i < MAX_PNG_CHUNKS; i++) {
+            long length = reader.u32be();
+            String type = reader.ascii(4);
+            if (length > Integer.MAX_VALUE) {
+                return;
+            }
+            if ("IHDR".equals(type) && length >= 8) {
+                metadata.setWidth((int) Math.min(Integer.MAX_VALUE, reader.u32be()));
+                metadata.setHeight((int) Math.min(Integer.MAX_VALUE, reader.u32be()));
+                reader.skip(length - 8 + 4);
+            } else if ("eXIf".equals(type) && length <= MAX_EXIF_BYTES) {
+                parseTiff(reader.bytes((int) length), 0, metadata);
+                reader.skip(4);
+            } else if ("IDAT".equals(type) || "IEND".equals(type)) {
+                return; // eXIf must come before the image data
+            } else {
+                reader.skip(length + 4);
+            }
+        }
+    }
+
+    private static void parseBmp(Reader reader, PhotoMetadata metadata) throws IOException {
+        reader.skip(12); // file size, reserved, pixel offset
+        long headerSize = reader.u32le();
+        if (headerSize == 12) {
+            metadata.setWidth(reader.u16le());
+            metadata.setHeight(reader.u16le());
+        } else {
+            metadata.setWidth(Math.abs((int) reader.u32le()));
+            metadata.setHeight(Math.abs((int) reader.u32le())); // negative for top-down bitmaps
+        }
+    }
+
+    private static void parseWebp(Reader reader, PhotoMetadata metadata) throws IOException {
+        if (!"FF".equals(reader.ascii(2))) {
+            return;
+        }
+        reader.skip(4);
+        if (!"WEBP".equals(reader.ascii(4))) {
+            return;
+        }
+        metadata.setFormat("webp");
+        String chunk = reader.ascii(4);
+        reader.skip(4); // chunk size
+        switch (chunk) {
+            case "VP8X" -> {
+                reader.skip(4); // flags, reserved
+                metadata.setWidth(reader.u24le() + 1);
+                metadata.setHeight(reader.u24le() + 1);
+            }
+            case "VP8L" -> {
+                reader.skip(1); // signature
+                long bits = reader.u32le();
+                metadata.setWidth((int) (bits & 0x3FFF) + 1);
+                metadata.setHeight((int) ((bits >> 14) & 0x3FFF) + 1);
+            }
+            case "VP8 " -> {
+                reader.skip(6); // frame tag, start code
+                metadata.setWidth(reader.u16le() & 0x3FFF);
+                metadata.setHeight(reader.u16le() & 0x3FFF);
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Reads IFD0 and the Exif sub-IFD of a TIFF structure starting at {@code base}. Offsets are
+     * bounds-checked, so a hostile segment can only end the parse early.
+     */
+    private static void parseTiff(byte[] data, int base, PhotoMetadata metadata) {
+        Tiff tiff = new Tiff(data, base);
+        if (!tiff.valid()) {
+            return;
+        }
+        long exifOffset = -1;
+        int ifd0 = (int) tiff.u32(4);
+        int entries = tiff.entryCount(ifd0);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd0 + 2 + i * 12;
+            switch (tiff.u16(entry)) {
+                case 0x010F -> metadata.setCameraMake(tiff.string(entry, 64));
+                case 0x0110 -> metadata.setCameraModel(tiff.string(entry, 64));
+                case 0x0132 -> {
+                    if (metadata.getCapturedAt() == null) {
+                        metadata.setCapturedAt(date(tiff.string(entry, 32)));
+                    }
+                }
+                case 0x8769 -> exifOffset = tiff.u32(entry + 8);
+                default -> {
+                }
+            }
+        }
+        if (exifOffset <= 0 || exifOffset == ifd0) {
+            return;
+        }
+        int exif = (int) Math.min(Integer.MAX_VALUE, exifOffset);
+        entries = tiff.entryCount(exif);
+        for (int i = 0; i < entries; i++) {
+            int entry = exif + 2 + i * 12;
+            switch (tiff.u16(entry)) {
+                case 0x829A -> metadata.setExposureTime(tiff.rational(entry));
+                case 0x829D -> metadata.setAperture(tiff.rational(entry));
+                case 0x8827 -> metadata.setIso(tiff.integer(entry));
+                case 0x9003 -> {
+                    LocalDateTime original = date(tiff.string(entry, 32));
+                    if (original != null) {
+                        metadata.setCapturedAt(original);
+                    }
+                }
+                case 0x920A -> metadata.setFocalLength(tiff.rational(entry));
+                case 0xA434 -> metadata.setLens(tiff.string(entry, 128));
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static LocalDateTime date(String value) {
+        if (value == null || value.length() < 19) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.substring(0, 19), EXIF_DATE);
+        } catch (DateTimeParseException e) {
+            return null; // "0000:00:00 00:00:00" and friends
+        }
+    }
+
+    /**
+     * Sequential reads over the source stream; skipping reads through, so a copying stream
+     * underneath sees every byte.
+     */
+    private static final class Reader {
+
+        private final InputStream in;
+        private final byte[] scratch = new byte[8192];
+
+        Reader(InputStream in) {
+            this.in = in;
+        }
+
+        int u8() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            return b;
+        }
+
+        int u16be() throws IOException {
+            return (u8() << 8) | u8();
+        }
+
+        int u16le() throws IOException {
+            return u8() | (u8() << 8);
+        }
+
+        int u24le() throws IOException {
+            return u8() | (u8() << 8) | (u8() << 16);
+        }
+
+        long u32be() throws IOException {
+            return ((long) u16be() << 16) | u16be();
+        }
+
+        long u32le() throws IOException {
+            return u16le() | ((long) u16le() << 16);
+        }
+
+        String ascii(int length) throws IOException {
+            return new String(bytes(length), StandardCharsets.ISO_8859_1);
+        }
+
+        byte[] bytes(int length) throws IOException {
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length < length) {
+                throw new EOFException();
+            }
+            return bytes;
+        }
+
+        void skip(long length) throws IOException {
+            while (length > 0) {
+                int n = in.read(scratch, 0, (int) Math.min(scratch.length, length));
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                length -= n;
+            }
+        }
+    }
+
+    private static final class Tiff {
+
+        private final byte[] data;
+        private final int base;
+        private final boolean littleEndian;
+
+        Tiff(byte[] data, int base) {
+            this.data = data;
+            this.base = base;
+            this.littleEndian = data.length >= base + 2 && data[base] == 'I' && data[base + 1] == 'I';
+        }
+
+        boolean valid() {
+            return data.length >= base + 8 && (littleEndian || (data[base] == 'M' && data[base + 1] == 'M')) && u16(2) == 42;
+        }
+
+        int entryCount(int ifd) {
+            if (ifd < 8 || !inBounds(ifd, 2)) {
+                return 0;
+            }
+            int count = u16(ifd);
+            // only the entries actually present in the buffer
+            return Math.max(0, Math.min(count, (data.length - base - ifd - 2) / 12));
+        }
+
+        int u16(int offset) {
+            if (!inBounds(offset, 2)) {
+                return -1;
+            }
+            int a = data[base + offset] & 0xFF;
+            int b = data[base + offset + 1] & 0xFF;
+            return littleEndian ? a | (b << 8) : (a << 8) | b;
+        }
+
+        long u32(int offset) {
+            if (!inBounds(offset, 4)) {
+                return -1;
+            }
+            long hi = u16(offset + (littleEndian ? 2 : 0));
+            long lo = u16(offset + (littleEndian ? 0 : 2));
+            return (hi << 16) | lo;
+        }
+
+        Integer integer(int entry) {
+            int type = u16(entry + 2);
+            long value = type == 3 ? u16(entry + 8) : type == 4 ? u32(entry + 8) : -1;
+            return value < 0 ? null : (int) Math.min(Integer.MAX_VALUE, value);
+        }
+
+        Double rational(int entry) {
+            int type = u16(entry + 2);
+            if (type != 5 && type != 10) {
+                return null;
+            }
+            int offset = (int) Math.min(Integer.MAX_VALUE, u32(entry + 8));
+            long numerator = u32(offset);
+            long denominator = u32(offset + 4);
+            if (type == 10) {
+                numerator = (int) numerator;
+                denominator = (int) denominator;
+            }
+            if (numerator < 0 && type == 5 || denominator <= 0) {
+                return null;
+            }
+            return numerator / (double) denominator;
+        }
+
+        String string(int entry, int maxLength) {
+            if (u16(entry + 2) != 2) {
+                return null;
+            }
+            long count = u32(entry + 4);
+            if (count <= 0) {
+                return null;
+            }
+            int length = (int) Math.min(count, maxLength);
+            int offset = count <= 4 ? entry + 8 : (int) Math.min(Integer.MAX_VALUE, u32(entry + 8));
+            if (!inBounds(offset, length)) {
+                return null;
+            }
+            String value = new String(data, base + offset, length, StandardCharsets.UTF_8);
+            int nul = value.indexOf('\0');
+            value = (nul >= 0 ? value.substring(0, nul) : value).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private boolean inBounds(long offset, int length) {
+            return offset >= 0 && base + offset + length <= data.length;
+        }
+    }
+}
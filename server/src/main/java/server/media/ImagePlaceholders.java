@@ -0,0 +1,29 @@
+package server.media;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Computes the BlurHash placeholder stored next to an entity's image, so list responses carry
+ * something the client can paint before the image itself arrives.
+ */
+@Component
+public class ImagePlaceholders {
+
+    @Autowired
+    private ImageSampler imageSampler;
+
+    /**
+     * @return the placeholder, or null when the image is missing or not decodable
+     */
+    public String compute(String legacyDir, String name) {
+        BufferedImage sample = imageSampler.sample(legacyDir, name);
+        if (sample == null) {
+            return null;
+        }
+        boolean portrait = sample.getHeight() > sample.getWidth();
+        return BlurHash.encode(sample, portrait ? 3 : 4, portrait ? 4 : 3);
+    }
+}
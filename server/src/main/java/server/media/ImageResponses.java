@@ -0,0 +1,50 @@
+package server.media;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds image responses with validators and cache headers.
+ * Stored image names are never reused (content hash or millis prefix), so the bytes behind a URL never change and
+ * the response can be cached as immutable. The one exception is an original standing in for a resized variant
+ * that is not generated yet: the {@code ?w=} URL will serve the variant later, so that response must be
+ * revalidated. Spring MVC answers If-None-Match / If-Modified-Since
+ * with 304 and Range requests with 206 on its own, given the ETag and Last-Modified set here.
+ */
+public final class ImageResponses {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePublic()
+            .immutable();
+    // the ETag names the original, so revalidation switches to the variant as soon as it exists
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
+    private ImageResponses() {
+    }
+
+    public static ResponseEntity<Resource> of(File file, boolean standIn) {
+        return of(new FileSystemResource(file), file.getName(), file.length(), file.lastModified(), standIn);
+    }
+
+    public static ResponseEntity<Resource> of(Resource body, String name, long length, long lastModified, boolean standIn) {
+        return ResponseEntity.ok()
+                .contentType(MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .eTag(etag(name, length, lastModified))
+                .lastModified(lastModified)
+                .cacheControl(standIn ? REVALIDATE : IMMUTABLE)
+                .body(body);
+    }
+
+    static String etag(String name, long length, long lastModified) {
+        // strong validator: name + size + mtime identify the bytes of an immutable file
+        return "\"" + Integer.toHexString(name.hashCode()) + "-" + Long.toHexString(length)
+                + "-" + Long.toHexString(lastModified) + "\"";
+    }
+}
@@ -0,0 +1,80 @@
+package server.media;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import server.config.MediaProperties;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes a stored image at roughly 64px for placeholders and perceptual hashes, reading every
+ * n-th pixel of every n-th row so large photos stay cheap in memory and time.
+ */
+@Component
+public class ImageSampler {
+
+    private static final int SAMPLE_SIZE = 64;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private MediaDirectories mediaDirectories;
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    /**
+     * @return the sample, or null when the image is missing or not decodable
+     */
+    public BufferedImage sample(String legacyDir, String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        MediaEntry entry = mediaDirectories.get(mediaStore.dirOf(legacyDir, name)).get(name);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = entry.openStream()) {
+            return readSubsampled(in);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to sample image " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private BufferedImage readSubsampled(InputStream in) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            if (stream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // images stored before upload checks existed are not trusted to be sane
+                if ((long) width * height > mediaProperties.getMaxImagePixels()) {
+                    return null;
+                }
+                int step = Math.max(1, Math.max(width, height) / SAMPLE_SIZE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package server.media;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import server.config.MediaProperties;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates resized copies of uploaded images next to the original, named {@code w<width>_<filename>},
+ * and picks the best copy to serve for a requested width.
+ * Resizing runs on a small bounded pool so an upload request never waits for it; if the pool is
+ * saturated the job is dropped and redone the first time a variant is asked for.
+ */
+@Component
+public class ImageVariantService {
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    @Autowired
+    private MediaDirectories mediaDirectories;
+
+    private ThreadPoolExecutor executor;
+    private List<Integer> widths;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // originals already processed, including those too small for any variant; one that falls out
+    // is only decoded again the next time a width it has no variant for is asked for
+    private final Cache<String, Boolean> completed = Caffeine.newBuilder().maximumSize(100_000).build();
+
+    @PostConstruct
+    void start() {
+        widths = mediaProperties.getVariantWidths().stream().sorted().toList();
+        AtomicInteger threadCount = new AtomicInteger();
+        int workers = Math.max(1, mediaProperties.getVariantWorkers());
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, mediaProperties.getVariantQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public static String variantName(String filename, int width) {
+        return "w" + width + "_" + filename;
+    }
+
+    /**
+     * Queues variant generation for a freshly stored original. Never blocks the caller.
+     */
+    public void scheduleVariants(String dir, String filename) {
+        String key = dir + filename;
+        if (completed.getIfPresent(key) != null || !pending.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateVariants(mediaDirectories.get(dir), filename);
+                    completed.put(key, Boolean.TRUE);
+                } catch (Exception e) {
+                    System.err.println("Failed to generate variants for " + filename + ": " + e.getMessage());
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            System.err.println("Variant queue full, skipping " + filename);
+        }
+    }
+
+    /**
+     * Returns the smallest variant at least {@code requestedWidth} wide, or the original when no
+     * such variant exists (the original is smaller, or resizing has not finished yet, in which case
+     * it is marked {@link MediaEntry#isStandIn()}); null when the original does not exist. Answered
+     * from the directory index, without touching the disk.
+     */
+    public MediaEntry resolve(String dir, String filename, Integer requestedWidth) {
+        MediaStorage directory = mediaDirectories.get(dir);
+        MediaEntry original = directory.get(filename);
+        if (original == null) {
+            return null;
+        }
+        if (requestedWidth == null || requestedWidth <= 0) {
+            return original;
+        }
+        for (int width : widths) {
+            if (width < requestedWidth) {
+                continue;
+            }
+            MediaEntry variant = directory.get(variantName(filename, width));
+            if (variant != null) {
+                return variant;
+            }
+            if (completed.getIfPresent(dir + filename) != null) {
+                // too small for this width: the original is the final answer
+                break;
+            }
+            // images uploaded before the pipeline existed get their variants on first request
+            scheduleVariants(dir, filename);
+            return original.asStandIn();
+        }
+        return original;
+    }
+
+    /**
+     * @return bytes freed
+     */
+    public long deleteVariants(String dir, String filename) {
+        MediaStorage directory = mediaDirectories.get(dir);
+        completed.invalidate(dir + filename);
+        long freed = 0;
+        for (int width : widths) {
+            String variant = variantName(filename, width);
+            try {
+                freed += directory.delete(variant);
+            } catch (IOException e) {
+                System.out.println("Failed to delete variant " + variant + ": " + e.getMessage());
+            }
+        }
+        return freed;
+    }
+
+    private void generateVariants(MediaStorage directory, String filename) throws IOException {
+        String format = formatOf(filename);
+        MediaEntry original = directory.get(filename);
+        if (format == null || original == null) {
+            return;
+        }
+        BufferedImage source;
+        try (InputStream in = original.openStream()) {
+            source = read(in);
+        }
+        if (source == null) {
+            return;
+        }
+        for (int width : widths) {
+            if (width >= source.getWidth()) {
+                break;
+            }
+            String name = variantName(filename, width);
+            if (directory.contains(name)) {
+                continue;
+            }
+            BufferedImage resized = resize(source, width, "png".equals(format));
+            // write under a temp name and hand over, so a half-written variant is never served
+            Path tmp = directory.getBase().resolve(".tmp_" + name);
+            if (!ImageIO.write(resized, format, tmp.toFile())) {
+                Files.deleteIfExists(tmp);
+                return;
+            }
+            directory.put(name, tmp);
+        }
+    }
+
+    /**
+     * Decodes the whole image unless it is over the pixel limit. Uploads whose header the upload
+     * check could not read reach this point unchecked.
+     */
+    private BufferedImage read(InputStream in) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            if (stream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > mediaProperties.getMaxImagePixels()) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Downscales in halving steps before the final bilinear pass; a single bilinear step from a
+     * large original aliases badly.
+     */
+    static BufferedImage resize(BufferedImage source, int targetWidth, boolean keepAlpha) {
+        int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int w = source.getWidth();
+        do {
+            w = Math.max(targetWidth, w / 2);
+            int h = Math.max(1, (int) Math.round(source.getHeight() * (w / (double) source.getWidth())));
+            BufferedImage step = new BufferedImage(w, h, type);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (w != targetWidth);
+        return current;
+    }
+
+    private static String formatOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String ext = filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return switch (ext) {
+            case "jpg", "jpeg" -> "jpg";
+            case "png" -> "png";
+            case "bmp" -> "bmp";
+            default -> null; // no ImageIO writer (webp, avif...) or lossy to re-encode (gif): serve original
+        };
+    }
+}
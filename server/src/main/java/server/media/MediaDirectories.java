@@ -0,0 +1,95 @@
+package server.media;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import server.config.MediaProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link MediaStorage} behind each upload directory string used by the controllers.
+ * Configured directories are indexed at startup; any other directory is indexed on first use.
+ * <p>
+ * The store directory is a {@link PackStorage} when {@code app.media.storage=pack}, or when it
+ * already holds pack segments (so switching back to files keeps serving packed images). The legacy
+ * directories only ever lose files and stay one file per image.
+ */
+@Component
+public class MediaDirectories {
+
+    // pre-store upload directories: post images in one, progress and blog images in the other;
+    // the controllers, backfills, importer and exporter all name them through these two constants
+    public static final String POST_DIR = "src/main/post/";
+    public static final String UPLOAD_DIR = "src/main/uploads/";
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    private final Map<String, MediaStorage> directories = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void scanAll() {
+        List<String> dirs = new ArrayList<>(List.of(POST_DIR, UPLOAD_DIR));
+        dirs.add(mediaProperties.getStoreDir());
+        long start = System.currentTimeMillis();
+        for (String dir : dirs) {
+            get(dir);
+        }
+        System.out.println("Indexed media directories " + dirs + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @PreDestroy
+    void closeAll() {
+        for (MediaStorage storage : directories.values()) {
+            try {
+                storage.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close " + storage.getBase() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public MediaStorage get(String dir) {
+        return directories.computeIfAbsent(normalize(dir), key -> {
+            try {
+                return open(key);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to index " + key, e);
+            }
+        });
+    }
+
+    /**
+     * Every directory in use, keyed by the directory string the controllers pass in.
+     */
+    public Map<String, MediaStorage> all() {
+        return Map.copyOf(directories);
+    }
+
+    private MediaStorage open(String dir) throws IOException {
+        Path base = Paths.get(dir);
+        ShardedDirectory files = new ShardedDirectory(base);
+        boolean packing = "pack".equalsIgnoreCase(mediaProperties.getStorage());
+        if (dir.equals(normalize(mediaProperties.getStoreDir())) && (packing || PackStorage.exists(base))) {
+            PackStorage pack = new PackStorage(base, files, packing,
+                    mediaProperties.getPackMaxEntryBytes(), mediaProperties.getPackSegmentBytes());
+            pack.open();
+            return pack;
+        }
+        files.scan();
+        return files;
+    }
+
+    private static String normalize(String dir) {
+        return dir.endsWith("/") ? dir : dir + "/";
+    }
+}
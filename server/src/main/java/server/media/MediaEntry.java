@@ -0,0 +1,95 @@
+package server.media;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A stored image as returned by {@link MediaStorage#get}: either a file of its own or a read-only
+ * slice of a memory-mapped pack segment.
+ */
+public final class MediaEntry {
+
+    private final String name;
+    private final String key;
+    private final Path file;
+    private final ByteBuffer bytes;
+    private final long lastModified;
+    private final boolean standIn;
+
+    private MediaEntry(String name, String key, Path file, ByteBuffer bytes, long lastModified, boolean standIn) {
+        this.name = name;
+        this.key = key;
+        this.file = file;
+        this.bytes = bytes;
+        this.lastModified = lastModified;
+        this.standIn = standIn;
+    }
+
+    static MediaEntry ofFile(Path base, String name, Path file) {
+        return new MediaEntry(name, keyOf(base, name), file, null, 0, false);
+    }
+
+    static MediaEntry ofBytes(Path base, String name, ByteBuffer bytes, long lastModified) {
+        return new MediaEntry(name, keyOf(base, name), null, bytes.asReadOnlyBuffer(), lastModified, false);
+    }
+
+    /**
+     * The same image, served in place of a variant that does not exist yet.
+     */
+    MediaEntry asStandIn() {
+        return new MediaEntry(name, key, file, bytes, lastModified, true);
+    }
+
+    /**
+     * Stable identity of the image regardless of where its bytes sit, used as the hot cache key.
+     */
+    static String keyOf(Path base, String name) {
+        return base.resolve(name).toString();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * True when this is the original answering for a variant that is still being generated, so
+     * the same URL will serve different bytes later.
+     */
+    public boolean isStandIn() {
+        return standIn;
+    }
+
+    /**
+     * The file holding the bytes, or null when the image is packed.
+     */
+    public File getFile() {
+        return file == null ? null : file.toFile();
+    }
+
+    /**
+     * The mapped bytes, or null when the image is a file of its own.
+     */
+    public ByteBuffer getBytes() {
+        return bytes == null ? null : bytes.duplicate();
+    }
+
+    public long length() {
+        return file == null ? bytes.remaining() : file.toFile().length();
+    }
+
+    public long lastModified() {
+        return file == null ? lastModified : file.toFile().lastModified();
+    }
+
+    public InputStream openStream() throws IOException {
+        return file == null ? new ByteBufferResource(bytes, key).getInputStream() : Files.newInputStream(file);
+    }
+}
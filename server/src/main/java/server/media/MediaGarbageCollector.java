@@ -0,0 +1,219 @@
+package server.media;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import server.config.MediaProperties;
+import server.model.MediaBlob;
+import server.model.MediaDeletion;
+import server.repository.BlogRepository;
+import server.repository.LprogressRepository;
+import server.repository.MediaBlobRepository;
+import server.repository.MediaDeletionRepository;
+import server.repository.PostRepository;
+import server.repository.videoRepositery;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes media files off the request path.
+ * <ul>
+ *   <li>{@link #processQueue()} drains {@link MediaDeletion} rows in batches, re-checking that
+ *   nothing references a file before removing it and its variants.</li>
+ *   <li>{@link #reconcile()} compares what is on disk with the image columns of posts, blogs,
+ *   progress entries and videos, corrects drifted reference counts and queues orphans, e.g. files
+ *   left behind when a DB save failed after the upload was written.</li>
+ *   <li>{@link #compactPacks()} gives the space of deleted packed images back to the filesystem.</li>
+ * </ul>
+ */
+@Component
+public class MediaGarbageCollector {
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private MediaDirectories mediaDirectories;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private MediaDeletionRepository mediaDeletionRepository;
+
+    @Autowired
+    private MediaBlobRepository mediaBlobRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    @Autowired
+    private videoRepositery videoRepositery;
+
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private final AtomicLong deletedFiles = new AtomicLong();
+    private final AtomicLong keptFiles = new AtomicLong();
+    private final AtomicLong orphansQueued = new AtomicLong();
+    private volatile LocalDateTime lastSweep;
+    private volatile LocalDateTime lastReconcile;
+
+    /**
+     * @return bytes reclaimed by this run
+     */
+    @Scheduled(fixedDelayString = "${app.media.gc-interval-ms:60000}", initialDelayString = "${app.media.gc-interval-ms:60000}")
+    public synchronized long processQueue() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(mediaProperties.getGcDelaySeconds());
+        long reclaimed = 0;
+        int deleted = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            List<MediaDeletion> batch = mediaDeletionRepository.findByEnqueuedAtBeforeOrderByIdAsc(
+                    cutoff, Limit.of(mediaProperties.getGcBatchSize()));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (MediaDeletion deletion : batch) {
+                long freed = isReferenced(deletion.getName()) ? -1 : mediaStore.purge(deletion.getDir(), deletion.getName());
+                if (freed < 0) {
+                    keptFiles.incrementAndGet();
+                } else {
+                    nearDuplicateIndex.remove(deletion.getName());
+                    reclaimed += freed;
+                    deleted++;
+                }
+            }
+            mediaDeletionRepository.deleteAllInBatch(batch);
+        }
+        lastSweep = LocalDateTime.now();
+        if (deleted > 0) {
+            reclaimedBytes.addAndGet(reclaimed);
+            deletedFiles.addAndGet(deleted);
+            System.out.println("Media GC deleted " + deleted + " files, reclaimed " + reclaimed + " bytes");
+        }
+        return reclaimed;
+    }
+
+    /**
+     * @return number of orphan files queued for deletion
+     */
+    @Scheduled(fixedDelayString = "${app.media.reconcile-interval-ms:3600000}", initialDelayString = "${app.media.reconcile-initial-delay-ms:600000}")
+    public synchronized int reconcile() {
+        Map<String, Long> references = referenceCounts();
+        Map<String, MediaBlob> blobs = mediaBlobRepository.findAll().stream()
+                .collect(Collectors.toMap(MediaBlob::getMediaKey, Function.identity()));
+        LocalDateTime graceCutoff = LocalDateTime.now().minusMinutes(mediaProperties.getGcOrphanGraceMinutes());
+        long graceMillis = System.currentTimeMillis() - mediaProperties.getGcOrphanGraceMinutes() * 60_000L;
+        String storeRoot = mediaStore.getRoot();
+        int queued = 0;
+
+        for (Map.Entry<String, MediaStorage> entry : mediaDirectories.all().entrySet()) {
+            String dir = entry.getKey();
+            MediaStorage directory = entry.getValue();
+            for (String name : directory.names()) {
+                boolean orphan;
+                if (ShardedDirectory.isVariant(name)) {
+                    orphan = !directory.contains(ShardedDirectory.originalOf(name));
+                } else {
+                    long actual = references.getOrDefault(name, 0L);
+                    MediaBlob blob = dir.equals(storeRoot) ? blobs.get(name) : null;
+                    if (blob != null) {
+                        if (blob.getLastAcquiredAt() != null && blob.getLastAcquiredAt().isAfter(graceCutoff)) {
+                            continue; // an upload may still be saving the row that refers to it
+                        }
+                        if (blob.getRefCount() != actual) {
+                            System.out.println("Media GC: refCount of " + name + " was " + blob.getRefCount() + ", actual " + actual);
+                            mediaBlobRepository.setRefCount(name, actual);
+                        }
+                    }
+                    orphan = actual == 0;
+                }
+                if (orphan && olderThan(directory.get(name), graceMillis)
+                        && !mediaDeletionRepository.existsByDirAndName(dir, name)) {
+                    mediaDeletionRepository.save(new MediaDeletion(dir, name, LocalDateTime.now()));
+                    queued++;
+                }
+            }
+        }
+        lastReconcile = LocalDateTime.now();
+        orphansQueued.addAndGet(queued);
+        System.out.println("Media GC reconcile queued " + queued + " orphan files");
+        return queued;
+    }
+
+    /**
+     * @return number of pack segments rewritten
+     */
+    @Scheduled(fixedDelayString = "${app.media.pack-compact-interval-ms:3600000}", initialDelayString = "${app.media.pack-compact-interval-ms:3600000}")
+    public synchronized int compactPacks() {
+        int compacted = 0;
+        for (MediaStorage storage : mediaDirectories.all().values()) {
+            if (storage instanceof PackStorage pack) {
+                try {
+                    compacted += pack.compact(mediaProperties.getPackCompactMinDeadRatio());
+                } catch (IOException e) {
+                    System.err.println("Pack compaction of " + pack.getBase() + " failed: " + e.getMessage());
+                }
+            }
+        }
+        return compacted;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("reclaimedBytes", reclaimedBytes.get());
+        stats.put("deletedFiles", deletedFiles.get());
+        stats.put("keptStillReferenced", keptFiles.get());
+        stats.put("orphansQueued", orphansQueued.get());
+        stats.put("pendingDeletions", mediaDeletionRepository.count());
+        stats.put("lastSweep", lastSweep);
+        stats.put("lastReconcile", lastReconcile);
+        for (Map.Entry<String, MediaStorage> entry : mediaDirectories.all().entrySet()) {
+            if (entry.getValue() instanceof PackStorage pack) {
+                stats.put("packs " + entry.getKey(), pack.stats());
+            }
+        }
+        return stats;
+    }
+
+    private boolean isReferenced(String name) {
+        return postRepository.existsByImage(name)
+                || blogRepository.existsByImage(name)
+                || lprogressRepository.existsByImage(name)
+                || videoRepositery.existsByImageKey(name);
+    }
+
+    private Map<String, Long> referenceCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (List<String> images : List.of(postRepository.findAllImages(), blogRepository.findAllImages(),
+                lprogressRepository.findAllImages(), videoRepositery.findAllImageKeys())) {
+            for (String image : images) {
+                counts.merge(image, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static boolean olderThan(MediaEntry entry, long cutoffMillis) {
+        // lastModified is 0 for a file that vanished meanwhile
+        return entry != null && entry.lastModified() > 0 && entry.lastModified() < cutoffMillis;
+    }
+}
@@ -0,0 +1,45 @@
+package server.media;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import server.config.MediaProperties;
+
+/**
+ * Moves files from the old flat upload directories into the sharded layout.
+ * Enabled with {@code app.media.migrate-layout=true}; runs on a background thread after startup
+ * while the directories keep serving, and is safe to re-run (already sharded files are skipped).
+ */
+@Component
+public class MediaLayoutMigration implements ApplicationRunner {
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    @Autowired
+    private MediaDirectories mediaDirectories;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!mediaProperties.isMigrateLayout()) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "media-layout-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void migrate() {
+        for (MediaStorage directory : mediaDirectories.all().values()) {
+            try {
+                long start = System.currentTimeMillis();
+                int moved = directory.migrateFlatFiles();
+                System.out.println("Migrated " + moved + " files in " + directory.getBase()
+                        + " to the sharded layout in " + (System.currentTimeMillis() - start) + " ms");
+            } catch (Exception e) {
+                System.err.println("Layout migration of " + directory.getBase() + " failed: " + e.getMessage());
+            }
+        }
+    }
+}
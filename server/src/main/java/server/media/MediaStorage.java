@@ -0,0 +1,54 @@
+package server.media;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Where the files of one upload directory live. {@link ShardedDirectory} keeps one file per image;
+ * {@link PackStorage} appends small images to large segment files. {@link MediaDirectories} picks
+ * the implementation per directory, so callers only ever see names.
+ */
+public interface MediaStorage extends Closeable {
+
+    /**
+     * Directory the storage lives in; temp files handed to {@link #put} are written here.
+     */
+    Path getBase();
+
+    boolean contains(String name);
+
+    int size();
+
+    /**
+     * Snapshot of the stored names, for background sweeps.
+     */
+    List<String> names();
+
+    /**
+     * The stored image, or null when it does not exist. Answered from memory, without a disk lookup.
+     */
+    MediaEntry get(String name);
+
+    /**
+     * Takes over a fully written file from under {@link #getBase()} and stores it as {@code name}.
+     */
+    void put(String name, Path source) throws IOException;
+
+    /**
+     * @return bytes freed, 0 when the name did not exist
+     */
+    long delete(String name) throws IOException;
+
+    /**
+     * Moves files left in the old flat layout into their shards.
+     *
+     * @return number of files moved
+     */
+    int migrateFlatFiles() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
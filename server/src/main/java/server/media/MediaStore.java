@@ -0,0 +1,398 @@
+package server.media;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import server.config.MediaProperties;
+import server.exception.ImageRejectedException;
+import server.model.MediaBlob;
+import server.model.MediaDeletion;
+import server.model.PhotoMetadata;
+import server.repository.MediaBlobRepository;
+import server.repository.MediaDeletionRepository;
+import server.repository.PhotoMetadataRepository;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for uploaded images. A file is named by the SHA-256 of its bytes plus an
+ * extension for the format sniffed from those bytes (never the uploaded file name), so the same photo
+ * used as a post, a progress entry and a blog cover is written once; {@link MediaBlob}
+ * counts the image columns pointing at it and the file is handed to {@link MediaGarbageCollector}
+ * with the last reference.
+ * <p>
+ * Images uploaded before the store existed keep their {@code millis_name} file in the controller's
+ * own upload directory; every method here accepts that directory and falls back to it for names
+ * that are not store keys.
+ */
+@Component
+public class MediaStore {
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,5})?");
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    @Autowired
+    private MediaBlobRepository mediaBlobRepository;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private MediaDirectories mediaDirectories;
+
+    @Autowired
+    private MediaDeletionRepository mediaDeletionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    @Autowired
+    private PhotoMetadataRepository photoMetadataRepository;
+
+    private String root;
+    // runs in its own transaction: a reference taken by an upload must not be lost if the caller rolls back
+    private TransactionTemplate refCountTx;
+    // joins the caller's transaction when there is one
+    private TransactionTemplate callerTx;
+    // serialises store and purge of the same key, so a purge cannot delete a file an upload just matched
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @PostConstruct
+    void init() throws IOException {
+        root = mediaProperties.getStoreDir().endsWith("/") ? mediaProperties.getStoreDir() : mediaProperties.getStoreDir() + "/";
+        Files.createDirectories(Paths.get(root));
+        refCountTx = new TransactionTemplate(transactionManager);
+        refCountTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        callerTx = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public static boolean isStoreKey(String name) {
+        return name != null && KEY.matcher(name).matches();
+    }
+
+    /**
+     * Streams the upload to disk while hashing it and returns the store key to put in the image
+     * column. Takes one reference on the stored file, which the caller releases if the row that was
+     * to hold the key is not saved; inside a transaction that happens on its own at rollback.
+     */
+    public String store(MultipartFile file) throws IOException {
+        return store(file.getInputStream());
+    }
+
+    /**
+     * The headers are parsed while the first bytes are copied, so an oversized image or a
+     * decompression bomb is rejected with {@link ImageRejectedException} before the rest is read.
+     */
+    public String store(InputStream content) throws IOException {
+        Path incoming = Paths.get(root, ".incoming-" + UUID.randomUUID());
+        MessageDigest digest = sha256();
+        long size;
+        PhotoMetadata metadata;
+        try (OutputStream out = Files.newOutputStream(incoming);
+             CopyingInputStream in = new CopyingInputStream(new DigestInputStream(content, digest), out,
+                     mediaProperties.getMaxUploadBytes())) {
+            metadata = ImageHeaderParser.parse(in);
+            checkLimits(metadata);
+            in.transferTo(OutputStream.nullOutputStream());
+            size = in.getCount();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(incoming);
+            throw e;
+        }
+        String key = HexFormat.of().formatHex(digest.digest()) + extensionOf(metadata);
+        MediaStorage directory = mediaDirectories.get(root);
+        boolean created = false;
+        synchronized (lockFor(key)) {
+            if (directory.contains(key)) {
+                Files.delete(incoming);
+            } else {
+                directory.put(key, incoming);
+                created = true;
+            }
+            acquire(key, size);
+        }
+        if (metadata != null) {
+            saveMetadata(key, metadata);
+        }
+        if (created) {
+            imageVariantService.scheduleVariants(root, key);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        releaseKey(refCountTx, key);
+                    }
+                }
+            });
+        }
+        return key;
+    }
+
+    /**
+     * Drops one reference to an image column value. A store file whose count reaches zero, or a
+     * legacy file, is queued for the media garbage collector rather than deleted in the request.
+     * Inside a transaction the queue entry commits or rolls back together with the caller's change.
+     */
+    public void release(String legacyDir, String name) {
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        if (!isStoreKey(name)) {
+            if (legacyDir != null) {
+                callerTx.executeWithoutResult(status -> enqueueDeletion(legacyDir, name));
+                hotImageCache.invalidate(mediaDirectories.get(legacyDir), name);
+            }
+            return;
+        }
+        releaseKey(callerTx, name);
+    }
+
+    /**
+     * Release for columns that only ever hold store keys.
+     */
+    public void release(String key) {
+        release(null, key);
+    }
+
+    public String dirOf(String legacyDir, String name) {
+        return isStoreKey(name) ? root : legacyDir;
+    }
+
+    /**
+     * The image to serve for an image column value, or null when it does not exist.
+     */
+    public MediaEntry resolve(String legacyDir, String name, Integer width) {
+        return imageVariantService.resolve(dirOf(legacyDir, name), name, width);
+    }
+
+    /**
+     * Deletes a file and its variants once nothing references it, called by the garbage collector.
+     * A store key that has been acquired again since it was queued is kept.
+     *
+     * @return bytes freed, or -1 when the file is still referenced
+     */
+    public long purge(String dir, String name) {
+        if (isStoreKey(name) && root.equals(dir)) {
+            synchronized (lockFor(name)) {
+                Optional<Long> refCount = mediaBlobRepository.findRefCount(name);
+                if (refCount.orElse(0L) > 0) {
+                    return -1;
+                }
+                if (refCount.isPresent()) {
+                    refCountTx.executeWithoutResult(status -> {
+                        mediaBlobRepository.deleteById(name);
+                        photoMetadataRepository.deleteById(name);
+                    });
+                }
+                return deleteFile(root, name);
+            }
+        }
+        return deleteFile(dir, name);
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    private void checkLimits(PhotoMetadata metadata) {
+        if (metadata == null) {
+            return; // not an image format we decode
+        }
+        Integer width = metadata.getWidth();
+        Integer height = metadata.getHeight();
+        if (width == null || height == null || width <= 0 || height <= 0) {
+            // a variant this parser does not follow; the decoders check the size again before decoding
+            return;
+        }
+        if (width > mediaProperties.getMaxImageDimension() || height > mediaProperties.getMaxImageDimension()
+                || (long) width * height > mediaProperties.getMaxImagePixels()) {
+            throw new ImageRejectedException(width + "x" + height + " exceeds the pixel limit");
+        }
+    }
+
+    private void saveMetadata(String key, PhotoMetadata metadata) {
+        if (photoMetadataRepository.existsById(key)) {
+            return;
+        }
+        metadata.setMediaKey(key);
+        try {
+            refCountTx.executeWithoutResult(status -> photoMetadataRepository.save(metadata));
+        } catch (DataIntegrityViolationException e) {
+            // stored concurrently by another upload of the same bytes
+        }
+    }
+
+    private void releaseKey(TransactionTemplate tx, String key) {
+        boolean unreferenced = Boolean.TRUE.equals(tx.execute(status -> {
+            mediaBlobRepository.decrement(key);
+            if (mediaBlobRepository.findRefCount(key).orElse(0L) == 0) {
+                enqueueDeletion(root, key);
+                return true;
+            }
+            return false;
+        }));
+        if (unreferenced) {
+            hotImageCache.invalidate(mediaDirectories.get(root), key);
+        }
+    }
+
+    private void enqueueDeletion(String dir, String name) {
+        mediaDeletionRepository.save(new MediaDeletion(dir, name, LocalDateTime.now()));
+    }
+
+    private void acquire(String key, long size) {
+        Integer updated = refCountTx.execute(status -> mediaBlobRepository.increment(key, LocalDateTime.now()));
+        if (updated != null && updated > 0) {
+            return;
+        }
+        try {
+            refCountTx.executeWithoutResult(status ->
+                    mediaBlobRepository.save(new MediaBlob(key, size, 1, LocalDateTime.now())));
+        } catch (DataIntegrityViolationException e) {
+            // another instance inserted the row first
+            refCountTx.execute(status -> mediaBlobRepository.increment(key, LocalDateTime.now()));
+        }
+    }
+
+    private long deleteFile(String dir, String name) {
+        hotImageCache.invalidate(mediaDirectories.get(dir), name);
+        long freed = imageVariantService.deleteVariants(dir, name);
+        try {
+            long size = mediaDirectories.get(dir).delete(name);
+            if (size > 0) {
+                System.out.println("Image deleted: " + name);
+            }
+            freed += size;
+        } catch (IOException e) {
+            System.out.println("Failed to delete image: " + name + " - " + e.getMessage());
+        }
+        return freed;
+    }
+
+    private Object lockFor(String key) {
+        return locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+    }
+
+    // one extension per format, so .jpg and .jpeg uploads of the same bytes share a key
+    private static String extensionOf(PhotoMetadata metadata) {
+        if (metadata == null) {
+            return "";
+        }
+        return switch (metadata.getFormat()) {
+            case "jpeg" -> ".jpg";
+            case "png" -> ".png";
+            case "gif" -> ".gif";
+            case "bmp" -> ".bmp";
+            case "webp" -> ".webp";
+            default -> "";
+        };
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copies everything read through it to {@code out}, and fails once more than {@code limit}
+     * bytes have come through.
+     */
+    private static final class CopyingInputStream extends FilterInputStream {
+
+        private final OutputStream out;
+        private final long limit;
+        private long count;
+
+        CopyingInputStream(InputStream in, OutputStream out, long limit) {
+            super(in);
+            this.out = out;
+            this.limit = limit;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                copied(1);
+                out.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                copied(n);
+                out.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // read through so every byte is copied
+            byte[] buffer = new byte[(int) Math.min(8192, Math.max(n, 1))];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void copied(int n) {
+            count += n;
+            if (count > limit) {
+                throw new ImageRejectedException("larger than " + limit + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package server.media;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import server.config.MediaProperties;
+import server.model.ImageHash;
+import server.model.UserModel;
+import server.repository.BlogRepository;
+import server.repository.ImageHashRepository;
+import server.repository.LprogressRepository;
+import server.repository.PostRepository;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds post, blog and progress images that are near-duplicates of each other (re-encodes,
+ * resizes, small crops) by the Hamming distance of their {@link DHash}. Hashes are kept in
+ * {@code image_hash} and served from an in-memory {@link HammingIndex} that is loaded, and
+ * filled for images uploaded before it existed, in the background after startup.
+ */
+@Component
+public class NearDuplicateIndex implements ApplicationRunner {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    @Autowired
+    private ImageSampler imageSampler;
+
+    @Autowired
+    private ImageHashRepository imageHashRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final HammingIndex index = new HammingIndex();
+    private volatile boolean loaded;
+    // a hash describes the file, not the caller's row, so it is saved on its own and a duplicate
+    // insert fails here, where it can be ignored, instead of at the caller's commit
+    private TransactionTemplate hashTx;
+
+    @PostConstruct
+    void init() {
+        hashTx = new TransactionTemplate(transactionManager);
+        hashTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread thread = new Thread(() -> {
+            load();
+            backfill();
+        }, "near-duplicate-index");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Hashes a newly stored image and files it in the index.
+     *
+     * @return the other images it nearly duplicates
+     */
+    public List<HammingIndex.Match> register(String legacyDir, String name) {
+        Long hash = hash(legacyDir, name);
+        if (hash == null) {
+            return List.of();
+        }
+        List<HammingIndex.Match> matches = nearDuplicatesOf(name, mediaProperties.getDuplicateMaxDistance());
+        if (!matches.isEmpty()) {
+            System.out.println("Image " + name + " is a near-duplicate of " + matches.size() + " images, closest "
+                    + matches.get(0).name() + " at distance " + matches.get(0).distance());
+        }
+        return matches;
+    }
+
+    /**
+     * @return indexed images within {@code maxDistance} of the given one, closest first
+     */
+    public List<HammingIndex.Match> nearDuplicatesOf(String name, int maxDistance) {
+        Long hash = index.get(name);
+        if (hash == null) {
+            return List.of();
+        }
+        List<HammingIndex.Match> matches = new ArrayList<>();
+        for (HammingIndex.Match match : index.search(hash, maxDistance)) {
+            if (!match.name().equals(name)) {
+                matches.add(match);
+            }
+        }
+        matches.sort((a, b) -> Integer.compare(a.distance(), b.distance()));
+        return matches;
+    }
+
+    /**
+     * Groups a user's posts, blogs and progress entries whose images are the same or near-duplicates.
+     * Only groups with more than one entry are returned.
+     */
+    public List<List<Map<String, Object>>> clustersForUser(UserModel user, int maxDistance) {
+        Map<String, List<Map<String, Object>>> byImage = new LinkedHashMap<>();
+        postRepository.findSummariesByUser(user.getId()).forEach(post -> addItem(byImage, "post", post.getId(), post.getImage()));
+        blogRepository.findSummariesByUser(user.getId()).forEach(blog -> addItem(byImage, "blog", blog.getId(), blog.getImage()));
+        lprogressRepository.findSummariesByUser(user.getId()).forEach(progress -> addItem(byImage, "progress", progress.getId(), progress.getImage()));
+
+        List<String> names = new ArrayList<>(byImage.keySet());
+        Map<String, Integer> position = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            position.put(names.get(i), i);
+        }
+        int[] parent = new int[names.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            for (HammingIndex.Match match : nearDuplicatesOf(names.get(i), maxDistance)) {
+                Integer j = position.get(match.name());
+                if (j != null) {
+                    parent[find(parent, i)] = find(parent, j);
+                }
+            }
+        }
+
+        Map<Integer, List<Map<String, Object>>> clusters = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            clusters.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).addAll(byImage.get(names.get(i)));
+        }
+        return clusters.values().stream().filter(cluster -> cluster.size() > 1).toList();
+    }
+
+    public void remove(String name) {
+        if (index.get(name) != null) {
+            index.remove(name);
+            imageHashRepository.deleteById(name);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded);
+        stats.put("hashes", index.size());
+        stats.put("maxDistance", mediaProperties.getDuplicateMaxDistance());
+        return stats;
+    }
+
+    private Long hash(String legacyDir, String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        Long known = index.get(name);
+        if (known != null) {
+            return known;
+        }
+        BufferedImage sample = imageSampler.sample(legacyDir, name);
+        if (sample == null) {
+            return null;
+        }
+        long hash = DHash.of(sample);
+        index.put(name, hash);
+        try {
+            hashTx.executeWithoutResult(status -> imageHashRepository.save(new ImageHash(name, hash)));
+        } catch (DataIntegrityViolationException e) {
+            // saved concurrently by another upload of the same image
+        }
+        return hash;
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        String after = "";
+        while (true) {
+            List<ImageHash> batch = imageHashRepository.findByNameGreaterThanOrderByNameAsc(after, Limit.of(LOAD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (ImageHash row : batch) {
+                index.put(row.getName(), row.getDhash());
+            }
+            after = batch.get(batch.size() - 1).getName();
+        }
+        loaded = true;
+        System.out.println("Loaded " + index.size() + " image hashes in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void backfill() {
+        int hashed = 0;
+        Set<String> seen = new LinkedHashSet<>();
+        for (String name : postRepository.findAllImages()) {
+            if (seen.add(name) && index.get(name) == null && hash(MediaDirectories.POST_DIR, name) != null) {
+                hashed++;
+            }
+        }
+        for (List<String> images : List.of(blogRepository.findAllImages(), lprogressRepository.findAllImages())) {
+            for (String name : images) {
+                if (seen.add(name) && index.get(name) == null && hash(MediaDirectories.UPLOAD_DIR, name) != null) {
+                    hashed++;
+                }
+            }
+        }
+        if (hashed > 0) {
+            System.out.println("Hashed " + hashed + " existing images for near-duplicate detection");
+        }
+    }
+
+    private static void addItem(Map<String, List<Map<String, Object>>> byImage, String type, Long id, String image) {
+        if (image == null || image.isEmpty()) {
+            return;
+        }
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("type", type);
+        item.put("id", id);
+        item.put("image", image);
+        byImage.computeIfAbsent(image, key -> new ArrayList<>()).add(item);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
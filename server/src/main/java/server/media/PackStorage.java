@@ -0,0 +1,430 @@
+package server.media;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Appends small images to large segment files ({@code <base>/packs/seg-<id>.pack}) instead of
+ * giving each its own file, so millions of thumbnails cost a few inodes and back up as a handful of
+ * large files. Images over the size limit, and anything stored before packing was switched on,
+ * stay in a {@link ShardedDirectory} on the same base.
+ * <p>
+ * A record is a fixed header, the name and the bytes. A delete appends a tombstone naming the
+ * segment and position of the record it kills, so replaying the segments in order at startup
+ * rebuilds the in-memory offset index exactly. Reads are slices of read-only memory maps.
+ * {@link #compact(double)} copies the live records of mostly-dead segments to the end of the log and
+ * removes the old segment; readers still holding a slice keep a valid mapping until they finish.
+ */
+public class PackStorage implements MediaStorage {
+
+    private static final int MAGIC = 0x504b4731;
+    private static final byte PUT = 1;
+    private static final byte TOMBSTONE = 2;
+    // magic, type, name length, data length, last modified, crc32 of name + data
+    private static final int HEADER = 4 + 1 + 2 + 4 + 8 + 4;
+    // target segment id, target data position
+    private static final int TOMBSTONE_DATA = 4 + 8;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("seg-(\\d+)\\.pack");
+
+    private final Path base;
+    private final Path packDir;
+    private final ShardedDirectory files;
+    private final boolean packing;
+    private final long maxEntryBytes;
+    private final long segmentBytes;
+
+    private final Map<String, Slot> index = new ConcurrentHashMap<>();
+    private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    // segment new records go to, guarded by this
+    private Segment active;
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    /**
+     * @param packing when false the existing segments are still served and compacted, but new
+     *                images go to files
+     */
+    public PackStorage(Path base, ShardedDirectory files, boolean packing, long maxEntryBytes, long segmentBytes) {
+        this.base = base;
+        this.packDir = base.resolve("packs");
+        this.files = files;
+        this.packing = packing;
+        this.maxEntryBytes = maxEntryBytes;
+        // a segment is mapped as one buffer
+        this.segmentBytes = Math.min(segmentBytes, Integer.MAX_VALUE);
+    }
+
+    public static boolean exists(Path base) {
+        return Files.isDirectory(base.resolve("packs"));
+    }
+
+    /**
+     * Indexes the loose files and replays every segment. A torn record at the end of the last
+     * segment (a crash mid-append) is cut off.
+     */
+    public void open() throws IOException {
+        files.scan();
+        if (!Files.isDirectory(packDir)) {
+            return;
+        }
+        TreeMap<Integer, Path> found = new TreeMap<>();
+        try (Stream<Path> list = Files.list(packDir)) {
+            list.forEach(path -> {
+                Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    found.put(Integer.parseInt(matcher.group(1)), path);
+                }
+            });
+        }
+        for (Map.Entry<Integer, Path> entry : found.entrySet()) {
+            Segment segment = openSegment(entry.getKey());
+            long end = scanRecords(segment, (type, name, position, length, lastModified, map) -> {
+                if (type == PUT) {
+                    track(name, new Slot(segment.id, position, length, lastModified));
+                } else if (length == TOMBSTONE_DATA) {
+                    Slot current = index.get(name);
+                    if (current != null && current.segment == map.getInt((int) position)
+                            && current.position == map.getLong((int) position + 4)) {
+                        untrack(name, current);
+                    }
+                }
+            });
+            if (end < segment.size) {
+                if (entry.getKey().equals(found.lastKey())) {
+                    System.out.println("Pack " + segment.path + ": dropping " + (segment.size - end) + " bytes of torn write");
+                    segment.channel.truncate(end);
+                    segment.size = end;
+                } else {
+                    // left for compaction, which counts it as dead space
+                    System.err.println("Pack " + segment.path + ": unreadable record at offset " + end);
+                }
+            }
+            active = segment;
+        }
+        System.out.println("Opened " + segments.size() + " pack segments with " + index.size() + " images in " + packDir);
+    }
+
+    @Override
+    public Path getBase() {
+        return base;
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return index.containsKey(name) || files.contains(name);
+    }
+
+    @Override
+    public int size() {
+        return index.size() + files.size();
+    }
+
+    @Override
+    public List<String> names() {
+        List<String> names = new ArrayList<>(index.keySet());
+        names.addAll(files.names());
+        return names;
+    }
+
+    @Override
+    public MediaEntry get(String name) {
+        // a compaction may move the record between reading the index and the segment: look again
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Slot slot = index.get(name);
+            if (slot == null) {
+                return files.get(name);
+            }
+            Segment segment = segments.get(slot.segment);
+            if (segment == null) {
+                continue;
+            }
+            try {
+                return MediaEntry.ofBytes(base, name, segment.slice(slot.position, slot.length), slot.lastModified);
+            } catch (IOException e) {
+                if (segments.containsKey(slot.segment)) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void put(String name, Path source) throws IOException {
+        long size = Files.size(source);
+        if (!packing || size > maxEntryBytes) {
+            files.put(name, source);
+            synchronized (this) {
+                deletePacked(name);
+            }
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(source);
+        synchronized (this) {
+            track(name, append(PUT, name, ByteBuffer.wrap(bytes), System.currentTimeMillis()));
+        }
+        files.delete(name);
+        Files.delete(source);
+    }
+
+    /**
+     * A packed image's bytes are only given back to the filesystem by the next compaction of its
+     * segment; the return value counts them as freed now.
+     */
+    @Override
+    public long delete(String name) throws IOException {
+        long freed;
+        synchronized (this) {
+            freed = deletePacked(name);
+        }
+        return freed + files.delete(name);
+    }
+
+    @Override
+    public int migrateFlatFiles() throws IOException {
+        return files.migrateFlatFiles();
+    }
+
+    /**
+     * Rewrites every segment with at least {@code minDeadRatio} of its bytes dead (deleted,
+     * superseded or unreadable) and removes it.
+     *
+     * @return number of segments removed
+     */
+    public synchronized int compact(double minDeadRatio) throws IOException {
+        int compacted = 0;
+        for (Segment segment : List.copyOf(segments.values())) {
+            long dead = segment.size - segment.liveBytes.get();
+            if (segment.size == 0 || dead < segment.size * minDeadRatio) {
+                continue;
+            }
+            if (segment == active) {
+                active = null; // the live records move to a fresh segment
+            }
+            scanRecords(segment, (type, name, position, length, lastModified, map) -> {
+                if (type == PUT) {
+                    Slot slot = index.get(name);
+                    if (slot != null && slot.segment == segment.id && slot.position == position) {
+                        track(name, append(PUT, name, map.slice((int) position, length), lastModified));
+                    }
+                } else if (length == TOMBSTONE_DATA && segments.containsKey(map.getInt((int) position))) {
+                    // the killed record still exists on disk, so the tombstone must survive
+                    append(TOMBSTONE, name, map.slice((int) position, length), lastModified);
+                }
+            });
+            segments.remove(segment.id);
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+            reclaimedBytes.addAndGet(dead);
+            compactions.incrementAndGet();
+            compacted++;
+            System.out.println("Compacted pack " + segment.path + ", reclaimed " + dead + " bytes");
+        }
+        return compacted;
+    }
+
+    public Map<String, Object> stats() {
+        long total = 0;
+        long live = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.size;
+            live += segment.liveBytes.get();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("packing", packing);
+        stats.put("segments", segments.size());
+        stats.put("packedImages", index.size());
+        stats.put("looseFiles", files.size());
+        stats.put("segmentBytes", total);
+        stats.put("liveBytes", live);
+        stats.put("deadBytes", total - live);
+        stats.put("compactions", compactions.get());
+        stats.put("reclaimedBytes", reclaimedBytes.get());
+        return stats;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+    }
+
+    private long deletePacked(String name) throws IOException {
+        Slot slot = index.get(name);
+        if (slot == null) {
+            return 0;
+        }
+        ByteBuffer target = ByteBuffer.allocate(TOMBSTONE_DATA).putInt(slot.segment).putLong(slot.position).flip();
+        append(TOMBSTONE, name, target, System.currentTimeMillis());
+        untrack(name, slot);
+        return slot.length;
+    }
+
+    private void track(String name, Slot slot) {
+        Slot old = index.put(name, slot);
+        if (old != null) {
+            adjustLive(old, name, -1);
+        }
+        adjustLive(slot, name, 1);
+    }
+
+    private void untrack(String name, Slot slot) {
+        if (index.remove(name, slot)) {
+            adjustLive(slot, name, -1);
+        }
+    }
+
+    private void adjustLive(Slot slot, String name, int sign) {
+        Segment segment = segments.get(slot.segment);
+        if (segment != null) {
+            segment.liveBytes.addAndGet(sign * recordSize(name, slot.length));
+        }
+    }
+
+    private static long recordSize(String name, int length) {
+        return HEADER + name.getBytes(StandardCharsets.UTF_8).length + (long) length;
+    }
+
+    private Slot append(byte type, String name, ByteBuffer data, long lastModified) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 0xffff) {
+            throw new IOException("Name too long for a pack record: " + name);
+        }
+        int length = data.remaining();
+        long size = HEADER + nameBytes.length + (long) length;
+        if (active == null || (active.size > 0 && active.size + size > segmentBytes)) {
+            active = openSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(nameBytes);
+        crc.update(data.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER)
+                .putInt(MAGIC)
+                .put(type)
+                .putShort((short) nameBytes.length)
+                .putInt(length)
+                .putLong(lastModified)
+                .putInt((int) crc.getValue())
+                .flip();
+        long start = active.size;
+        long at = start;
+        for (ByteBuffer part : new ByteBuffer[]{header, ByteBuffer.wrap(nameBytes), data.duplicate()}) {
+            while (part.hasRemaining()) {
+                at += active.channel.write(part, at);
+            }
+        }
+        active.channel.force(false);
+        active.size = at;
+        return new Slot(active.id, start + HEADER + nameBytes.length, length, lastModified);
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Files.createDirectories(packDir);
+        Path path = packDir.resolve(String.format("seg-%06d.pack", id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Visits the valid records of a segment in order.
+     *
+     * @return offset where the valid records end
+     */
+    private static long scanRecords(Segment segment, RecordVisitor visitor) throws IOException {
+        if (segment.size == 0) {
+            return 0;
+        }
+        ByteBuffer map = segment.slice(0, (int) segment.size);
+        CRC32 crc = new CRC32();
+        long offset = 0;
+        while (offset + HEADER <= segment.size) {
+            int at = (int) offset;
+            byte type = map.get(at + 4);
+            int nameLength = map.getShort(at + 5) & 0xffff;
+            int length = map.getInt(at + 7);
+            if (map.getInt(at) != MAGIC || (type != PUT && type != TOMBSTONE) || length < 0
+                    || offset + HEADER + nameLength + length > segment.size) {
+                break;
+            }
+            crc.reset();
+            crc.update(map.slice(at + HEADER, nameLength + length));
+            if ((int) crc.getValue() != map.getInt(at + 19)) {
+                break;
+            }
+            String name = StandardCharsets.UTF_8.decode(map.slice(at + HEADER, nameLength)).toString();
+            visitor.visit(type, name, offset + HEADER + nameLength, length, map.getLong(at + 11), map);
+            offset += HEADER + nameLength + length;
+        }
+        return offset;
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(byte type, String name, long position, int length, long lastModified, ByteBuffer map) throws IOException;
+    }
+
+    /**
+     * Where a packed image's bytes are: data position within the segment, not the record start.
+     */
+    private record Slot(int segment, long position, int length, long lastModified) {
+    }
+
+    private static final class Segment {
+
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        // bytes of records still in the index
+        final AtomicLong liveBytes = new AtomicLong();
+        volatile long size;
+        private volatile MappedByteBuffer map;
+
+        Segment(int id, Path path, FileChannel channel) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        ByteBuffer slice(long position, int length) throws IOException {
+            MappedByteBuffer current = map;
+            if (current == null || position + length > current.capacity()) {
+                current = remap(position + length);
+            }
+            return current.slice((int) position, length);
+        }
+
+        // the active segment grows after it is mapped; map again to cover the new records
+        private synchronized MappedByteBuffer remap(long needed) throws IOException {
+            MappedByteBuffer current = map;
+            if (current == null || needed > current.capacity()) {
+                current = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                map = current;
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package server.media;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import server.config.MediaProperties;
+import server.etag.VersionStamps;
+import server.repository.BlogRepository;
+import server.repository.ImageRow;
+import server.repository.LprogressRepository;
+import server.repository.PostRepository;
+
+import java.util.List;
+
+/**
+ * Computes placeholders for posts, progress entries and blogs whose image was uploaded before
+ * placeholders existed. Runs in the background after startup, in id-ordered batches; only rows
+ * still without a placeholder are selected, so an interrupted run simply continues on the next
+ * start. Images that cannot be decoded get an empty placeholder and are not tried again.
+ */
+@Component
+public class PlaceholderBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private MediaProperties mediaProperties;
+
+    @Autowired
+    private ImagePlaceholders imagePlaceholders;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private VersionStamps versionStamps;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!mediaProperties.isPlaceholderBackfill()) {
+            return;
+        }
+        Thread thread = new Thread(this::backfill, "placeholder-backfill");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    public void backfill() {
+        backfill("posts", VersionStamps.POST, MediaDirectories.POST_DIR, postRepository::findMissingPlaceholders, postRepository::setPlaceholder);
+        backfill("progress entries", VersionStamps.PROGRESS, MediaDirectories.UPLOAD_DIR, lprogressRepository::findMissingPlaceholders, lprogressRepository::setPlaceholder);
+        backfill("blogs", VersionStamps.BLOG, MediaDirectories.UPLOAD_DIR, blogRepository::findMissingPlaceholders, blogRepository::setPlaceholder);
+    }
+
+    private void backfill(String label, String kind, String legacyDir, BatchFinder finder, PlaceholderUpdater updater) {
+        long start = System.currentTimeMillis();
+        long after = 0;
+        int done = 0;
+        try {
+            while (true) {
+                List<ImageRow> batch = finder.find(after, Limit.of(BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (ImageRow row : batch) {
+                    String placeholder = imagePlaceholders.compute(legacyDir, row.getImage());
+                    updater.update(row.getId(), row.getImage(), placeholder == null ? "" : placeholder);
+                    after = row.getId();
+                    done++;
+                }
+                // placeholders are part of the list and detail JSON
+                versionStamps.changedAll(kind);
+            }
+        } catch (Exception e) {
+            System.err.println("Placeholder backfill of " + label + " stopped after id " + after + ": " + e.getMessage());
+        }
+        if (done > 0) {
+            System.out.println("Backfilled placeholders for " + done + " " + label + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchFinder {
+        List<ImageRow> find(Long after, Limit limit);
+    }
+
+    @FunctionalInterface
+    private interface PlaceholderUpdater {
+        int update(Long id, String image, String placeholder);
+    }
+}
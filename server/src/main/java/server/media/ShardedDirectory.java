@@ -0,0 +1,202 @@
+package server.media;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * An upload directory laid out as {@code <base>/<aa>/<bb>/<name>}, where aa/bb come from a hash of
+ * the name (or are the first hex digits of a content-addressed key), so no single directory grows
+ * past a few thousand entries. Variants ({@code w<width>_<name>}) share their original's shard.
+ * <p>
+ * What exists is tracked in memory, filled by a scan at startup and kept current by every write and
+ * delete, so lookups never stat the filesystem. Files from the old flat layout are served in place
+ * until {@link #migrateFlatFiles()} moves them into their shards.
+ */
+public class ShardedDirectory implements MediaStorage {
+
+    private static final Pattern VARIANT_PREFIX = Pattern.compile("^w\\d+_");
+    private static final Pattern STORE_KEY = Pattern.compile("^[0-9a-f]{4}.*");
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+
+    private final Path base;
+    // name -> true when the file sits in its shard, false while it is still in the flat base directory
+    private final Map<String, Boolean> index = new ConcurrentHashMap<>();
+
+    public ShardedDirectory(Path base) {
+        this.base = base;
+    }
+
+    @Override
+    public Path getBase() {
+        return base;
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Where the file currently is, or null when it does not exist.
+     */
+    public Path locate(String name) {
+        Boolean sharded = index.get(name);
+        if (sharded == null) {
+            return null;
+        }
+        return sharded ? shardedPath(name) : base.resolve(name);
+    }
+
+    @Override
+    public MediaEntry get(String name) {
+        Path path = locate(name);
+        return path == null ? null : MediaEntry.ofFile(base, name, path);
+    }
+
+    @Override
+    public void put(String name, Path source) throws IOException {
+        Files.move(source, prepareWrite(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        added(name);
+    }
+
+    /**
+     * Target path for a new file, with its shard directories created.
+     */
+    public Path prepareWrite(String name) throws IOException {
+        Path path = shardedPath(name);
+        Files.createDirectories(path.getParent());
+        return path;
+    }
+
+    public void added(String name) {
+        index.put(name, Boolean.TRUE);
+    }
+
+    @Override
+    public long delete(String name) throws IOException {
+        Path path = locate(name);
+        if (path == null) {
+            return 0;
+        }
+        index.remove(name);
+        try {
+            long size = Files.size(path);
+            Files.delete(path);
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public List<String> names() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    public static boolean isVariant(String name) {
+        return VARIANT_PREFIX.matcher(name).find();
+    }
+
+    public static String originalOf(String name) {
+        return VARIANT_PREFIX.matcher(name).replaceFirst("");
+    }
+
+    public Path shardedPath(String name) {
+        String original = originalOf(name);
+        String aa;
+        String bb;
+        if (STORE_KEY.matcher(original).matches() && original.length() >= 64) {
+            aa = original.substring(0, 2);
+            bb = original.substring(2, 4);
+        } else {
+            int h = original.hashCode();
+            h ^= (h >>> 16);
+            h *= 0x45d9f3b;
+            h ^= (h >>> 16);
+            aa = String.format("%02x", (h >>> 8) & 0xff);
+            bb = String.format("%02x", h & 0xff);
+        }
+        return base.resolve(aa).resolve(bb).resolve(name);
+    }
+
+    /**
+     * Rebuilds the index from disk, covering both the flat and the sharded layout.
+     */
+    public void scan() throws IOException {
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(base, 3)) {
+            files.filter(Files::isRegularFile).forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(".")) {
+                    return; // in-flight temp files
+                }
+                Path relative = base.relativize(path);
+                if (relative.getNameCount() == 1) {
+                    index.putIfAbsent(name, Boolean.FALSE);
+                } else if (relative.getNameCount() == 3
+                        && SHARD.matcher(relative.getName(0).toString()).matches()
+                        && SHARD.matcher(relative.getName(1).toString()).matches()) {
+                    index.put(name, Boolean.TRUE);
+                }
+            });
+        }
+    }
+
+    /**
+     * Moves flat-layout files into their shards while the directory keeps serving. Each file is
+     * first hard-linked into its shard and the index switched over; the flat names are only removed
+     * after every file has been linked, so a request that resolved the old path moments earlier
+     * can still open it.
+     *
+     * @return number of files moved
+     */
+    @Override
+    public int migrateFlatFiles() throws IOException {
+        List<String> linked = new ArrayList<>();
+        int moved = 0;
+        for (Map.Entry<String, Boolean> entry : index.entrySet()) {
+            if (entry.getValue()) {
+                continue;
+            }
+            String name = entry.getKey();
+            Path flat = base.resolve(name);
+            if (!Files.exists(flat)) {
+                index.remove(name, Boolean.FALSE);
+                continue;
+            }
+            Path target = prepareWrite(name);
+            try {
+                Files.createLink(target, flat);
+                linked.add(name);
+            } catch (FileAlreadyExistsException e) {
+                linked.add(name);
+            } catch (UnsupportedOperationException | IOException e) {
+                // no hard links on this filesystem: fall back to a plain move
+                Files.move(flat, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            index.put(name, Boolean.TRUE);
+            moved++;
+        }
+        for (String name : linked) {
+            Files.deleteIfExists(base.resolve(name));
+        }
+        return moved;
+    }
+}
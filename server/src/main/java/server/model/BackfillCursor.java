@@ -0,0 +1,40 @@
+package server.model;
+
+import jakarta.persistence.*;
+
+/**
+ * How far a background backfill has got: the id of the last row it finished, per backfill name.
+ */
+@Entity
+@Table(name = "backfill_cursor")
+public class BackfillCursor {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+    private Long lastId;
+
+    public BackfillCursor() {
+    }
+
+    public BackfillCursor(String name, Long lastId) {
+        this.name = name;
+        this.lastId = lastId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+}
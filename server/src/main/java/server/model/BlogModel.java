@@ -1,9 +1,17 @@
 package server.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDate;
 
 @Entity
-@Table(name = "blog_model")
+@Table(name = "blog_model", indexes = {
+        @Index(name = "idx_blog_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_blog_image", columnList = "image")
+})
 public class BlogModel {
 
     @Id
@@ -21,8 +29,24 @@ public class BlogModel {
 
     private String image;
 
-    @ManyToOne
+    @Column(length = 32)
+    private String placeholder; // BlurHash of the image, painted while it loads
+
+    private LocalDate createdAt;
+
+    // written only by EngagementCounters (server.counter)
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long viewCount;
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long likeCount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
+    @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private UserModel user;
 
     // Getters and setters
@@ -74,6 +98,22 @@ public class BlogModel {
         this.image = image;
     }
 
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    public void setPlaceholder(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
+    public LocalDate getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDate createdAt) {
+        this.createdAt = createdAt;
+    }
+
     public UserModel getUser() {
         return user;
     }
@@ -81,4 +121,20 @@ public class BlogModel {
     public void setUser(UserModel user) {
         this.user = user;
     }
-}
\ No newline at end of file
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public void setViewCount(long viewCount) {
+        this.viewCount = viewCount;
+    }
+
+    public long getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(long likeCount) {
+        this.likeCount = likeCount;
+    }
+}
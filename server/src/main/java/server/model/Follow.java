@@ -0,0 +1,65 @@
+package server.model;
+
+import jakarta.persistence.*;
+import server.id.TimeOrderedId;
+
+import java.time.LocalDateTime;
+
+/**
+ * One user following another. The table is the durable copy; reads go to the in-memory
+ * FollowGraph (server.follow), which loads it at startup.
+ */
+@Entity
+@Table(name = "follow",
+        uniqueConstraints = @UniqueConstraint(name = "uk_follow", columnNames = {"follower_id", "followee_id"}),
+        indexes = @Index(name = "idx_follow_followee", columnList = "followee_id"))
+public class Follow {
+
+    @Id
+    @TimeOrderedId
+    private Long id;
+    private Long followerId;
+    private Long followeeId;
+    private LocalDateTime createdAt;
+
+    public Follow() {
+    }
+
+    public Follow(Long followerId, Long followeeId) {
+        this.followerId = followerId;
+        this.followeeId = followeeId;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getFollowerId() {
+        return followerId;
+    }
+
+    public void setFollowerId(Long followerId) {
+        this.followerId = followerId;
+    }
+
+    public Long getFolloweeId() {
+        return followeeId;
+    }
+
+    public void setFolloweeId(Long followeeId) {
+        this.followeeId = followeeId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,40 @@
+package server.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Perceptual hash of an image column value (store key or legacy file name), loaded into the
+ * near-duplicate index at startup.
+ */
+@Entity
+@Table(name = "image_hash")
+public class ImageHash {
+
+    @Id
+    private String name;
+    private long dhash;
+
+    public ImageHash() {
+    }
+
+    public ImageHash(String name, long dhash) {
+        this.name = name;
+        this.dhash = dhash;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getDhash() {
+        return dhash;
+    }
+
+    public void setDhash(long dhash) {
+        this.dhash = dhash;
+    }
+}
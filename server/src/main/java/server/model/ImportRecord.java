@@ -0,0 +1,62 @@
+package server.model;
+
+import jakarta.persistence.*;
+import server.id.TimeOrderedId;
+
+import java.time.LocalDateTime;
+
+/**
+ * One manifest item of a bulk import that has become a post. Written in the same transaction as
+ * the post, so running the import again skips exactly the items that were committed.
+ */
+@Entity
+@Table(name = "import_record",
+        uniqueConstraints = @UniqueConstraint(name = "uk_import_record", columnNames = {"user_id", "import_id", "item_key"}))
+public class ImportRecord {
+
+    @Id
+    @TimeOrderedId
+    private Long id;
+    private Long userId;
+    @Column(length = 64)
+    private String importId;
+    @Column(length = 255)
+    private String itemKey;
+    private Long postId;
+    private LocalDateTime createdAt;
+
+    public ImportRecord() {
+    }
+
+    public ImportRecord(Long userId, String importId, String itemKey, Long postId) {
+        this.userId = userId;
+        this.importId = importId;
+        this.itemKey = itemKey;
+        this.postId = postId;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getImportId() {
+        return importId;
+    }
+
+    public String getItemKey() {
+        return itemKey;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -1,27 +1,36 @@
 package server.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import server.id.TimeOrderedId;
 
 import java.time.LocalDate;
 
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_progress_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_progress_image", columnList = "image")
+})
 public class LprogressModel {
     @Id
-    @GeneratedValue
+    @TimeOrderedId
     private Long id;
     private String name;
     private String topic;
     private String description;
     private String status;            // e.g., Started, In Progress, Completed
     private String image;
+    @Column(length = 32)
+    private String placeholder; // BlurHash of the image, painted while it loads
     private String tag;
 
     private LocalDate createdAt; // Changed to LocalDate
     private LocalDate updatedAt; // Changed to LocalDate
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
+    @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private UserModel user;
 
     public LprogressModel(){
@@ -89,6 +98,14 @@ public class LprogressModel {
         this.image = image;
     }
 
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    public void setPlaceholder(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
     public String getTag() {
         return tag;
     }
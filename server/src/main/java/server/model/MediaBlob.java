@@ -0,0 +1,73 @@
+package server.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored file in the content-addressed media store, shared by every post, blog and progress
+ * entry whose image column holds {@code mediaKey}.
+ */
+@Entity
+@Table(name = "media_blob")
+public class MediaBlob {
+
+    @Id
+    @Column(length = 80)
+    private String mediaKey;   // <sha-256 hex>.<ext>
+    private long size;
+    private long refCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastAcquiredAt;
+
+    public MediaBlob() {
+    }
+
+    public MediaBlob(String mediaKey, long size, long refCount, LocalDateTime createdAt) {
+        this.mediaKey = mediaKey;
+        this.size = size;
+        this.refCount = refCount;
+        this.createdAt = createdAt;
+        this.lastAcquiredAt = createdAt;
+    }
+
+    public String getMediaKey() {
+        return mediaKey;
+    }
+
+    public void setMediaKey(String mediaKey) {
+        this.mediaKey = mediaKey;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(long refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getLastAcquiredAt() {
+        return lastAcquiredAt;
+    }
+
+    public void setLastAcquiredAt(LocalDateTime lastAcquiredAt) {
+        this.lastAcquiredAt = lastAcquiredAt;
+    }
+}
@@ -0,0 +1,62 @@
+package server.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A file waiting to be deleted by the media garbage collector. Rows are written in the same
+ * transaction as the change that dropped the last reference, so the intent survives a crash.
+ */
+@Entity
+@Table(name = "media_deletion", indexes = @Index(name = "idx_media_deletion_enqueued", columnList = "enqueued_at"))
+public class MediaDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String dir;
+    private String name;
+    private LocalDateTime enqueuedAt;
+
+    public MediaDeletion() {
+    }
+
+    public MediaDeletion(String dir, String name, LocalDateTime enqueuedAt) {
+        this.dir = dir;
+        this.name = name;
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LocalDateTime getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    public void setEnqueuedAt(LocalDateTime enqueuedAt) {
+        this.enqueuedAt = enqueuedAt;
+    }
+}
@@ -0,0 +1,136 @@
+package server.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dimensions and camera settings read from an uploaded image's headers, one row per media store
+ * key. Posts, blogs and progress entries reach it through their image column.
+ */
+@Entity
+@Table(name = "photo_metadata", indexes = {
+        @Index(name = "idx_photo_lens_iso", columnList = "lens, iso"),
+        @Index(name = "idx_photo_camera_iso", columnList = "camera_model, iso"),
+        @Index(name = "idx_photo_captured", columnList = "captured_at")
+})
+public class PhotoMetadata {
+
+    @Id
+    @Column(length = 80)
+    private String mediaKey;
+    @Column(length = 8)
+    private String format;
+    private Integer width;
+    private Integer height;
+    @Column(length = 64)
+    private String cameraMake;
+    @Column(length = 64)
+    private String cameraModel;
+    @Column(length = 128)
+    private String lens;
+    private Integer iso;
+    private Double aperture;       // f-number
+    private Double exposureTime;   // seconds
+    private Double focalLength;    // mm
+    private LocalDateTime capturedAt;
+
+    public PhotoMetadata() {
+    }
+
+    public String getMediaKey() {
+        return mediaKey;
+    }
+
+    public void setMediaKey(String mediaKey) {
+        this.mediaKey = mediaKey;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public String getCameraMake() {
+        return cameraMake;
+    }
+
+    public void setCameraMake(String cameraMake) {
+        this.cameraMake = cameraMake;
+    }
+
+    public String getCameraModel() {
+        return cameraModel;
+    }
+
+    public void setCameraModel(String cameraModel) {
+        this.cameraModel = cameraModel;
+    }
+
+    public String getLens() {
+        return lens;
+    }
+
+    public void setLens(String lens) {
+        this.lens = lens;
+    }
+
+    public Integer getIso() {
+        return iso;
+    }
+
+    public void setIso(Integer iso) {
+        this.iso = iso;
+    }
+
+    public Double getAperture() {
+        return aperture;
+    }
+
+    public void setAperture(Double aperture) {
+        this.aperture = aperture;
+    }
+
+    public Double getExposureTime() {
+        return exposureTime;
+    }
+
+    public void setExposureTime(Double exposureTime) {
+        this.exposureTime = exposureTime;
+    }
+
+    public Double getFocalLength() {
+        return focalLength;
+    }
+
+    public void setFocalLength(Double focalLength) {
+        this.focalLength = focalLength;
+    }
+
+    public LocalDateTime getCapturedAt() {
+        return capturedAt;
+    }
+
+    public void setCapturedAt(LocalDateTime capturedAt) {
+        this.capturedAt = capturedAt;
+    }
+}
@@ -1,27 +1,48 @@
 package server.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import server.id.TimeOrderedId;
 
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_post_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_post_image", columnList = "image")
+})
 public class PostModel {
 
     @Id
-    @GeneratedValue
+    @TimeOrderedId
     private Long id;
     private String name;
     private String topic;
     private String description;
     private String status; // e.g., Portrait, Landscape, Nature
     private String image;
+    @Column(length = 32)
+    private String placeholder; // BlurHash of the image, painted while it loads
     private String tag;
 
     private LocalDate createdAt; // Changed to LocalDate
     private LocalDate updatedAt; // Changed to LocalDate
 
-    @ManyToOne
+    // only ever changed by the batched increments of server.counter.EngagementCounters, never by entity saves
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long viewCount;
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long likeCount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
+    @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private UserModel user;
 
     public PostModel() {
@@ -88,6 +109,14 @@ public class PostModel {
         this.image = image;
     }
 
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    public void setPlaceholder(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
     public String getTag() {
         return tag;
     }
@@ -119,4 +148,20 @@ public class PostModel {
     public void setUser(UserModel user) {
         this.user = user;
     }
-}
\ No newline at end of file
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public void setViewCount(long viewCount) {
+        this.viewCount = viewCount;
+    }
+
+    public long getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(long likeCount) {
+        this.likeCount = likeCount;
+    }
+}
@@ -0,0 +1,88 @@
+package server.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * One tag on one post or progress entry. The owner and creation date are copied from the item so
+ * browsing a tag is a range scan of idx_tag_assignment_browse without touching the item tables.
+ */
+@Entity
+@Table(name = "tag_assignment",
+        uniqueConstraints = @UniqueConstraint(name = "uk_tag_assignment", columnNames = {"tag_id", "item_type", "item_id"}),
+        indexes = {
+                @Index(name = "idx_tag_assignment_browse", columnList = "tag_id, item_type, created_at, item_id"),
+                @Index(name = "idx_tag_assignment_item", columnList = "item_type, item_id")
+        })
+public class TagAssignment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long tagId;
+    @Column(length = 16)
+    private String itemType; // post or progress
+    private Long itemId;
+    private Long userId;
+    private LocalDate createdAt;
+
+    public TagAssignment() {
+    }
+
+    public TagAssignment(Long tagId, String itemType, Long itemId, Long userId, LocalDate createdAt) {
+        this.tagId = tagId;
+        this.itemType = itemType;
+        this.itemId = itemId;
+        this.userId = userId;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTagId() {
+        return tagId;
+    }
+
+    public void setTagId(Long tagId) {
+        this.tagId = tagId;
+    }
+
+    public String getItemType() {
+        return itemType;
+    }
+
+    public void setItemType(String itemType) {
+        this.itemType = itemType;
+    }
+
+    public Long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(Long itemId) {
+        this.itemId = itemId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDate createdAt) {
+        this.createdAt = createdAt;
+    }
+}
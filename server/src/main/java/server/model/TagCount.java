@@ -0,0 +1,65 @@
+package server.model;
+
+import jakarta.persistence.*;
+
+/**
+ * How many posts and progress entries carry a tag, for one user or, with user id 0, for everyone.
+ * Kept up to date on every write so tag clouds are read straight from idx_tag_count_cloud.
+ */
+@Entity
+@Table(name = "tag_count",
+        uniqueConstraints = @UniqueConstraint(name = "uk_tag_count", columnNames = {"tag_id", "user_id"}),
+        indexes = @Index(name = "idx_tag_count_cloud", columnList = "user_id, item_count"))
+public class TagCount {
+
+    public static final long GLOBAL = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long tagId;
+    private Long userId;
+    @Column(name = "item_count")
+    private long count;
+
+    public TagCount() {
+    }
+
+    public TagCount(Long tagId, Long userId, long count) {
+        this.tagId = tagId;
+        this.userId = userId;
+        this.count = count;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTagId() {
+        return tagId;
+    }
+
+    public void setTagId(Long tagId) {
+        this.tagId = tagId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -1,13 +1,13 @@
 package server.model;
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import server.id.TimeOrderedId;
 
 @Entity
 public class UserModel {
     @Id
-    @GeneratedValue
+    @TimeOrderedId
     private Long id;
     private String fullname;
     private String email;
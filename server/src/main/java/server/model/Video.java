@@ -1,9 +1,10 @@
 package server.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_image_key", columnList = "image_key"))
 public class Video {
 
     @Id
@@ -17,8 +18,13 @@ public class Video {
     private String imageName;
     private String imageType;
 
-    @Lob
-    private byte[] imageData; // Renamed from imageDate
+    // image bytes live in the media store; rows written before that still carry them in the
+    // image_data column, which is read once on first download and then cleared. Both are set by
+    // the server only: a client-supplied key would let deleting this row release another's image
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String imageKey;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long imageSize;
 
     // Getters and Setters
     public Long getId() {
@@ -77,11 +83,23 @@ public class Video {
         this.imageType = imageType;
     }
 
-    public byte[] getImageData() {
-        return imageData;
+    public String getImageKey() {
+        return imageKey;
     }
 
-    public void setImageData(byte[] imageData) {
-        this.imageData = imageData;
+    public void setImageKey(String imageKey) {
+        this.imageKey = imageKey;
+    }
+
+    public Long getImageSize() {
+        return imageSize;
+    }
+
+    public void setImageSize(Long imageSize) {
+        this.imageSize = imageSize;
+    }
+
+    public String getImageUrl() {
+        return imageName != null && id != null ? "/api/v1/users/" + id + "/image" : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package server.ownership;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import server.config.OwnershipProperties;
+import server.exception.UserNotFoundException;
+import server.model.UserModel;
+import server.repository.BlogRepository;
+import server.repository.LprogressRepository;
+import server.repository.OwnerSummary;
+import server.repository.PostRepository;
+import server.repository.UserRepository;
+
+import java.time.Duration;
+
+/**
+ * Near-cache for the user checks every post, blog and progress request starts with: whether the
+ * user exists, and who owns the item being read or changed. A hit answers without the database; a
+ * miss is one primary-key select of the user's name or of the item's owner column, not the whole
+ * entity.
+ * <p>
+ * An item never changes owner, so its entry only has to go when the item is deleted. A cached
+ * owner for an item deleted elsewhere merely lets the request reach the entity load, which then
+ * finds nothing. Missing users and items are not cached, so new rows are visible at once.
+ */
+@Component
+public class OwnershipCache {
+
+    public enum Kind {
+        POST, BLOG, PROGRESS
+    }
+
+    private record ItemKey(Kind kind, Long id) {
+    }
+
+    @Autowired
+    private OwnershipProperties ownershipProperties;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    private Cache<Long, OwnerSummary> users;
+    private Cache<ItemKey, Long> owners;
+
+    @PostConstruct
+    void init() {
+        Duration ttl = Duration.ofSeconds(Math.max(1, ownershipProperties.getTtlSeconds()));
+        users = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, ownershipProperties.getMaxUsers()))
+                .expireAfterWrite(ttl)
+                .build();
+        owners = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, ownershipProperties.getMaxItems()))
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * The user's id and name, or null when there is no such user.
+     */
+    public OwnerSummary user(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        return users.get(userId, id -> userRepository.findSummaryById(id).orElse(null));
+    }
+
+    public void requireUser(Long userId) {
+        if (user(userId) == null) {
+            throw new UserNotFoundException(userId);
+        }
+    }
+
+    /**
+     * A user to attach to a new item, checked through the cache and not loaded from the database.
+     */
+    public UserModel userReference(Long userId) {
+        requireUser(userId);
+        return userRepository.getReferenceById(userId);
+    }
+
+    /**
+     * Id of the user who owns the item, or null when the item does not exist.
+     */
+    public Long ownerOf(Kind kind, Long itemId) {
+        if (itemId == null) {
+            return null;
+        }
+        return owners.get(new ItemKey(kind, itemId), key -> switch (key.kind()) {
+            case POST -> postRepository.findOwnerId(key.id()).orElse(null);
+            case BLOG -> blogRepository.findOwnerId(key.id()).orElse(null);
+            case PROGRESS -> lprogressRepository.findOwnerId(key.id()).orElse(null);
+        });
+    }
+
+    /**
+     * Items of a deleted user can keep their entries: every ownership check asks for the user first.
+     */
+    public void invalidateUser(Long userId) {
+        users.invalidate(userId);
+    }
+
+    public void invalidate(Kind kind, Long itemId) {
+        owners.invalidate(new ItemKey(kind, itemId));
+    }
+}
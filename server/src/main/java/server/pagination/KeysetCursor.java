@@ -0,0 +1,50 @@
+package server.pagination;
+
+import server.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position in a list ordered by (createdAt desc, id desc).
+ * Clients only ever see the encoded form, so the layout can change without breaking them.
+ */
+public class KeysetCursor {
+
+    private final LocalDate createdAt;
+    private final Long id;
+
+    public KeysetCursor(LocalDate createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public LocalDate getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = createdAt.toEpochDay() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep < 0) {
+                throw new InvalidCursorException(cursor);
+            }
+            LocalDate createdAt = LocalDate.ofEpochDay(Long.parseLong(raw.substring(0, sep)));
+            Long id = Long.parseLong(raw.substring(sep + 1));
+            return new KeysetCursor(createdAt, id);
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
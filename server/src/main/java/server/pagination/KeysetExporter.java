@@ -0,0 +1,88 @@
+package server.pagination;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import server.config.PaginationProperties;
+
+import java.util.List;
+
+/**
+ * Streams a whole table as a JSON array or NDJSON by walking it in keyset batches: each batch is
+ * written and flushed before the next is read, so memory holds one batch at a time and the first
+ * rows reach the client while the rest are still being queried.
+ * <p>
+ * Sources must return DTO projections, not entities: with open-in-view the request's persistence
+ * context is bound to the writing thread too, so every entity read would stay managed in it until
+ * the export ends.
+ */
+@Component
+public class KeysetExporter {
+
+    public static final String JSON = "json";
+    public static final String NDJSON = "ndjson";
+
+    /**
+     * Reads the batch after {@code last} (the first batch when null), in a stable order.
+     */
+    @FunctionalInterface
+    public interface BatchSource<T> {
+        List<T> next(T last, int size);
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    public <T> ResponseEntity<StreamingResponseBody> export(String name, String format, BatchSource<T> source) {
+        boolean ndjson = NDJSON.equalsIgnoreCase(format);
+        if (!ndjson && !JSON.equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int batchSize = Math.max(1, paginationProperties.getExportBatchSize());
+        StreamingResponseBody body = out -> {
+            long rows = 0;
+            long start = System.currentTimeMillis();
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                T last = null;
+                while (true) {
+                    List<T> batch = source.next(last, batchSize);
+                    for (T row : batch) {
+                        generator.writeObject(row);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    }
+                    rows += batch.size();
+                    generator.flush();
+                    if (batch.size() < batchSize) {
+                        break;
+                    }
+                    last = batch.get(batch.size() - 1);
+                }
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            } catch (RuntimeException e) {
+                // the response is already committed; a truncated body is all the client can be told
+                System.err.println("Export of " + name + " failed after " + rows + " rows: " + e.getMessage());
+                throw e;
+            }
+            System.out.println("Exported " + rows + " " + name + " in " + (System.currentTimeMillis() - start) + " ms");
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .header("Content-Disposition", "attachment; filename=\"" + name + (ndjson ? ".ndjson\"" : ".json\""))
+                .body(body);
+    }
+}
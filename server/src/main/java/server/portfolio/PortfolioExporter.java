@@ -0,0 +1,201 @@
+package server.portfolio;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import server.media.MediaEntry;
+import server.media.MediaDirectories;
+import server.media.MediaStore;
+import server.ownership.OwnershipCache;
+import server.pagination.KeysetExporter;
+import server.repository.BlogRepository;
+import server.repository.LprogressRepository;
+import server.repository.PostRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads everything a user has made in one response: a ZIP holding {@code manifest.ndjson},
+ * one line per post, progress entry and blog, and every image they use under {@code images/}.
+ * The images are stored uncompressed, as they already are, and copied from the media store to
+ * the response through a fixed buffer, so memory holds the manifest but never an image and
+ * nothing is written to disk.
+ * <p>
+ * The same portfolio always produces the same bytes, so a broken download is resumed with a
+ * Range request; the ETag changes with the portfolio and guards the resume through If-Range.
+ */
+@Component
+public class PortfolioExporter {
+
+    public static final String ZIP = "zip";
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private OwnershipCache ownershipCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // stored images never change, so a CRC computed for one download serves every later one
+    private final Cache<String, Long> crcs = Caffeine.newBuilder().maximumSize(100_000).build();
+
+    public ResponseEntity<StreamingResponseBody> export(Long userId, String format, String range, String ifRange) {
+        boolean ndjson = KeysetExporter.NDJSON.equalsIgnoreCase(format);
+        if (!ndjson && !ZIP.equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ownershipCache.requireUser(userId);
+
+        Map<String, MediaEntry> images = new LinkedHashMap<>();
+        ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+        postRepository.findSummariesByUser(userId).forEach(post ->
+                addLine(manifest, images, "post", post, MediaDirectories.POST_DIR, post.getImage()));
+        lprogressRepository.findSummariesByUser(userId).forEach(progress ->
+                addLine(manifest, images, "progress", progress, MediaDirectories.UPLOAD_DIR, progress.getImage()));
+        blogRepository.findSummariesByUser(userId).forEach(blog ->
+                addLine(manifest, images, "blog", blog, MediaDirectories.UPLOAD_DIR, blog.getImage()));
+        byte[] manifestBytes = manifest.toByteArray();
+
+        if (ndjson) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"portfolio-" + userId + ".ndjson\"")
+                    .contentLength(manifestBytes.length)
+                    .body(out -> out.write(manifestBytes));
+        }
+
+        long newest = 0;
+        for (MediaEntry image : images.values()) {
+            newest = Math.max(newest, image.lastModified());
+        }
+        List<StoredZip.Entry> entries = new ArrayList<>(images.size() + 1);
+        entries.add(new StoredZip.Entry("manifest.ndjson", manifestBytes.length, newest, null,
+                () -> new ByteArrayInputStream(manifestBytes)));
+        images.forEach((path, image) -> entries.add(new StoredZip.Entry(path, image.length(), image.lastModified(),
+                image.getKey() + ':' + image.length() + ':' + image.lastModified(), image::openStream)));
+        StoredZip zip = new StoredZip(entries, crcs.asMap());
+        String etag = etagOf(manifestBytes, images);
+
+        long length = zip.length();
+        long first = 0;
+        long last = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        Matcher matcher = range == null ? null : RANGE.matcher(range.trim());
+        // a stale If-Range, or a range we do not serve (several of them), gets the whole file
+        if (matcher != null && matcher.matches() && (ifRange == null || ifRange.equals(etag))
+                && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            if (matcher.group(1).isEmpty()) {
+                first = Math.max(0, length - Long.parseLong(matcher.group(2)));
+            } else {
+                first = Long.parseLong(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    last = Math.min(last, Long.parseLong(matcher.group(2)));
+                }
+            }
+            if (first >= length || first > last) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .eTag(etag)
+                        .build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+        }
+
+        long from = first;
+        long to = last;
+        StreamingResponseBody body = out -> {
+            long start = System.currentTimeMillis();
+            try {
+                zip.write(out, from, to);
+            } catch (IOException | RuntimeException e) {
+                // the response is already committed; a truncated body is all the client can be told
+                System.err.println("Portfolio export of user " + userId + " failed: " + e.getMessage());
+                throw e;
+            }
+            System.out.println("Exported portfolio of user " + userId + " (" + images.size() + " images, bytes "
+                    + from + "-" + to + " of " + length + ") in " + (System.currentTimeMillis() - start) + " ms");
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"portfolio-" + userId + ".zip\"")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(etag)
+                .contentLength(last - first + 1);
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + first + "-" + last + "/" + length);
+        }
+        return response.body(body);
+    }
+
+    private void addLine(ByteArrayOutputStream manifest, Map<String, MediaEntry> images, String type, Object item,
+                         String legacyDir, String image) {
+        String path = null;
+        if (image != null && !image.isEmpty()) {
+            // store keys are shared by all item types; legacy names are only unique within their directory
+            path = MediaStore.isStoreKey(image) ? "images/" + image
+                    : "images/" + (MediaDirectories.POST_DIR.equals(legacyDir) ? "post" : "uploads") + "/" + image;
+            if (!images.containsKey(path)) {
+                MediaEntry entry = mediaStore.resolve(legacyDir, image, null);
+                if (entry == null) {
+                    path = null;
+                } else {
+                    images.put(path, entry);
+                }
+            }
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", type);
+        line.put("file", path);
+        line.put("item", item);
+        try {
+            manifest.write(objectMapper.writeValueAsBytes(line));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        manifest.write('\n');
+    }
+
+    private static String etagOf(byte[] manifest, Map<String, MediaEntry> images) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(manifest);
+            images.forEach((path, image) -> digest.update((path + ':' + image.length() + ':' + image.lastModified() + '\n')
+                    .getBytes(StandardCharsets.UTF_8)));
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
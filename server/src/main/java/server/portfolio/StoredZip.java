@@ -0,0 +1,277 @@
+package server.portfolio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An uncompressed ZIP laid out before a byte of it is written: every header and entry has a fixed
+ * position, so the total length is known up front and any byte range can be produced on its own.
+ * Entries are written as they are read, through one small buffer, whatever their size.
+ * <p>
+ * The CRC of an entry follows its data in a data descriptor, so it is computed while the entry is
+ * streamed. A range that starts past an entry needs its CRC only for the central directory and
+ * takes it from {@code crcCache} when that entry was streamed before, otherwise it reads the entry
+ * once more. Readers that use the central directory (unzip, desktop archive tools,
+ * {@link java.util.zip.ZipFile}) open the result; ZIP64 records are added when offsets outgrow 32
+ * bits. Single entries must stay under 4 GB.
+ */
+final class StoredZip {
+
+    interface Content {
+        InputStream open() throws IOException;
+    }
+
+    static final class Entry {
+        private final byte[] name;
+        private final long size;
+        private final int dosTime;
+        private final Content content;
+        // identifies unchanged content across requests for the CRC cache, null to skip the cache
+        private final String crcKey;
+        private long offset;
+        private Long crc;
+
+        Entry(String name, long size, long modified, String crcKey, Content content) {
+            if (size >= ZIP32_LIMIT) {
+                throw new IllegalArgumentException("Entry too large for the export: " + name);
+            }
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.size = size;
+            this.dosTime = dosTime(modified);
+            this.crcKey = crcKey;
+            this.content = content;
+        }
+    }
+
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+    private static final int LOCAL_HEADER = 30;
+    private static final int DESCRIPTOR = 16;
+    private static final int CENTRAL_HEADER = 46;
+    private static final int ZIP64_OFFSET_EXTRA = 12;
+    private static final int ZIP64_END = 56;
+    private static final int ZIP64_LOCATOR = 20;
+    private static final int END = 22;
+    // bit 3: CRC and sizes follow the data; bit 11: names are UTF-8
+    private static final int FLAGS = 1 << 3 | 1 << 11;
+    private static final int BUFFER = 64 * 1024;
+
+    private final List<Entry> entries;
+    private final Map<String, Long> crcCache;
+    private final long centralOffset;
+    private final long centralSize;
+    private final boolean zip64;
+    private final long length;
+
+    StoredZip(List<Entry> entries, Map<String, Long> crcCache) {
+        this.entries = entries;
+        this.crcCache = crcCache;
+        long position = 0;
+        for (Entry entry : entries) {
+            entry.offset = position;
+            position += LOCAL_HEADER + entry.name.length + entry.size + DESCRIPTOR;
+        }
+        centralOffset = position;
+        long central = 0;
+        for (Entry entry : entries) {
+            central += CENTRAL_HEADER + entry.name.length + (entry.offset >= ZIP32_LIMIT ? ZIP64_OFFSET_EXTRA : 0);
+        }
+        centralSize = central;
+        zip64 = centralOffset >= ZIP32_LIMIT || centralSize >= ZIP32_LIMIT || entries.size() >= 0xFFFF;
+        length = centralOffset + centralSize + (zip64 ? ZIP64_END + ZIP64_LOCATOR : 0) + END;
+    }
+
+    long length() {
+        return length;
+    }
+
+    /**
+     * Writes bytes {@code first} to {@code last}, inclusive.
+     */
+    void write(OutputStream out, long first, long last) throws IOException {
+        Writer writer = new Writer(out, first, last);
+        for (Entry entry : entries) {
+            writer.bytes(LOCAL_HEADER + entry.name.length, () -> localHeader(entry));
+            writer.data(entry);
+            writer.bytes(DESCRIPTOR, () -> descriptor(entry));
+        }
+        for (Entry entry : entries) {
+            int extra = entry.offset >= ZIP32_LIMIT ? ZIP64_OFFSET_EXTRA : 0;
+            writer.bytes(CENTRAL_HEADER + entry.name.length + extra, () -> centralHeader(entry, extra));
+        }
+        if (zip64) {
+            writer.bytes(ZIP64_END, this::zip64End);
+            writer.bytes(ZIP64_LOCATOR, this::zip64Locator);
+        }
+        writer.bytes(END, this::end);
+    }
+
+    private interface Bytes {
+        byte[] get() throws IOException;
+    }
+
+    private final class Writer {
+        private final OutputStream out;
+        private final long first;
+        private final long last;
+        private long position;
+
+        Writer(OutputStream out, long first, long last) {
+            this.out = out;
+            this.first = first;
+            this.last = last;
+        }
+
+        void bytes(long length, Bytes bytes) throws IOException {
+            // headers outside the range are never built, so their CRCs are never needed
+            if (position + length > first && position <= last) {
+                byte[] b = bytes.get();
+                int from = (int) Math.max(0, first - position);
+                int to = (int) Math.min(length, last + 1 - position);
+                out.write(b, from, to - from);
+            }
+            position += length;
+        }
+
+        void data(Entry entry) throws IOException {
+            long start = position;
+            position += entry.size;
+            if (start + entry.size <= first || start > last) {
+                return;
+            }
+            long from = Math.max(0, first - start);
+            long to = Math.min(entry.size, last + 1 - start);
+            Long known = knownCrc(entry);
+            CRC32 crc = known == null ? new CRC32() : null;
+            byte[] buffer = new byte[BUFFER];
+            try (InputStream in = entry.content.open()) {
+                long read = 0;
+                if (crc == null) {
+                    in.skipNBytes(from);
+                    read = from;
+                }
+                while (read < to) {
+                    int n = in.read(buffer, 0, (int) Math.min(buffer.length, to - read));
+                    if (n < 0) {
+                        throw new EOFException("Export entry shrank while streaming");
+                    }
+                    if (crc != null) {
+                        crc.update(buffer, 0, n);
+                    }
+                    // bytes before the range are read only to bring the CRC up to date
+                    int skip = (int) Math.max(0, Math.min(n, from - read));
+                    out.write(buffer, skip, n - skip);
+                    read += n;
+                }
+            }
+            if (crc != null && to == entry.size) {
+                remember(entry, crc.getValue());
+            }
+        }
+    }
+
+    private Long knownCrc(Entry entry) {
+        if (entry.crc == null && entry.crcKey != null) {
+            entry.crc = crcCache.get(entry.crcKey);
+        }
+        return entry.crc;
+    }
+
+    private void remember(Entry entry, long crc) {
+        entry.crc = crc;
+        if (entry.crcKey != null) {
+            crcCache.put(entry.crcKey, crc);
+        }
+    }
+
+    private long crcOf(Entry entry) throws IOException {
+        Long known = knownCrc(entry);
+        if (known != null) {
+            return known;
+        }
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER];
+        try (InputStream in = entry.content.open()) {
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        remember(entry, crc.getValue());
+        return crc.getValue();
+    }
+
+    private byte[] localHeader(Entry entry) {
+        ByteBuffer b = buffer(LOCAL_HEADER + entry.name.length);
+        b.putInt(0x04034b50).putShort((short) 20).putShort((short) FLAGS).putShort((short) 0)
+                .putInt(entry.dosTime).putInt(0).putInt(0).putInt(0)
+                .putShort((short) entry.name.length).putShort((short) 0).put(entry.name);
+        return b.array();
+    }
+
+    private byte[] descriptor(Entry entry) throws IOException {
+        ByteBuffer b = buffer(DESCRIPTOR);
+        b.putInt(0x08074b50).putInt((int) crcOf(entry)).putInt((int) entry.size).putInt((int) entry.size);
+        return b.array();
+    }
+
+    private byte[] centralHeader(Entry entry, int extra) throws IOException {
+        ByteBuffer b = buffer(CENTRAL_HEADER + entry.name.length + extra);
+        short version = (short) (extra > 0 ? 45 : 20);
+        b.putInt(0x02014b50).putShort(version).putShort(version).putShort((short) FLAGS).putShort((short) 0)
+                .putInt(entry.dosTime).putInt((int) crcOf(entry)).putInt((int) entry.size).putInt((int) entry.size)
+                .putShort((short) entry.name.length).putShort((short) extra).putShort((short) 0)
+                .putShort((short) 0).putShort((short) 0).putInt(0)
+                .putInt(extra > 0 ? (int) ZIP32_LIMIT : (int) entry.offset).put(entry.name);
+        if (extra > 0) {
+            b.putShort((short) 0x0001).putShort((short) 8).putLong(entry.offset);
+        }
+        return b.array();
+    }
+
+    private byte[] zip64End() {
+        ByteBuffer b = buffer(ZIP64_END);
+        b.putInt(0x06064b50).putLong(ZIP64_END - 12).putShort((short) 45).putShort((short) 45)
+                .putInt(0).putInt(0).putLong(entries.size()).putLong(entries.size())
+                .putLong(centralSize).putLong(centralOffset);
+        return b.array();
+    }
+
+    private byte[] zip64Locator() {
+        ByteBuffer b = buffer(ZIP64_LOCATOR);
+        b.putInt(0x07064b50).putInt(0).putLong(centralOffset + centralSize).putInt(1);
+        return b.array();
+    }
+
+    private byte[] end() {
+        ByteBuffer b = buffer(END);
+        short count = (short) (zip64 ? 0xFFFF : entries.size());
+        b.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort(count).putShort(count)
+                .putInt(zip64 ? (int) ZIP32_LIMIT : (int) centralSize)
+                .putInt(zip64 ? (int) ZIP32_LIMIT : (int) centralOffset).putShort((short) 0);
+        return b.array();
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int dosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+        if (time.getYear() < 1980) {
+            return 1 << 21 | 1 << 16; // 1980-01-01 00:00
+        }
+        int date = (time.getYear() - 1980) << 9 | time.getMonthValue() << 5 | time.getDayOfMonth();
+        int clock = time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() / 2;
+        return date << 16 | clock;
+    }
+}
@@ -0,0 +1,7 @@
+package server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import server.model.BackfillCursor;
+
+public interface BackfillCursorRepository extends JpaRepository<BackfillCursor, String> {
+}
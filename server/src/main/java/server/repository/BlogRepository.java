@@ -2,10 +2,72 @@ package server.repository;
 
 import server.model.BlogModel;
 import server.model.UserModel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+@Transactional(readOnly = true)
 public interface BlogRepository extends JpaRepository<BlogModel, Long> {
+    // list rows and their owner in a single select, instead of the entity plus one user select per owner
+    String SUMMARY = "select new server.repository.BlogSummary(b.id, b.title, b.content, b.author, b.category, " +
+            "b.image, b.placeholder, b.createdAt, u.id, u.fullname) ";
+
     List<BlogModel> findByUser(UserModel user);
-}
\ No newline at end of file
+
+    @Query(SUMMARY + "from BlogModel b left join b.user u where u.id = :userId order by b.id")
+    List<BlogSummary> findSummariesByUser(@Param("userId") Long userId);
+
+    @Query(SUMMARY + "from BlogModel b left join b.user u where b.id in :ids")
+    List<BlogSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // id-ordered batches for rebuilding the search index
+    @Query(SUMMARY + "from BlogModel b left join b.user u where b.id > :after order by b.id")
+    List<BlogSummary> findSummariesAfterId(@Param("after") Long after, Limit limit);
+
+    // Keyset pagination over (createdAt desc, id desc), backed by idx_blog_created_id
+    @Query(SUMMARY + "from BlogModel b left join b.user u order by b.createdAt desc, b.id desc")
+    List<BlogSummary> findFirstPage(Limit limit);
+
+    @Query(SUMMARY + "from BlogModel b left join b.user u " +
+            "where b.createdAt < :createdAt or (b.createdAt = :createdAt and b.id < :id) " +
+            "order by b.createdAt desc, b.id desc")
+    List<BlogSummary> findPageAfter(@Param("createdAt") LocalDate createdAt, @Param("id") Long id, Limit limit);
+
+    // Blogs written before createdAt existed would never be reached by a keyset query
+    @Modifying
+    @Transactional
+    @Query("update BlogModel b set b.createdAt = :date where b.createdAt is null")
+    int backfillCreatedAt(@Param("date") LocalDate date);
+
+    boolean existsByImage(String image);
+
+    // the owner column alone, by primary key, for ownership checks
+    @Query("select b.user.id from BlogModel b where b.id = :id")
+    Optional<Long> findOwnerId(@Param("id") Long id);
+
+    // rows still waiting for a placeholder, in id order so the backfill can resume after any id
+    @Query("select b.id as id, b.image as image from BlogModel b " +
+            "where b.image is not null and b.placeholder is null and b.id > :after order by b.id")
+    List<ImageRow> findMissingPlaceholders(@Param("after") Long after, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("update BlogModel b set b.placeholder = :placeholder where b.id = :id and b.image = :image")
+    int setPlaceholder(@Param("id") Long id, @Param("image") String image, @Param("placeholder") String placeholder);
+
+    // every image column value, for media garbage collection
+    @Query("select b.image from BlogModel b where b.image is not null")
+    List<String> findAllImages();
+
+    // persisted counts only; EngagementCounters adds what has not been flushed yet
+    @Query("select b.viewCount as viewCount, b.likeCount as likeCount from BlogModel b where b.id = :id")
+    Optional<CountsRow> findCounts(@Param("id") Long id);
+}
@@ -0,0 +1,68 @@
+package server.repository;
+
+import java.time.LocalDate;
+
+/**
+ * A blog as shown in lists, read in one query together with its owner's id and name.
+ */
+public class BlogSummary {
+
+    private final Long id;
+    private final String title;
+    private final String content;
+    private final String author;
+    private final String category;
+    private final String image;
+    private final String placeholder;
+    private final LocalDate createdAt;
+    private final OwnerSummary user;
+
+    public BlogSummary(Long id, String title, String content, String author, String category, String image,
+                       String placeholder, LocalDate createdAt, Long userId, String userFullname) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        this.author = author;
+        this.category = category;
+        this.image = image;
+        this.placeholder = placeholder;
+        this.createdAt = createdAt;
+        this.user = OwnerSummary.of(userId, userFullname);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    public LocalDate getCreatedAt() {
+        return createdAt;
+    }
+
+    public OwnerSummary getUser() {
+        return user;
+    }
+}
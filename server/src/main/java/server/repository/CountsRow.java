@@ -0,0 +1,10 @@
+package server.repository;
+
+/**
+ * Persisted view and like counts of a post or blog, without pending increments.
+ */
+public interface CountsRow {
+    long getViewCount();
+
+    long getLikeCount();
+}
@@ -0,0 +1,27 @@
+package server.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import server.model.Follow;
+
+import java.util.List;
+
+public interface FollowRepository extends JpaRepository<Follow, Long> {
+
+    // id-ordered batches for loading the follow graph at startup
+    List<Follow> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Follow f where f.followerId = :followerId and f.followeeId = :followeeId")
+    int deleteFollow(@Param("followerId") Long followerId, @Param("followeeId") Long followeeId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Follow f where f.followerId = :userId or f.followeeId = :userId")
+    int deleteAllOfUser(@Param("userId") Long userId);
+}
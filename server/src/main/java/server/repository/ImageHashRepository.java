@@ -0,0 +1,13 @@
+package server.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import server.model.ImageHash;
+
+import java.util.List;
+
+public interface ImageHashRepository extends JpaRepository<ImageHash, String> {
+
+    // batches in primary key order, for loading the index
+    List<ImageHash> findByNameGreaterThanOrderByNameAsc(String after, Limit limit);
+}
@@ -0,0 +1,10 @@
+package server.repository;
+
+/**
+ * Id and image column of a post, blog or progress entry, for background jobs over images.
+ */
+public interface ImageRow {
+    Long getId();
+
+    String getImage();
+}
@@ -0,0 +1,15 @@
+package server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import server.model.ImportRecord;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ImportRecordRepository extends JpaRepository<ImportRecord, Long> {
+
+    // everything a previous run of the same import already committed, read once per request
+    List<ImportRecord> findByUserIdAndImportId(Long userId, String importId);
+
+    Optional<ImportRecord> findByUserIdAndImportIdAndItemKey(Long userId, String importId, String itemKey);
+}
@@ -1,11 +1,63 @@
 package server.repository;
 
 import server.model.LprogressModel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import server.model.UserModel;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+@Transactional(readOnly = true)
 public interface LprogressRepository extends JpaRepository<LprogressModel, Long> {
+    // list rows and their owner in a single select, instead of the entity plus one user select per owner
+    String SUMMARY = "select new server.repository.ProgressSummary(l.id, l.name, l.topic, l.description, l.status, " +
+            "l.image, l.placeholder, l.tag, l.createdAt, l.updatedAt, u.id, u.fullname) ";
+
     List<LprogressModel> findByUser(UserModel user);
+
+    @Query(SUMMARY + "from LprogressModel l left join l.user u where u.id = :userId order by l.id")
+    List<ProgressSummary> findSummariesByUser(@Param("userId") Long userId);
+
+    @Query(SUMMARY + "from LprogressModel l left join l.user u where l.id in :ids")
+    List<ProgressSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // id-ordered batches for rebuilding the search index
+    @Query(SUMMARY + "from LprogressModel l left join l.user u where l.id > :after order by l.id")
+    List<ProgressSummary> findSummariesAfterId(@Param("after") Long after, Limit limit);
+
+    // Keyset pagination over (createdAt desc, id desc), backed by idx_progress_created_id
+    @Query(SUMMARY + "from LprogressModel l left join l.user u order by l.createdAt desc, l.id desc")
+    List<ProgressSummary> findFirstPage(Limit limit);
+
+    @Query(SUMMARY + "from LprogressModel l left join l.user u " +
+            "where l.createdAt < :createdAt or (l.createdAt = :createdAt and l.id < :id) " +
+            "order by l.createdAt desc, l.id desc")
+    List<ProgressSummary> findPageAfter(@Param("createdAt") LocalDate createdAt, @Param("id") Long id, Limit limit);
+
+    boolean existsByImage(String image);
+
+    // the owner column alone, by primary key, for ownership checks
+    @Query("select p.user.id from LprogressModel p where p.id = :id")
+    Optional<Long> findOwnerId(@Param("id") Long id);
+
+    // rows still waiting for a placeholder, in id order so the backfill can resume after any id
+    @Query("select l.id as id, l.image as image from LprogressModel l " +
+            "where l.image is not null and l.placeholder is null and l.id > :after order by l.id")
+    List<ImageRow> findMissingPlaceholders(@Param("after") Long after, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("update LprogressModel l set l.placeholder = :placeholder where l.id = :id and l.image = :image")
+    int setPlaceholder(@Param("id") Long id, @Param("image") String image, @Param("placeholder") String placeholder);
+
+    // every image column value, for media garbage collection
+    @Query("select l.image from LprogressModel l where l.image is not null")
+    List<String> findAllImages();
 }
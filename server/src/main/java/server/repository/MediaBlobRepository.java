@@ -0,0 +1,31 @@
+package server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import server.model.MediaBlob;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, String> {
+
+    // Counts are changed in place so concurrent uploads of the same bytes never lose an update
+    @Modifying
+    @Query("update MediaBlob m set m.refCount = m.refCount + 1, m.lastAcquiredAt = :now where m.mediaKey = :key")
+    int increment(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update MediaBlob m set m.refCount = m.refCount - 1 where m.mediaKey = :key and m.refCount > 0")
+    int decrement(@Param("key") String key);
+
+    @Query("select m.refCount from MediaBlob m where m.mediaKey = :key")
+    Optional<Long> findRefCount(@Param("key") String key);
+
+    @Modifying
+    @Transactional
+    @Query("update MediaBlob m set m.refCount = :count where m.mediaKey = :key")
+    int setRefCount(@Param("key") String key, @Param("count") long count);
+}
@@ -0,0 +1,14 @@
+package server.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import server.model.MediaDeletion;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MediaDeletionRepository extends JpaRepository<MediaDeletion, Long> {
+    List<MediaDeletion> findByEnqueuedAtBeforeOrderByIdAsc(LocalDateTime cutoff, Limit limit);
+
+    boolean existsByDirAndName(String dir, String name);
+}
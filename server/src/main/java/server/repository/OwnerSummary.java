@@ -0,0 +1,27 @@
+package server.repository;
+
+/**
+ * The owner of a listed post, blog or progress entry: just enough to link to and name them.
+ */
+public class OwnerSummary {
+
+    private final Long id;
+    private final String fullname;
+
+    public OwnerSummary(Long id, String fullname) {
+        this.id = id;
+        this.fullname = fullname;
+    }
+
+    static OwnerSummary of(Long id, String fullname) {
+        return id == null ? null : new OwnerSummary(id, fullname);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFullname() {
+        return fullname;
+    }
+}
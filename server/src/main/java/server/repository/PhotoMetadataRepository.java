@@ -0,0 +1,7 @@
+package server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import server.model.PhotoMetadata;
+
+public interface PhotoMetadataRepository extends JpaRepository<PhotoMetadata, String> {
+}
@@ -2,10 +2,76 @@ package server.repository;
 
 import server.model.UserModel;
 import server.model.PostModel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+// query methods run read-only, so GET requests can serve them from a replica (server.datasource)
+@Transactional(readOnly = true)
 public interface PostRepository extends JpaRepository<PostModel, Long> {
+    // list rows and their owner in a single select, instead of the entity plus one user select per owner
+    String SUMMARY = "select new server.repository.PostSummary(p.id, p.name, p.topic, p.description, p.status, " +
+            "p.image, p.placeholder, p.tag, p.createdAt, p.updatedAt, u.id, u.fullname) ";
+
     List<PostModel> findByUser(UserModel user);
-}
\ No newline at end of file
+
+    @Query(SUMMARY + "from PostModel p left join p.user u where u.id = :userId order by p.id")
+    List<PostSummary> findSummariesByUser(@Param("userId") Long userId);
+
+    @Query(SUMMARY + "from PostModel p left join p.user u where p.id in :ids")
+    List<PostSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // id-ordered batches for rebuilding the search index
+    @Query(SUMMARY + "from PostModel p left join p.user u where p.id > :after order by p.id")
+    List<PostSummary> findSummariesAfterId(@Param("after") Long after, Limit limit);
+
+    // Keyset pagination over (createdAt desc, id desc), backed by idx_post_created_id
+    @Query(SUMMARY + "from PostModel p left join p.user u order by p.createdAt desc, p.id desc")
+    List<PostSummary> findFirstPage(Limit limit);
+
+    @Query(SUMMARY + "from PostModel p left join p.user u " +
+            "where p.createdAt < :createdAt or (p.createdAt = :createdAt and p.id < :id) " +
+            "order by p.createdAt desc, p.id desc")
+    List<PostSummary> findPageAfter(@Param("createdAt") LocalDate createdAt, @Param("id") Long id, Limit limit);
+
+    boolean existsByImage(String image);
+
+    // the owner column alone, by primary key, for ownership checks
+    @Query("select p.user.id from PostModel p where p.id = :id")
+    Optional<Long> findOwnerId(@Param("id") Long id);
+
+    // Photo search: idx_photo_lens_iso / idx_photo_camera_iso select the metadata rows, idx_post_image joins the posts
+    @Query(SUMMARY + "from PhotoMetadata m join PostModel p on p.image = m.mediaKey left join p.user u " +
+            "where m.lens = :lens and m.iso >= :minIso order by p.createdAt desc, p.id desc")
+    List<PostSummary> findByLensAndMinIso(@Param("lens") String lens, @Param("minIso") int minIso, Limit limit);
+
+    @Query(SUMMARY + "from PhotoMetadata m join PostModel p on p.image = m.mediaKey left join p.user u " +
+            "where m.cameraModel = :camera and m.iso >= :minIso order by p.createdAt desc, p.id desc")
+    List<PostSummary> findByCameraAndMinIso(@Param("camera") String camera, @Param("minIso") int minIso, Limit limit);
+
+    // rows still waiting for a placeholder, in id order so the backfill can resume after any id
+    @Query("select p.id as id, p.image as image from PostModel p " +
+            "where p.image is not null and p.placeholder is null and p.id > :after order by p.id")
+    List<ImageRow> findMissingPlaceholders(@Param("after") Long after, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("update PostModel p set p.placeholder = :placeholder where p.id = :id and p.image = :image")
+    int setPlaceholder(@Param("id") Long id, @Param("image") String image, @Param("placeholder") String placeholder);
+
+    // every image column value, for media garbage collection
+    @Query("select p.image from PostModel p where p.image is not null")
+    List<String> findAllImages();
+
+    // persisted counts only; EngagementCounters adds what has not been flushed yet
+    @Query("select p.viewCount as viewCount, p.likeCount as likeCount from PostModel p where p.id = :id")
+    Optional<CountsRow> findCounts(@Param("id") Long id);
+}
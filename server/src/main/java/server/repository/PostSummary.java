@@ -0,0 +1,81 @@
+package server.repository;
+
+import java.time.LocalDate;
+
+/**
+ * A post as shown in lists, read in one query together with its owner's id and name.
+ */
+public class PostSummary {
+
+    private final Long id;
+    private final String name;
+    private final String topic;
+    private final String description;
+    private final String status;
+    private final String image;
+    private final String placeholder;
+    private final String tag;
+    private final LocalDate createdAt;
+    private final LocalDate updatedAt;
+    private final OwnerSummary user;
+
+    public PostSummary(Long id, String name, String topic, String description, String status, String image,
+                       String placeholder, String tag, LocalDate createdAt, LocalDate updatedAt,
+                       Long userId, String userFullname) {
+        this.id = id;
+        this.name = name;
+        this.topic = topic;
+        this.description = description;
+        this.status = status;
+        this.image = image;
+        this.placeholder = placeholder;
+        this.tag = tag;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.user = OwnerSummary.of(userId, userFullname);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public LocalDate getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDate getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public OwnerSummary getUser() {
+        return user;
+    }
+}
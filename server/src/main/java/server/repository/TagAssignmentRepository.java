@@ -0,0 +1,26 @@
+package server.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import server.model.TagAssignment;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface TagAssignmentRepository extends JpaRepository<TagAssignment, Long> {
+
+    List<TagAssignment> findByItemTypeAndItemId(String itemType, Long itemId);
+
+    // Keyset pagination over (createdAt desc, itemId desc), backed by idx_tag_assignment_browse
+    @Query("select a from TagAssignment a where a.tagId = :tagId and a.itemType = :itemType " +
+            "order by a.createdAt desc, a.itemId desc")
+    List<TagAssignment> findFirstPage(@Param("tagId") Long tagId, @Param("itemType") String itemType, Limit limit);
+
+    @Query("select a from TagAssignment a where a.tagId = :tagId and a.itemType = :itemType " +
+            "and (a.createdAt < :createdAt or (a.createdAt = :createdAt and a.itemId < :itemId)) " +
+            "order by a.createdAt desc, a.itemId desc")
+    List<TagAssignment> findPageAfter(@Param("tagId") Long tagId, @Param("itemType") String itemType,
+                                      @Param("createdAt") LocalDate createdAt, @Param("itemId") Long itemId, Limit limit);
+}
@@ -0,0 +1,32 @@
+package server.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import server.model.TagCount;
+
+import java.util.List;
+
+public interface TagCountRepository extends JpaRepository<TagCount, Long> {
+
+    // creates the row or adds to it in one statement, so writers adding the same tag never collide
+    @Modifying
+    @Query(value = "insert into tag_count (tag_id, user_id, item_count) values (:tagId, :userId, :delta) " +
+            "on duplicate key update item_count = item_count + :delta", nativeQuery = true)
+    int increment(@Param("tagId") Long tagId, @Param("userId") Long userId, @Param("delta") long delta);
+
+    @Modifying
+    @Query("update TagCount c set c.count = c.count + :delta where c.tagId = :tagId and c.userId = :userId")
+    int addToCount(@Param("tagId") Long tagId, @Param("userId") Long userId, @Param("delta") long delta);
+
+    @Modifying
+    @Query("delete from TagCount c where c.tagId = :tagId and c.userId = :userId and c.count <= 0")
+    int deleteIfEmpty(@Param("tagId") Long tagId, @Param("userId") Long userId);
+
+    // Tag cloud: the top of idx_tag_count_cloud for one user (0 for everyone)
+    @Query("select t.name as name, c.count as count from TagCount c join Tag t on t.id = c.tagId " +
+            "where c.userId = :userId order by c.count desc, t.name")
+    List<TagFacet> findCloud(@Param("userId") Long userId, Limit limit);
+}
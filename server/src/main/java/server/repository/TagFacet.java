@@ -0,0 +1,10 @@
+package server.repository;
+
+/**
+ * A tag and how many items carry it.
+ */
+public interface TagFacet {
+    String getName();
+
+    long getCount();
+}
@@ -0,0 +1,15 @@
+package server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import server.model.Tag;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TagRepository extends JpaRepository<Tag, Long> {
+
+    Optional<Tag> findByName(String name);
+
+    List<Tag> findByIdIn(Collection<Long> ids);
+}
@@ -1,11 +1,26 @@
 package server.repository;
 
 import server.model.UserModel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
+@Transactional(readOnly = true)
 public interface UserRepository extends JpaRepository<UserModel, Long> {
 
     Optional<UserModel> findByEmail(String email);
+
+    // id and name only, for the existence checks behind OwnershipCache
+    @Query("select new server.repository.OwnerSummary(u.id, u.fullname) from UserModel u where u.id = :id")
+    Optional<OwnerSummary> findSummaryById(@Param("id") Long id);
+
+    // keyset batches for the streaming export
+    @Query("select new server.repository.UserSummary(u.id, u.fullname, u.email) from UserModel u " +
+            "where u.id > :after order by u.id")
+    List<UserSummary> findExportBatch(@Param("after") Long after, Limit limit);
 }
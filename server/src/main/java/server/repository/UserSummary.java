@@ -0,0 +1,29 @@
+package server.repository;
+
+/**
+ * A user as exported: id, name and email, never the password.
+ */
+public class UserSummary {
+
+    private final Long id;
+    private final String fullname;
+    private final String email;
+
+    public UserSummary(Long id, String fullname, String email) {
+        this.id = id;
+        this.fullname = fullname;
+        this.email = email;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFullname() {
+        return fullname;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+}
@@ -0,0 +1,71 @@
+package server.repository;
+
+/**
+ * A videos row as exported, with the same fields as the {@link server.model.Video} JSON, read
+ * without loading entities.
+ */
+public class VideoSummary {
+
+    private final Long id;
+    private final String name;
+    private final Long age;
+    private final String email;
+    private final String description;
+    private final String imageName;
+    private final String imageType;
+    private final String imageKey;
+    private final Long imageSize;
+
+    public VideoSummary(Long id, String name, Long age, String email, String description, String imageName,
+                        String imageType, String imageKey, Long imageSize) {
+        this.id = id;
+        this.name = name;
+        this.age = age;
+        this.email = email;
+        this.description = description;
+        this.imageName = imageName;
+        this.imageType = imageType;
+        this.imageKey = imageKey;
+        this.imageSize = imageSize;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getAge() {
+        return age;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getImageName() {
+        return imageName;
+    }
+
+    public String getImageType() {
+        return imageType;
+    }
+
+    public String getImageKey() {
+        return imageKey;
+    }
+
+    public Long getImageSize() {
+        return imageSize;
+    }
+
+    public String getImageUrl() {
+        return imageName != null && id != null ? "/api/v1/users/" + id + "/image" : null;
+    }
+}
@@ -1,7 +1,42 @@
 package server.repository;
 
 import server.model.Video;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface videoRepositery extends JpaRepository <Video,Long> {
+
+    // image_data is no longer mapped on Video; these reach the bytes of rows uploaded before the move
+    @Query(value = "select image_data from users where id = :id", nativeQuery = true)
+    byte[] findLegacyImageData(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "update users set image_data = null where id = :id", nativeQuery = true)
+    int clearLegacyImageData(@Param("id") Long id);
+
+    // sets the key of a migrated image only if the row has none yet; 0 when another request got there first
+    @Modifying
+    @Transactional
+    @Query("update Video v set v.imageKey = :imageKey, v.imageSize = :imageSize where v.id = :id and v.imageKey is null")
+    int claimImageKey(@Param("id") Long id, @Param("imageKey") String imageKey, @Param("imageSize") Long imageSize);
+
+    @Query("select v.imageKey from Video v where v.id = :id")
+    String findImageKey(@Param("id") Long id);
+
+    boolean existsByImageKey(String imageKey);
+
+    // keyset batches for the streaming export
+    @Query("select new server.repository.VideoSummary(v.id, v.name, v.age, v.email, v.description, v.imageName, " +
+            "v.imageType, v.imageKey, v.imageSize) from Video v where v.id > :after order by v.id")
+    List<VideoSummary> findExportBatch(@Param("after") Long after, Limit limit);
+
+    @Query("select v.imageKey from Video v where v.imageKey is not null")
+    List<String> findAllImageKeys();
 }
@@ -0,0 +1,35 @@
+package server.search;
+
+/**
+ * One search result: the matched row as the list endpoints return it, with its BM25 score.
+ */
+public class SearchHit {
+
+    private final String type;
+    private final Long id;
+    private final float score;
+    private final Object item;
+
+    public SearchHit(String type, Long id, float score, Object item) {
+        this.type = type;
+        this.id = id;
+        this.score = score;
+        this.item = item;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public Object getItem() {
+        return item;
+    }
+}
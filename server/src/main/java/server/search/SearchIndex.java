@@ -0,0 +1,512 @@
+package server.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index with BM25 ranking. Documents get dense internal numbers in insertion
+ * order, so every posting list is sorted and stored as varint-encoded (doc gap, term frequency)
+ * pairs, about two to three bytes per posting. Updates and deletes only mark the old document
+ * deleted; {@link #compact()} renumbers the live ones and drops the dead postings.
+ * <p>
+ * Title words count twice. A query term ending in {@code *} matches up to
+ * {@value #MAX_PREFIX_EXPANSIONS} indexed terms starting with it.
+ */
+public final class SearchIndex {
+
+    public enum Type { POST, BLOG, PROGRESS }
+
+    public record Hit(Type type, long id, long userId, float score) {
+    }
+
+    public static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MAX_TOKEN_LENGTH = 40;
+    private static final int MAX_TERM_FREQUENCY = 255;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAGIC = 0x53494458;
+    private static final int VERSION = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int docCount;
+    private byte[] types = new byte[1024];
+    private long[] ids = new long[1024];
+    private long[] users = new long[1024];
+    private int[] lengths = new int[1024];
+    private int[] hashes = new int[1024];
+    private final BitSet deleted = new BitSet();
+    private int live;
+    private long liveLength;
+    private final Map<Long, Integer> docs = new HashMap<>();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private long modifications;
+
+    /**
+     * Adds a document, replacing any earlier version; a no-op when the content is unchanged.
+     */
+    public void put(Type type, long id, long userId, String title, String body) {
+        int hash = contentHash(userId, title, body);
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = count(frequencies, title, 2) + count(frequencies, body, 1);
+        lock.writeLock().lock();
+        try {
+            Integer existing = docs.get(key(type, id));
+            if (existing != null && hashes[existing] == hash) {
+                return;
+            }
+            if (existing != null) {
+                delete(existing);
+            }
+            int doc = append(type, id, userId, length, hash);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue());
+            }
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Type type, long id) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docs.remove(key(type, id));
+            if (doc != null) {
+                delete(doc);
+                modifications++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the indexed documents of a type, in no particular order
+     */
+    public List<Long> ids(Type type) {
+        List<Long> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int doc = 0; doc < docCount; doc++) {
+                if (!deleted.get(doc) && types[doc] == type.ordinal()) {
+                    result.add(ids[doc]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Changes so far; lets callers tell whether anything happened since they last looked.
+     */
+    public long modifications() {
+        lock.readLock().lock();
+        try {
+            return modifications;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The best {@code limit} documents matching any query term, optionally restricted to one owner
+     * and one type.
+     */
+    public List<Hit> search(String query, Long userId, Type type, int limit) {
+        List<QueryTerm> queryTerms = parse(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (live == 0) {
+                return List.of();
+            }
+            float[] scores = new float[docCount];
+            float averageLength = Math.max(1f, liveLength / (float) live);
+            for (QueryTerm queryTerm : queryTerms) {
+                for (Postings postings : postingsFor(queryTerm)) {
+                    score(postings, scores, averageLength, userId, type);
+                }
+            }
+            return top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Renumbers live documents and drops postings of deleted ones.
+     *
+     * @return whether anything was dropped
+     */
+    public boolean compact() {
+        lock.writeLock().lock();
+        try {
+            if (deleted.isEmpty()) {
+                return false;
+            }
+            int[] remap = new int[docCount];
+            int next = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                if (deleted.get(doc)) {
+                    remap[doc] = -1;
+                    continue;
+                }
+                remap[doc] = next;
+                types[next] = types[doc];
+                ids[next] = ids[doc];
+                users[next] = users[doc];
+                lengths[next] = lengths[doc];
+                hashes[next] = hashes[doc];
+                docs.put(key(Type.values()[types[next]], ids[next]), next);
+                next++;
+            }
+            docCount = next;
+            deleted.clear();
+            terms.values().removeIf(postings -> !postings.remap(remap));
+            modifications++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index; {@code complete} records whether it is known to hold every change so far.
+     */
+    public void writeTo(DataOutputStream out, boolean complete) throws IOException {
+        compact();
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(complete);
+            out.writeInt(docCount);
+            for (int doc = 0; doc < docCount; doc++) {
+                out.writeByte(types[doc]);
+                out.writeLong(ids[doc]);
+                out.writeLong(users[doc]);
+                out.writeInt(lengths[doc]);
+                out.writeInt(hashes[doc]);
+                out.writeBoolean(deleted.get(doc));
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings postings = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(postings.count);
+                out.writeInt(postings.lastDoc);
+                out.writeInt(postings.length);
+                out.write(postings.data, 0, postings.length);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents with a snapshot written by {@link #writeTo}.
+     *
+     * @return whether the snapshot was complete
+     */
+    public boolean readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a search index snapshot");
+        }
+        lock.writeLock().lock();
+        try {
+            boolean complete = in.readBoolean();
+            docCount = 0;
+            live = 0;
+            liveLength = 0;
+            docs.clear();
+            deleted.clear();
+            terms.clear();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Type type = Type.values()[in.readByte()];
+                int doc = append(type, in.readLong(), in.readLong(), in.readInt(), in.readInt());
+                if (in.readBoolean()) {
+                    delete(doc);
+                    docs.remove(key(type, ids[doc]));
+                }
+            }
+            int termCount = in.readInt();
+            for (int i = 0; i < termCount; i++) {
+                String term = in.readUTF();
+                Postings postings = new Postings();
+                postings.count = in.readInt();
+                postings.lastDoc = in.readInt();
+                postings.length = in.readInt();
+                postings.data = new byte[Math.max(8, postings.length)];
+                in.readFully(postings.data, 0, postings.length);
+                terms.put(term, postings);
+            }
+            modifications++;
+            return complete;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased letter and digit runs with accents stripped; tokens longer than
+     * {@value #MAX_TOKEN_LENGTH} characters are dropped.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+                continue;
+            }
+            if (token.length() > 0 && token.length() <= MAX_TOKEN_LENGTH) {
+                tokens.add(token.toString());
+            }
+            token.setLength(0);
+        }
+        return tokens;
+    }
+
+    private int append(Type type, long id, long userId, int length, int hash) {
+        if (docCount == ids.length) {
+            int capacity = docCount * 2;
+            types = Arrays.copyOf(types, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            users = Arrays.copyOf(users, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        int doc = docCount++;
+        types[doc] = (byte) type.ordinal();
+        ids[doc] = id;
+        users[doc] = userId;
+        lengths[doc] = length;
+        hashes[doc] = hash;
+        docs.put(key(type, id), doc);
+        live++;
+        liveLength += length;
+        return doc;
+    }
+
+    private void delete(int doc) {
+        deleted.set(doc);
+        live--;
+        liveLength -= lengths[doc];
+    }
+
+    private List<Postings> postingsFor(QueryTerm queryTerm) {
+        if (!queryTerm.prefix()) {
+            Postings postings = terms.get(queryTerm.text());
+            return postings == null ? List.of() : List.of(postings);
+        }
+        List<Postings> expansions = new ArrayList<>();
+        for (Postings postings : terms.subMap(queryTerm.text(), true, queryTerm.text() + Character.MAX_VALUE, false).values()) {
+            expansions.add(postings);
+            if (expansions.size() == MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+        }
+        return expansions;
+    }
+
+    private void score(Postings postings, float[] scores, float averageLength, Long userId, Type type) {
+        float idf = (float) Math.log(1 + (live - postings.count + 0.5) / (postings.count + 0.5));
+        if (idf <= 0) {
+            idf = 1e-6f;
+        }
+        float weight = idf * (K1 + 1);
+        float base = K1 * (1 - B);
+        float perLength = K1 * B / averageLength;
+        boolean filtered = userId != null || type != null || !deleted.isEmpty();
+        long user = userId == null ? 0 : userId;
+        int typeOrdinal = type == null ? -1 : type.ordinal();
+        byte[] data = postings.data;
+        int[] docLengths = lengths;
+        int pos = 0;
+        int doc = 0;
+        for (int i = 0; i < postings.count; i++) {
+            int gap = data[pos++];
+            if (gap < 0) {
+                gap &= 0x7F;
+                int shift = 7;
+                byte b;
+                do {
+                    b = data[pos++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+            }
+            doc += gap;
+            int tf = data[pos++] & 0xFF;
+            if (filtered && (deleted.get(doc)
+                    || (userId != null && users[doc] != user)
+                    || (typeOrdinal >= 0 && types[doc] != typeOrdinal))) {
+                continue;
+            }
+            scores[doc] += weight * tf / (tf + base + perLength * docLengths[doc]);
+        }
+    }
+
+    private List<Hit> top(float[] scores, int limit) {
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+        float threshold = 0;
+        for (int doc = 0; doc < scores.length; doc++) {
+            if (scores[doc] > threshold) {
+                best.add(doc);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+                if (best.size() == limit) {
+                    threshold = scores[best.peek()];
+                }
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int doc = best.poll();
+            hits.add(new Hit(Type.values()[types[doc]], ids[doc], users[doc], scores[doc]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private record QueryTerm(String text, boolean prefix) {
+    }
+
+    private static List<QueryTerm> parse(String query) {
+        List<QueryTerm> queryTerms = new ArrayList<>();
+        if (query == null) {
+            return queryTerms;
+        }
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = tokenize(word);
+            for (int i = 0; i < tokens.size(); i++) {
+                // a one-letter prefix would expand to arbitrary terms
+                boolean last = i == tokens.size() - 1;
+                queryTerms.add(new QueryTerm(tokens.get(i), prefix && last && tokens.get(i).length() >= 2));
+            }
+        }
+        return queryTerms;
+    }
+
+    private static int count(Map<String, Integer> frequencies, String text, int weight) {
+        int length = 0;
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, (a, b) -> Math.min(MAX_TERM_FREQUENCY, a + b));
+            length += weight;
+        }
+        return length;
+    }
+
+    private static int contentHash(long userId, String title, String body) {
+        int hash = Long.hashCode(userId);
+        hash = 31 * hash + (title == null ? 0 : title.hashCode());
+        return 31 * hash + (body == null ? 0 : body.hashCode());
+    }
+
+    private static long key(Type type, long id) {
+        return id * Type.values().length + type.ordinal();
+    }
+
+    /**
+     * Ascending doc numbers as varint gaps, each followed by a one-byte term frequency.
+     */
+    private static final class Postings {
+        byte[] data = new byte[8];
+        int length;
+        int count;
+        int lastDoc;
+
+        void add(int doc, int tf) {
+            if (length + 6 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            int gap = count == 0 ? doc : doc - lastDoc;
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            data[length++] = (byte) tf;
+            lastDoc = doc;
+            count++;
+        }
+
+        /**
+         * Rewrites the list with new doc numbers, -1 dropping a doc.
+         *
+         * @return whether any posting is left
+         */
+        boolean remap(int[] remap) {
+            byte[] old = data;
+            int oldCount = count;
+            data = new byte[Math.max(8, length)];
+            length = 0;
+            count = 0;
+            lastDoc = 0;
+            int pos = 0;
+            int doc = 0;
+            for (int i = 0; i < oldCount; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = old[pos++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += gap;
+                int tf = old[pos++] & 0xFF;
+                if (remap[doc] >= 0) {
+                    add(remap[doc], tf);
+                }
+            }
+            return count > 0;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package server.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import server.config.SearchProperties;
+import server.model.BlogModel;
+import server.model.LprogressModel;
+import server.model.PostModel;
+import server.repository.BlogRepository;
+import server.repository.BlogSummary;
+import server.repository.LprogressRepository;
+import server.repository.OwnerSummary;
+import server.repository.PostRepository;
+import server.repository.PostSummary;
+import server.repository.ProgressSummary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps a {@link SearchIndex} over posts, blogs and progress entries in step with the controllers,
+ * and saves it to disk so a restart only reads the snapshot back. A snapshot written on a clean
+ * shutdown is trusted as is; any other one is checked against the database in the background
+ * after loading, which re-indexes rows that changed and drops rows that were deleted since.
+ */
+@Component
+public class SearchService implements ApplicationRunner {
+
+    @Autowired
+    private SearchProperties searchProperties;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    private final SearchIndex index = new SearchIndex();
+    private volatile boolean complete;
+    private volatile boolean rebuilding;
+    private long savedModifications = -1;
+
+    @PostConstruct
+    void load() {
+        Path snapshot = Paths.get(searchProperties.getSnapshotPath());
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            complete = index.readFrom(in);
+            savedModifications = index.modifications();
+            System.out.println("Loaded search index with " + index.size() + " documents in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable search index snapshot: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (complete) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "search-index-rebuild");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // only a snapshot taken after the rebuild finished holds every row
+        saveSnapshot(complete && !rebuilding);
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.snapshot-interval-ms:300000}", initialDelayString = "${app.search.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        saveSnapshot(false);
+    }
+
+    public void index(PostModel post) {
+        put(SearchIndex.Type.POST, post.getId(), post.getUser() == null ? null : post.getUser().getId(),
+                post.getName(), join(post.getTopic(), post.getDescription(), post.getTag()));
+    }
+
+    public void index(BlogModel blog) {
+        put(SearchIndex.Type.BLOG, blog.getId(), blog.getUser() == null ? null : blog.getUser().getId(),
+                blog.getTitle(), join(blog.getCategory(), blog.getContent()));
+    }
+
+    public void index(LprogressModel progress) {
+        put(SearchIndex.Type.PROGRESS, progress.getId(), progress.getUser() == null ? null : progress.getUser().getId(),
+                progress.getName(), join(progress.getTopic(), progress.getDescription(), progress.getTag()));
+    }
+
+    public void remove(SearchIndex.Type type, Long id) {
+        afterCommit(() -> index.remove(type, id));
+    }
+
+    private void put(SearchIndex.Type type, Long id, Long userId, String title, String body) {
+        long owner = ownerOf(userId);
+        afterCommit(() -> index.put(type, id, owner, title, body));
+    }
+
+    // inside a transaction the index changes only once it commits, so a rollback leaves it as it was
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    /**
+     * Ranked matches with the listed row attached; rows deleted since they were indexed are left out.
+     */
+    public List<SearchHit> search(String query, Long userId, SearchIndex.Type type, int limit) {
+        List<SearchIndex.Hit> hits = index.search(query, userId, type, Math.min(limit, searchProperties.getMaxResults()));
+        Map<SearchIndex.Type, List<Long>> idsByType = new HashMap<>();
+        for (SearchIndex.Hit hit : hits) {
+            idsByType.computeIfAbsent(hit.type(), t -> new ArrayList<>()).add(hit.id());
+        }
+        Map<SearchIndex.Type, Map<Long, Object>> rows = new HashMap<>();
+        idsByType.forEach((hitType, ids) -> rows.put(hitType, switch (hitType) {
+            case POST -> byId(postRepository.findSummariesByIdIn(ids), PostSummary::getId);
+            case BLOG -> byId(blogRepository.findSummariesByIdIn(ids), BlogSummary::getId);
+            case PROGRESS -> byId(lprogressRepository.findSummariesByIdIn(ids), ProgressSummary::getId);
+        }));
+        List<SearchHit> results = new ArrayList<>(hits.size());
+        for (SearchIndex.Hit hit : hits) {
+            Object row = rows.get(hit.type()).get(hit.id());
+            if (row != null) {
+                results.add(new SearchHit(hit.type().name().toLowerCase(), hit.id(), hit.score(), row));
+            }
+        }
+        return results;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("documents", index.size());
+        stats.put("terms", index.termCount());
+        stats.put("complete", complete);
+        stats.put("rebuilding", rebuilding);
+        return stats;
+    }
+
+    /**
+     * Walks every row in id order, indexing what is new or changed, then drops indexed rows that
+     * no longer exist. Rows created while it runs have higher ids and are never dropped.
+     */
+    void rebuild() {
+        rebuilding = true;
+        long start = System.currentTimeMillis();
+        try {
+            rebuild(SearchIndex.Type.POST, postRepository::findSummariesAfterId, PostSummary::getId, post ->
+                    index.put(SearchIndex.Type.POST, post.getId(), ownerOf(post.getUser()), post.getName(),
+                            join(post.getTopic(), post.getDescription(), post.getTag())));
+            rebuild(SearchIndex.Type.BLOG, blogRepository::findSummariesAfterId, BlogSummary::getId, blog ->
+                    index.put(SearchIndex.Type.BLOG, blog.getId(), ownerOf(blog.getUser()), blog.getTitle(),
+                            join(blog.getCategory(), blog.getContent())));
+            rebuild(SearchIndex.Type.PROGRESS, lprogressRepository::findSummariesAfterId, ProgressSummary::getId, progress ->
+                    index.put(SearchIndex.Type.PROGRESS, progress.getId(), ownerOf(progress.getUser()), progress.getName(),
+                            join(progress.getTopic(), progress.getDescription(), progress.getTag())));
+            complete = true;
+            System.out.println("Search index rebuilt with " + index.size() + " documents in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (RuntimeException e) {
+            System.err.println("Search index rebuild failed: " + e.getMessage());
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    private <T> void rebuild(SearchIndex.Type type, BiFunction<Long, Limit, List<T>> batches,
+                             Function<T, Long> idOf, Consumer<T> indexer) {
+        int batchSize = Math.max(1, searchProperties.getRebuildBatchSize());
+        Set<Long> seen = new HashSet<>();
+        long after = Long.MIN_VALUE;
+        while (true) {
+            List<T> batch = batches.apply(after, Limit.of(batchSize));
+            for (T row : batch) {
+                indexer.accept(row);
+                seen.add(idOf.apply(row));
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+            after = idOf.apply(batch.get(batch.size() - 1));
+        }
+        long highest = after;
+        for (Long id : seen) {
+            highest = Math.max(highest, id);
+        }
+        for (Long id : index.ids(type)) {
+            if (id <= highest && !seen.contains(id)) {
+                index.remove(type, id);
+            }
+        }
+    }
+
+    private synchronized void saveSnapshot(boolean markComplete) {
+        long modifications = index.modifications();
+        if (modifications == savedModifications && !markComplete) {
+            return;
+        }
+        Path snapshot = Paths.get(searchProperties.getSnapshotPath());
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        long start = System.currentTimeMillis();
+        try {
+            if (snapshot.getParent() != null) {
+                Files.createDirectories(snapshot.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                index.writeTo(out, markComplete);
+            }
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            savedModifications = index.modifications();
+            System.out.println("Saved search index with " + index.size() + " documents in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException e) {
+            System.err.println("Failed to save search index: " + e.getMessage());
+        }
+    }
+
+    private static long ownerOf(OwnerSummary owner) {
+        return owner == null ? 0 : owner.getId();
+    }
+
+    private static long ownerOf(Long userId) {
+        return userId == null ? 0 : userId;
+    }
+
+    private static String join(String... parts) {
+        StringBuilder text = new StringBuilder();
+        for (String part : parts) {
+            if (part != null) {
+                text.append(part).append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+    private static <T> Map<Long, Object> byId(List<T> rows, Function<T, Long> idOf) {
+        Map<Long, Object> byId = new HashMap<>();
+        for (T row : rows) {
+            byId.put(idOf.apply(row), row);
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,105 @@
+package server.tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import server.model.BackfillCursor;
+import server.repository.BackfillCursorRepository;
+import server.repository.LprogressRepository;
+import server.repository.PostRepository;
+import server.repository.PostSummary;
+import server.repository.ProgressSummary;
+
+import java.util.List;
+
+/**
+ * Tags posts and progress entries written before tags were normalized. Runs in the background
+ * after startup, in id order, and records the last id it finished in {@code backfill_cursor} after
+ * every batch, so a restart resumes where it stopped and once everything is tagged only looks at
+ * the few newest rows. Items tagged by the live endpoints meanwhile have newer ids than the
+ * untagged ones and say nothing about how far this got. Assigning is idempotent, so rows that get
+ * tagged twice are not counted twice.
+ */
+@Component
+public class TagBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private BackfillCursorRepository backfillCursorRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private LprogressRepository lprogressRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread thread = new Thread(this::backfill, "tag-backfill");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    public void backfill() {
+        long start = System.currentTimeMillis();
+        int done = 0;
+        Long after = resumeAfter(TagService.POST);
+        try {
+            while (true) {
+                List<PostSummary> batch = postRepository.findSummariesAfterId(after, Limit.of(BATCH_SIZE));
+                for (PostSummary post : batch) {
+                    tagService.assign(TagService.POST, post.getId(), post.getUser() == null ? null : post.getUser().getId(),
+                            post.getCreatedAt(), post.getTag());
+                    after = post.getId();
+                    done++;
+                }
+                saveCursor(TagService.POST, after);
+                if (batch.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+            after = resumeAfter(TagService.PROGRESS);
+            while (true) {
+                List<ProgressSummary> batch = lprogressRepository.findSummariesAfterId(after, Limit.of(BATCH_SIZE));
+                for (ProgressSummary progress : batch) {
+                    tagService.assign(TagService.PROGRESS, progress.getId(), progress.getUser() == null ? null : progress.getUser().getId(),
+                            progress.getCreatedAt(), progress.getTag());
+                    after = progress.getId();
+                    done++;
+                }
+                saveCursor(TagService.PROGRESS, after);
+                if (batch.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Tag backfill stopped after id " + after + ": " + e.getMessage());
+        }
+        if (done > 0) {
+            System.out.println("Tagged " + done + " existing items in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    private Long resumeAfter(String itemType) {
+        return backfillCursorRepository.findById(cursorName(itemType))
+                .map(BackfillCursor::getLastId)
+                .orElse(Long.MIN_VALUE);
+    }
+
+    private void saveCursor(String itemType, Long lastId) {
+        if (lastId != Long.MIN_VALUE) {
+            backfillCursorRepository.save(new BackfillCursor(cursorName(itemType), lastId));
+        }
+    }
+
+    private static String cursorName(String itemType) {
+        return "tags:" + itemType;
+    }
+}
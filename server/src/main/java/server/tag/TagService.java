@@ -0,0 +1,226 @@
+package server.tag;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import server.model.Tag;
+import server.model.TagAssignment;
+import server.model.TagCount;
+import server.pagination.CursorPage;
+import server.pagination.KeysetCursor;
+import server.repository.TagAssignmentRepository;
+import server.repository.TagCountRepository;
+import server.repository.TagFacet;
+import server.repository.TagRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keeps the free-form tag column of posts and progress entries mirrored as normalized tags, and
+ * keeps per-user and global tag counts in step, so browsing a tag and drawing a tag cloud are
+ * index reads rather than scans of the item tables.
+ */
+@Component
+public class TagService {
+
+    public static final String POST = "post";
+    public static final String PROGRESS = "progress";
+    private static final int MAX_TAG_LENGTH = 64;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private TagAssignmentRepository tagAssignmentRepository;
+
+    @Autowired
+    private TagCountRepository tagCountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    // tag creation, isolated so losing a race to another writer only retries the lookup
+    private TransactionTemplate insertTx;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        insertTx = new TransactionTemplate(transactionManager);
+        insertTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Splits a tag column on commas, semicolons and '#', lower-cases and trims each tag and
+     * collapses inner whitespace.
+     */
+    public static Set<String> normalize(String raw) {
+        Set<String> tags = new LinkedHashSet<>();
+        if (raw == null) {
+            return tags;
+        }
+        for (String part : raw.split("[,;#]")) {
+            String tag = part.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+            if (!tag.isEmpty() && tag.length() <= MAX_TAG_LENGTH) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Brings an item's tags in line with its tag column, adjusting counts by the difference. Joins
+     * the caller's transaction when there is one, so an item and its tags commit together.
+     */
+    public void assign(String itemType, Long itemId, Long userId, LocalDate createdAt, String rawTag) {
+        Set<String> wanted = normalize(rawTag);
+        Map<String, Long> tagIds = new HashMap<>();
+        for (String name : wanted) {
+            tagIds.put(name, tagIdFor(name));
+        }
+        long owner = userId == null ? TagCount.GLOBAL : userId;
+        LocalDate date = createdAt == null ? LocalDate.EPOCH : createdAt;
+        inTransaction(() -> {
+            Set<Long> keep = new LinkedHashSet<>(tagIds.values());
+            for (TagAssignment assignment : tagAssignmentRepository.findByItemTypeAndItemId(itemType, itemId)) {
+                if (!keep.remove(assignment.getTagId())) {
+                    tagAssignmentRepository.delete(assignment);
+                    count(assignment.getTagId(), assignment.getUserId(), -1);
+                } else if (!date.equals(assignment.getCreatedAt())) {
+                    assignment.setCreatedAt(date);
+                }
+            }
+            for (Long tagId : keep) {
+                tagAssignmentRepository.save(new TagAssignment(tagId, itemType, itemId, owner, date));
+                count(tagId, owner, 1);
+            }
+        });
+    }
+
+    public void unassign(String itemType, Long itemId) {
+        inTransaction(() -> {
+            for (TagAssignment assignment : tagAssignmentRepository.findByItemTypeAndItemId(itemType, itemId)) {
+                tagAssignmentRepository.delete(assignment);
+                count(assignment.getTagId(), assignment.getUserId(), -1);
+            }
+        });
+    }
+
+    /**
+     * One page of items carrying a tag, newest first. {@code load} turns item ids into rows and
+     * may leave out ids whose row is gone.
+     */
+    public <T> CursorPage<T> browse(String tag, String itemType, KeysetCursor after, int size,
+                                    Function<List<Long>, List<T>> load, Function<T, Long> idOf) {
+        Tag found = tagRepository.findByName(normalizeOne(tag)).orElse(null);
+        if (found == null) {
+            return new CursorPage<>(List.of(), null);
+        }
+        Limit limit = Limit.of(size + 1);
+        List<TagAssignment> assignments = after == null
+                ? tagAssignmentRepository.findFirstPage(found.getId(), itemType, limit)
+                : tagAssignmentRepository.findPageAfter(found.getId(), itemType, after.getCreatedAt(), after.getId(), limit);
+        boolean more = assignments.size() > size;
+        if (more) {
+            assignments = assignments.subList(0, size);
+        }
+        List<Long> ids = new ArrayList<>(assignments.size());
+        for (TagAssignment assignment : assignments) {
+            ids.add(assignment.getItemId());
+        }
+        Map<Long, T> rows = new HashMap<>();
+        for (T row : load.apply(ids)) {
+            rows.put(idOf.apply(row), row);
+        }
+        List<T> items = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T row = rows.get(id);
+            if (row != null) {
+                items.add(row);
+            }
+        }
+        TagAssignment last = assignments.isEmpty() ? null : assignments.get(assignments.size() - 1);
+        String next = more ? new KeysetCursor(last.getCreatedAt(), last.getItemId()).encode() : null;
+        return new CursorPage<>(items, next);
+    }
+
+    /**
+     * The most used tags of one user, or of everyone when {@code userId} is null.
+     */
+    public List<TagFacet> cloud(Long userId, int size) {
+        return tagCountRepository.findCloud(userId == null ? TagCount.GLOBAL : userId, Limit.of(size));
+    }
+
+    private static String normalizeOne(String tag) {
+        Set<String> tags = normalize(tag);
+        return tags.isEmpty() ? "" : tags.iterator().next();
+    }
+
+    private Long tagIdFor(String name) {
+        Tag tag = tagRepository.findByName(name).orElse(null);
+        if (tag != null) {
+            return tag.getId();
+        }
+        try {
+            return insertTx.execute(status -> tagRepository.save(new Tag(name)).getId());
+        } catch (DataIntegrityViolationException e) {
+            // created concurrently by another write
+            return tagRepository.findByName(name).orElseThrow(() -> e).getId();
+        }
+    }
+
+    // adjusts the owner's count and the global one
+    private void count(Long tagId, Long userId, long delta) {
+        adjust(tagId, userId, delta);
+        if (userId != TagCount.GLOBAL) {
+            adjust(tagId, TagCount.GLOBAL, delta);
+        }
+    }
+
+    private void adjust(Long tagId, long userId, long delta) {
+        if (delta > 0) {
+            tagCountRepository.increment(tagId, userId, delta);
+        } else if (tagCountRepository.addToCount(tagId, userId, delta) > 0) {
+            tagCountRepository.deleteIfEmpty(tagId, userId);
+        }
+    }
+
+    /**
+     * Runs a diff in the caller's transaction, or else in one of its own that is redone when a
+     * concurrent write to the same tags won a race or the database picked it as a deadlock victim.
+     * A caller's transaction cannot be redone from here; if it loses, the item write rolls back
+     * with it.
+     */
+    private void inTransaction(Runnable work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            work.run();
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                tx.executeWithoutResult(status -> work.run());
+                return;
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package server.counter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import server.model.PostModel;
+import server.repository.PostRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Increments racing flushes and evictions are all written exactly once, and reads made meanwhile
+ * never lose or double-count a delta that is being flushed.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:counters;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"app.media.store-dir=target/engagement-counters/store/",
+		"app.media.placeholder-backfill=false",
+		"app.search.snapshot-path=target/engagement-counters/search/index.snapshot",
+		// flushed by the tests only, small chunks, and every idle item dropped at once
+		"app.counters.flush-interval-ms=3600000",
+		"app.counters.batch-size=50",
+		"app.counters.evict-after-idle-flushes=1"
+})
+class EngagementCountersTests {
+
+	private static final int THREADS = 8;
+
+	@Autowired
+	private EngagementCounters counters;
+
+	@Autowired
+	private PostRepository postRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void concurrentIncrementsAreCountedOnce() throws Exception {
+		Long id = newPost();
+		int viewsPerThread = 200_000;
+		int likesPerThread = 50_000;
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<String> failure = new AtomicReference<>();
+
+		Thread flusher = new Thread(() -> {
+			while (running.get()) {
+				counters.flush();
+				sleep(5);
+			}
+		});
+		// views only grow, so a read that drops or double-counts a flushing delta shows up as a step back
+		Thread reader = new Thread(() -> {
+			long last = 0;
+			while (running.get()) {
+				long views = counters.counts(EngagementCounters.Kind.POST, id).getViews();
+				if (views < last) {
+					failure.compareAndSet(null, "views went from " + last + " to " + views);
+				}
+				last = views;
+			}
+		});
+		flusher.start();
+		reader.start();
+		run(THREADS, () -> {
+			for (int i = 0; i < viewsPerThread; i++) {
+				counters.view(EngagementCounters.Kind.POST, id);
+				if (i < likesPerThread) {
+					counters.like(EngagementCounters.Kind.POST, id);
+				}
+			}
+		});
+		running.set(false);
+		flusher.join();
+		reader.join();
+
+		assertThat(failure.get()).isNull();
+		EngagementCounts counts = counters.counts(EngagementCounters.Kind.POST, id);
+		assertThat(counts.getViews()).isEqualTo((long) THREADS * viewsPerThread);
+		assertThat(counts.getLikes()).isEqualTo((long) THREADS * likesPerThread);
+		counters.flush();
+		assertThat(persistedViews(id)).isEqualTo((long) THREADS * viewsPerThread);
+	}
+
+	@Test
+	void incrementsRacingEvictionAreNotLost() throws Exception {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			ids.add(newPost());
+		}
+		AtomicLongArray expected = new AtomicLongArray(ids.size());
+		AtomicBoolean running = new AtomicBoolean(true);
+
+		// every flush drops the items nobody touched since the last one, while bursts keep landing on them
+		Thread flusher = new Thread(() -> {
+			while (running.get()) {
+				counters.flush();
+				sleep(1);
+			}
+		});
+		flusher.start();
+		AtomicLong total = new AtomicLong();
+		run(THREADS, () -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int burst = 0; burst < 2_000; burst++) {
+				int item = random.nextInt(ids.size());
+				int views = 1 + random.nextInt(20);
+				for (int i = 0; i < views; i++) {
+					counters.view(EngagementCounters.Kind.POST, ids.get(item));
+				}
+				expected.addAndGet(item, views);
+				total.addAndGet(views);
+				if (random.nextInt(10) == 0) {
+					sleep(1);
+				}
+			}
+		});
+		running.set(false);
+		flusher.join();
+		counters.flush();
+
+		long persisted = 0;
+		for (int i = 0; i < ids.size(); i++) {
+			long views = persistedViews(ids.get(i));
+			assertThat(views).as("views of item %d", i).isEqualTo(expected.get(i));
+			persisted += views;
+		}
+		assertThat(persisted).isEqualTo(total.get());
+	}
+
+	private Long newPost() {
+		PostModel post = new PostModel();
+		post.setName("post");
+		return postRepository.save(post).getId();
+	}
+
+	private long persistedViews(Long id) {
+		return jdbcTemplate.queryForObject("select view_count from post_model where id = ?", Long.class, id);
+	}
+
+	private static void run(int threads, Runnable work) throws InterruptedException {
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			Thread worker = new Thread(work);
+			workers.add(worker);
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package server.datasource;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET requests read from a replica, except right after the same client wrote or while the replica
+ * is too far behind. The primary and the replica are two H2 databases with the same schema; a row
+ * that only the replica has shows where a read went.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"app.datasource.replicas[0].url=" + ReplicaRoutingTests.REPLICA_URL,
+		"app.datasource.replicas[0].username=sa",
+		"app.datasource.replicas[0].password=",
+		"app.datasource.lag-query=select lag_seconds from replica_lag",
+		"app.datasource.lag-check-interval-ms=3600000",
+		"app.media.store-dir=target/replica-routing/store/",
+		"app.media.placeholder-backfill=false",
+		"app.search.snapshot-path=target/replica-routing/search/index.snapshot"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingTests {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JdbcTemplate primary;
+
+	@Autowired
+	private ReplicaRouter replicaRouter;
+
+	private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+	@BeforeEach
+	void setUp() {
+		// copy the schema Hibernate created on the primary, then give the replica a row of its own
+		replica.execute("drop all objects");
+		for (String statement : primary.queryForList("script nodata", String.class)) {
+			if (statement.startsWith("CREATE") && !statement.startsWith("CREATE USER")) {
+				replica.execute(statement);
+			}
+		}
+		primary.update("delete from users");
+		primary.update("delete from post_model");
+		replica.update("insert into users (id, name) values (1, 'only on the replica')");
+		replica.execute("create table replica_lag (lag_seconds bigint)");
+		replica.update("insert into replica_lag values (0)");
+		replicaRouter.checkLag();
+	}
+
+	@Test
+	void getReadsFromReplica() throws Exception {
+		assertThat(listNames(null)).containsExactly("only on the replica");
+	}
+
+	@Test
+	void writerReadsFromPrimaryAfterWrite() throws Exception {
+		Cookie sticky = mvc.perform(post("/api/v1/users").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"written to the primary\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getCookie(ReadYourWritesFilter.STICKY_COOKIE);
+
+		assertThat(sticky).isNotNull();
+		assertThat(listNames(sticky)).containsExactly("written to the primary");
+		assertThat(listNames(null)).containsExactly("only on the replica");
+	}
+
+	@Test
+	void writerRecognisedByUserIdWithoutCookie() throws Exception {
+		mvc.perform(post("/api/v1/users").param("userId", "42").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"written to the primary\"}"))
+				.andExpect(status().isOk());
+
+		assertThat(names(mvc.perform(get("/api/v1/users").param("userId", "42"))
+				.andReturn().getResponse().getContentAsString())).containsExactly("written to the primary");
+		assertThat(names(mvc.perform(get("/api/v1/users").param("userId", "7"))
+				.andReturn().getResponse().getContentAsString())).containsExactly("only on the replica");
+	}
+
+	@Test
+	void readWriteTransactionInGetUsesPrimary() throws Exception {
+		// counts are read in a read-write transaction; the post exists on the primary only
+		primary.update("insert into post_model (id, name, view_count, like_count) values (5, 'post', 3, 0)");
+
+		mvc.perform(get("/post/5/counts"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.views").value(3));
+	}
+
+	@Test
+	void laggingReplicaLeavesRotation() throws Exception {
+		replica.update("update replica_lag set lag_seconds = 60");
+		replicaRouter.checkLag();
+		assertThat(listNames(null)).isEmpty();
+
+		replica.update("update replica_lag set lag_seconds = 1");
+		replicaRouter.checkLag();
+		assertThat(listNames(null)).containsExactly("only on the replica");
+	}
+
+	@Test
+	void replicaWithoutStatusLeavesRotation() throws Exception {
+		replica.update("delete from replica_lag");
+		replicaRouter.checkLag();
+		assertThat(listNames(null)).isEmpty();
+	}
+
+	private List<String> listNames(Cookie cookie) throws Exception {
+		var request = get("/api/v1/users");
+		if (cookie != null) {
+			request.cookie(cookie);
+		}
+		return names(mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+	}
+
+	private static List<String> names(String json) {
+		return JsonPath.read(json, "$[*].name");
+	}
+}
@@ -0,0 +1,114 @@
+package server.follow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Removing from the middle of a probe run shifts the rest of the run back, so every value after the
+ * hole is still found, including runs that wrap around the end of the table.
+ */
+class LongSetTests {
+
+	// 10 values keep the table at 16 slots
+	private static final int MASK = 15;
+
+	@Test
+	void removeShiftsCollidingRunBack() {
+		// five values sharing the last slot, so their run wraps to the front, and two whose home is
+		// the first slot and that the run pushes further along
+		List<Long> last = valuesWithHome(MASK, 5);
+		List<Long> first = valuesWithHome(0, 2);
+		LongSet set = new LongSet();
+		Set<Long> expected = new HashSet<>();
+		for (long value : concat(last, first)) {
+			assertThat(set.add(value)).isTrue();
+			expected.add(value);
+		}
+
+		for (long value : List.of(last.get(0), first.get(0), last.get(2), last.get(4))) {
+			assertThat(set.remove(value)).isTrue();
+			expected.remove(value);
+			assertSame(set, expected);
+			assertThat(set.remove(value)).isFalse();
+		}
+		for (long value : List.of(last.get(0), first.get(0))) {
+			assertThat(set.add(value)).isTrue();
+			expected.add(value);
+		}
+		assertSame(set, expected);
+	}
+
+	@Test
+	void matchesHashSetUnderRandomChurn() {
+		Random random = new Random(42);
+		LongSet set = new LongSet();
+		Set<Long> expected = new HashSet<>();
+		// a small id range keeps runs long and makes most operations hit a present value
+		for (int i = 0; i < 200_000; i++) {
+			long value = 1 + random.nextInt(300);
+			if (random.nextInt(3) == 0) {
+				assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+			} else {
+				assertThat(set.add(value)).isEqualTo(expected.add(value));
+			}
+			if (i % 1000 == 0) {
+				assertSame(set, expected);
+			}
+		}
+		// down to empty, through every shrink
+		for (long value : new ArrayList<>(expected)) {
+			assertThat(set.remove(value)).isTrue();
+			expected.remove(value);
+		}
+		assertSame(set, expected);
+	}
+
+	@Test
+	void zeroAndNegativesAreNeverMembers() {
+		LongSet set = new LongSet();
+		assertThat(set.contains(0)).isFalse();
+		assertThat(set.remove(0)).isFalse();
+		set.add(7);
+		assertThat(set.contains(0)).isFalse();
+		assertThat(set.contains(-7)).isFalse();
+		assertThat(set.remove(0)).isFalse();
+		assertThat(set.size()).isEqualTo(1);
+	}
+
+	private static void assertSame(LongSet set, Set<Long> expected) {
+		assertThat(set.size()).isEqualTo(expected.size());
+		assertThat(set.toArray()).containsExactlyInAnyOrder(expected.stream().mapToLong(Long::longValue).toArray());
+		for (long value : expected) {
+			assertThat(set.contains(value)).as("contains %d", value).isTrue();
+		}
+	}
+
+	private static List<Long> valuesWithHome(int home, int count) {
+		List<Long> values = new ArrayList<>();
+		for (long value = 1; values.size() < count; value++) {
+			if (home(value) == home) {
+				values.add(value);
+			}
+		}
+		return values;
+	}
+
+	// LongSet's slot function
+	private static int home(long value) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & MASK;
+	}
+
+	private static List<Long> concat(List<Long> a, List<Long> b) {
+		List<Long> all = new ArrayList<>(a);
+		all.addAll(b);
+		return all;
+	}
+}
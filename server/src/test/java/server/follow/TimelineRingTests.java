@@ -0,0 +1,76 @@
+package server.follow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Entries arriving out of order are shifted into (stamp, ref) order, and a full ring keeps the
+ * newest entries whatever order they came in.
+ */
+class TimelineRingTests {
+
+	@Test
+	void outOfOrderEntriesAreSorted() {
+		TimelineRing ring = new TimelineRing(100);
+		ring.add(30, 1, 9);
+		ring.add(10, 1, 9);
+		ring.add(20, 2, 9);
+		ring.add(20, 1, 9);
+		ring.add(40, 1, 9);
+
+		assertThat(stamps(all(ring))).containsExactly(40L, 30L, 20L, 20L, 10L);
+		assertThat(all(ring).get(2).ref()).isEqualTo(2);
+		assertThat(all(ring).get(3).ref()).isEqualTo(1);
+		assertThat(stamps(ring.before(30, 1, 2))).containsExactly(20L, 20L);
+		assertThat(stamps(ring.before(20, 2, 10))).containsExactly(20L, 10L);
+	}
+
+	@Test
+	void fullRingOverwritesOldest() {
+		TimelineRing ring = new TimelineRing(4);
+		for (long stamp = 1; stamp <= 6; stamp++) {
+			ring.add(stamp * 10, 1, 9);
+		}
+		assertThat(ring.size()).isEqualTo(4);
+		assertThat(stamps(all(ring))).containsExactly(60L, 50L, 40L, 30L);
+
+		// late, but newer than the oldest kept: displaces it
+		ring.add(35, 1, 9);
+		assertThat(stamps(all(ring))).containsExactly(60L, 50L, 40L, 35L);
+
+		// older than everything kept: dropped
+		ring.add(20, 1, 9);
+		assertThat(stamps(all(ring))).containsExactly(60L, 50L, 40L, 35L);
+	}
+
+	@Test
+	void keepsNewestAcrossGrowthAndWrap() {
+		Random random = new Random(42);
+		int capacity = 50;
+		TimelineRing ring = new TimelineRing(capacity);
+		List<Long> added = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			// mostly increasing with some jitter, as racing publishes arrive
+			long stamp = i * 10L + random.nextInt(40);
+			ring.add(stamp, i, 9);
+			added.add(stamp);
+			added.sort(Collections.reverseOrder());
+			List<Long> newest = added.subList(0, Math.min(capacity, added.size()));
+			assertThat(stamps(all(ring))).as("after %d entries", i + 1).isEqualTo(newest);
+		}
+	}
+
+	private static List<TimelineEntry> all(TimelineRing ring) {
+		return ring.before(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	private static List<Long> stamps(List<TimelineEntry> entries) {
+		return entries.stream().map(TimelineEntry::stamp).toList();
+	}
+}
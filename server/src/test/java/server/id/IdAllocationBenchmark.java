@@ -0,0 +1,123 @@
+package server.id;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/**
+ * Rough insert throughput through Hibernate with the old id mapping (a bare {@code @GeneratedValue},
+ * which on MySQL is a pooled {@code <entity>_seq} table handing out 50 ids per round trip) against
+ * {@link TimeOrderedId}; not part of the test suite. Both run with the application's batching
+ * settings. Defaults to in-memory H2 in MySQL mode with the MySQL dialect, so the old mapping gets the
+ * same sequence table as production; pass a JDBC url to measure a real server. Run with
+ * {@code java -cp <test classpath> server.id.IdAllocationBenchmark [rows] [threads] [url] [user] [password]}.
+ */
+public class IdAllocationBenchmark {
+
+    private static final int BATCH = 50;
+
+    @Entity(name = "BenchSequenced")
+    public static class Sequenced {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+
+        public Sequenced() {
+        }
+
+        Sequenced(String name) {
+            this.name = name;
+        }
+    }
+
+    @Entity(name = "BenchTimeOrdered")
+    public static class TimeOrdered {
+        @Id
+        @TimeOrderedId
+        private Long id;
+        private String name;
+
+        public TimeOrdered() {
+        }
+
+        TimeOrdered(String name) {
+            this.name = name;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        String url = args.length > 2 ? args[2] : "jdbc:h2:mem:ids;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        String user = args.length > 3 ? args[3] : "sa";
+        String password = args.length > 4 ? args[4] : "";
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(user);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(threads * 2);
+            Configuration configuration = new Configuration()
+                    .addAnnotatedClass(Sequenced.class)
+                    .addAnnotatedClass(TimeOrdered.class)
+                    .setProperty("hibernate.dialect", "org.hibernate.dialect.MySQLDialect")
+                    .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                    .setProperty("hibernate.jdbc.batch_size", String.valueOf(BATCH))
+                    .setProperty("hibernate.order_inserts", "true");
+            configuration.getProperties().put("hibernate.connection.datasource", dataSource);
+            try (SessionFactory sessions = configuration.buildSessionFactory()) {
+                for (int round = 0; round < 3; round++) {
+                    run("@GeneratedValue, row per tx", sessions, rows, threads, 1, i -> new Sequenced("item " + i));
+                    run("@TimeOrderedId, row per tx", sessions, rows, threads, 1, i -> new TimeOrdered("item " + i));
+                    run("@GeneratedValue, " + BATCH + " per tx", sessions, rows, threads, BATCH, i -> new Sequenced("item " + i));
+                    run("@TimeOrderedId, " + BATCH + " per tx", sessions, rows, threads, BATCH, i -> new TimeOrdered("item " + i));
+                }
+            }
+        }
+    }
+
+    private static void run(String label, SessionFactory sessions, int rows, int threads, int perTransaction,
+                            LongFunction<Object> entity) throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int count = rows / threads + (t < rows % threads ? 1 : 0);
+            Thread worker = new Thread(() -> {
+                try {
+                    for (int done = 0; done < count; ) {
+                        int n = Math.min(perTransaction, count - done);
+                        int from = done;
+                        sessions.inTransaction((Session session) -> {
+                            for (int i = 0; i < n; i++) {
+                                session.persist(entity.apply(from + i));
+                            }
+                        });
+                        done += n;
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    System.err.println(label + ": " + e.getMessage());
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-32s %d rows, %d threads: %d ms, %.0f rows/s%s%n", label, rows, threads,
+                nanos / 1_000_000, rows * 1e9 / nanos, failures.get() > 0 ? " (" + failures.get() + " threads failed)" : "");
+    }
+}
@@ -0,0 +1,54 @@
+package server.media;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Rough timing of {@link HammingIndex} at scale; not part of the test suite. Run with
+ * {@code java -cp target/classes:target/test-classes server.media.HammingIndexBenchmark [hashes] [queries]}.
+ */
+public class HammingIndexBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        Random random = new Random(42);
+
+        HammingIndex index = new HammingIndex();
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            index.put("img-" + i, random.nextLong());
+        }
+        System.out.printf("put %d hashes: %d ms%n", size, (System.nanoTime() - start) / 1_000_000);
+
+        // every query is a stored hash with a few bits flipped, so each must find its original
+        long[] probes = new long[queries];
+        String[] expected = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            int target = random.nextInt(size);
+            long hash = index.get("img-" + target);
+            for (int flips = random.nextInt(HammingIndex.MAX_INDEXED_DISTANCE + 1); flips > 0; flips--) {
+                hash ^= 1L << random.nextInt(64);
+            }
+            probes[i] = hash;
+            expected[i] = "img-" + target;
+        }
+
+        for (int round = 0; round < 3; round++) {
+            int missed = 0;
+            long results = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                List<HammingIndex.Match> matches = index.search(probes[i], HammingIndex.MAX_INDEXED_DISTANCE);
+                results += matches.size();
+                String want = expected[i];
+                if (matches.stream().noneMatch(match -> match.name().equals(want))) {
+                    missed++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("round %d: %.1f us/query, %d results, %d missed%n",
+                    round, elapsed / 1000.0 / queries, results, missed);
+        }
+    }
+}
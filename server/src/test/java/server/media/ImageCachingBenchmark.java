@@ -0,0 +1,93 @@
+package server.media;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Bytes sent and time per request for repeat views of one image, served bare as the image
+ * endpoints used to and through {@link ImageResponses}; not part of the test suite. The repeat
+ * views revalidate with the ETag or Last-Modified of the first response, as a browser or CDN with
+ * an expired copy does, and a ranged request reads the start of a large original. Requests go
+ * through MockMvc, so the times are the server's share only, without the network the saved bytes
+ * would cross. Run with
+ * {@code java -cp <test classpath> server.media.ImageCachingBenchmark [imageBytes] [requests]}.
+ */
+public class ImageCachingBenchmark {
+
+    private static File image;
+
+    @RestController
+    static class Images {
+
+        @GetMapping("/bare")
+        ResponseEntity<Resource> bare() {
+            return ResponseEntity.ok(new FileSystemResource(image));
+        }
+
+        @GetMapping("/cached")
+        ResponseEntity<Resource> cached() {
+            return ImageResponses.of(image, false);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int imageBytes = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        Path dir = Files.createTempDirectory("image-caching-bench");
+        try {
+            byte[] bytes = new byte[imageBytes];
+            new Random(42).nextBytes(bytes);
+            image = Files.write(dir.resolve("1700000000000_photo.jpg"), bytes).toFile();
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(new Images()).build();
+
+            MockHttpServletResponse first = mvc.perform(get("/cached")).andReturn().getResponse();
+            String etag = first.getHeader(HttpHeaders.ETAG);
+            String lastModified = first.getHeader(HttpHeaders.LAST_MODIFIED);
+            System.out.printf("%d byte image, %d requests each; first response %d, %s%n", imageBytes, requests,
+                    first.getStatus(), first.getHeader(HttpHeaders.CACHE_CONTROL));
+
+            for (int round = 0; round < 3; round++) {
+                run("bare, repeat view", mvc, requests, () -> get("/bare"));
+                run("cached, If-None-Match", mvc, requests, () -> get("/cached").header(HttpHeaders.IF_NONE_MATCH, etag));
+                run("cached, If-Modified-Since", mvc, requests,
+                        () -> get("/cached").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified));
+                run("bare, Range 0-65535", mvc, requests, () -> get("/bare").header(HttpHeaders.RANGE, "bytes=0-65535"));
+                run("cached, Range 0-65535", mvc, requests, () -> get("/cached").header(HttpHeaders.RANGE, "bytes=0-65535"));
+            }
+        } finally {
+            Files.deleteIfExists(image.toPath());
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void run(String label, MockMvc mvc, int requests, Supplier<RequestBuilder> request) throws Exception {
+        long bodyBytes = 0;
+        int status = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            MockHttpServletResponse response = mvc.perform(request.get()).andReturn().getResponse();
+            bodyBytes += response.getContentAsByteArray().length;
+            status = response.getStatus();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("  %-26s %d, %,d body bytes/request, %.3f ms/request%n", label, status,
+                bodyBytes / requests, nanos / 1e6 / requests);
+    }
+}
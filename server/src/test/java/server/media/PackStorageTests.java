@@ -0,0 +1,158 @@
+package server.media;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Whatever was written, overwritten, deleted and compacted reads back the same after the store is
+ * closed and opened again from disk.
+ */
+class PackStorageTests {
+
+	private static final long MAX_ENTRY_BYTES = 4096;
+	private static final long SEGMENT_BYTES = 16 * 1024;
+
+	@TempDir
+	Path dir;
+
+	private final Random random = new Random(42);
+	// what every name should read back as; deleted names are absent
+	private final Map<String, byte[]> expected = new HashMap<>();
+	private PackStorage storage;
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if (storage != null) {
+			storage.close();
+		}
+	}
+
+	@Test
+	void writeDeleteCompactReopen() throws IOException {
+		storage = open();
+		for (int i = 0; i < 40; i++) {
+			put("image-" + i, 500 + random.nextInt(2500));
+		}
+		// larger than a packed entry may be, so it stays a file of its own
+		put("large", (int) MAX_ENTRY_BYTES * 3);
+		for (int i = 0; i < 40; i += 4) {
+			put("image-" + i, 500 + random.nextInt(2500));
+		}
+		for (int i = 1; i < 40; i += 3) {
+			delete("image-" + i);
+		}
+		assertThat(storage.stats().get("looseFiles")).isEqualTo(1);
+		int segmentsBefore = (int) storage.stats().get("segments");
+
+		int compacted = storage.compact(0.3);
+
+		assertThat(compacted).isPositive();
+		assertThat((int) storage.stats().get("segments")).isLessThan(segmentsBefore);
+		assertReadsBack(storage);
+
+		storage.close();
+		storage = open();
+
+		assertReadsBack(storage);
+		assertThat(storage.stats().get("looseFiles")).isEqualTo(1);
+	}
+
+	@Test
+	void tombstoneOutlivesCompactionOfItsSegment() throws IOException {
+		storage = open();
+		// fills the first segment, so the filler and every tombstone go to the second
+		for (int i = 0; i < 8; i++) {
+			put("image-" + i, 2000);
+		}
+		put("filler", 3000);
+		delete("image-0");
+		delete("image-7");
+		delete("filler");
+
+		// only the second segment is dead enough; the records its tombstones kill stay in the first
+		assertThat(storage.compact(0.9)).isEqualTo(1);
+		assertThat(storage.stats().get("segments")).isEqualTo(2);
+		storage.close();
+		storage = open();
+
+		assertReadsBack(storage);
+	}
+
+	@Test
+	void tornRecordIsDroppedOnOpen() throws IOException {
+		storage = open();
+		for (int i = 0; i < 10; i++) {
+			put("image-" + i, 1000);
+		}
+		storage.close();
+		Path last;
+		try (Stream<Path> segments = Files.list(dir.resolve("packs"))) {
+			last = segments.sorted().reduce((a, b) -> b).orElseThrow();
+		}
+		long size = Files.size(last);
+		// the start of a header with nothing after it, as a crash mid-append leaves
+		Files.write(last, new byte[]{0x50, 0x4b, 0x47, 0x31, 1, 0, 5}, StandardOpenOption.APPEND);
+
+		storage = open();
+
+		assertThat(Files.size(last)).isEqualTo(size);
+		assertReadsBack(storage);
+		put("after-crash", 1000);
+		storage.close();
+		storage = open();
+		assertReadsBack(storage);
+	}
+
+	private PackStorage open() throws IOException {
+		PackStorage opened = new PackStorage(dir, new ShardedDirectory(dir), true, MAX_ENTRY_BYTES, SEGMENT_BYTES);
+		opened.open();
+		return opened;
+	}
+
+	private void put(String name, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		Path source = Files.createTempFile(dir, ".upload-", ".tmp");
+		Files.write(source, bytes);
+		storage.put(name, source);
+		assertThat(source).doesNotExist();
+		expected.put(name, bytes);
+	}
+
+	private void delete(String name) throws IOException {
+		assertThat(storage.delete(name)).isEqualTo(expected.remove(name).length);
+	}
+
+	private void assertReadsBack(PackStorage storage) throws IOException {
+		assertThat(storage.size()).isEqualTo(expected.size());
+		assertThat(storage.names()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			MediaEntry media = storage.get(entry.getKey());
+			assertThat(media).as(entry.getKey()).isNotNull();
+			assertThat(media.length()).isEqualTo(entry.getValue().length);
+			try (InputStream in = media.openStream()) {
+				assertThat(in.readAllBytes()).as(entry.getKey()).isEqualTo(entry.getValue());
+			}
+		}
+		for (String gone : List.of("image-1", "image-0", "filler")) {
+			if (!expected.containsKey(gone)) {
+				assertThat(storage.contains(gone)).as(gone).isFalse();
+				assertThat(storage.get(gone)).as(gone).isNull();
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package server.portfolio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The archive opens with {@link ZipFile} with every entry intact, and any split of it into byte
+ * ranges, each produced on its own, concatenates back to the full body.
+ */
+class StoredZipTests {
+
+	private static final long MODIFIED = 1_700_000_000_000L;
+
+	@TempDir
+	Path dir;
+
+	// empty, small, larger than the copy buffer and a non-ASCII name
+	private final Map<String, byte[]> contents = new LinkedHashMap<>();
+
+	StoredZipTests() {
+		Random random = new Random(42);
+		contents.put("posts/empty.txt", new byte[0]);
+		contents.put("posts/small.png", bytes(random, 1_000));
+		contents.put("progress/large.jpg", bytes(random, 200_000));
+		contents.put("blogs/café.webp", bytes(random, 70_000));
+		contents.put("manifest.json", "{\"items\":4}".getBytes());
+	}
+
+	@Test
+	void fullOutputOpensWithZipFile() throws IOException {
+		byte[] body = full(new ConcurrentHashMap<>());
+
+		Path file = dir.resolve("export.zip");
+		Files.write(file, body);
+		try (ZipFile read = new ZipFile(file.toFile())) {
+			List<String> names = new ArrayList<>();
+			for (ZipEntry entry : Collections.list(read.entries())) {
+				names.add(entry.getName());
+				byte[] expected = contents.get(entry.getName());
+				assertThat(entry.getSize()).as(entry.getName()).isEqualTo(expected.length);
+				assertThat(entry.getCrc()).as(entry.getName()).isEqualTo(crc(expected));
+				try (var in = read.getInputStream(entry)) {
+					assertThat(in.readAllBytes()).as(entry.getName()).isEqualTo(expected);
+				}
+			}
+			assertThat(names).containsExactlyElementsOf(contents.keySet());
+		}
+	}
+
+	@Test
+	void rangesConcatenateToFullBody() throws IOException {
+		byte[] full = full(new ConcurrentHashMap<>());
+		long length = full.length;
+		// boundaries inside headers, inside entry data and inside the central directory
+		long[][] splits = {
+				{0, 1, 31, 5_000, length / 2, length - 30, length},
+				{0, 100_000, 250_000, length},
+				{0, length - 1, length},
+		};
+		for (long[] split : splits) {
+			ByteArrayOutputStream joined = new ByteArrayOutputStream();
+			for (int i = 0; i + 1 < split.length; i++) {
+				// every range from a fresh exporter with a cold CRC cache, as separate requests would be
+				joined.write(range(zip(new ConcurrentHashMap<>()), split[i], split[i + 1] - 1));
+			}
+			assertThat(joined.toByteArray()).isEqualTo(full);
+		}
+	}
+
+	@Test
+	void rangeStartingMidEntryWithColdCache() throws IOException {
+		byte[] full = full(new ConcurrentHashMap<>());
+		long start = 40_000; // inside progress/large.jpg
+
+		Map<String, Long> cache = new ConcurrentHashMap<>();
+		byte[] tail = range(zip(cache), start, full.length - 1);
+
+		assertThat(tail).isEqualTo(Arrays.copyOfRange(full, (int) start, full.length));
+		// the central directory needed every CRC; entries before the range were read for it
+		for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+			assertThat(cache.get(entry.getKey())).as(entry.getKey()).isEqualTo(crc(entry.getValue()));
+		}
+	}
+
+	@Test
+	void warmCacheGivesSameBytes() throws IOException {
+		Map<String, Long> cache = new ConcurrentHashMap<>();
+		byte[] cold = full(cache);
+		// starts inside an entry, so its CRC comes from the cache instead of the skipped bytes
+		byte[] warm = range(zip(cache), 40_000, cold.length - 1);
+
+		assertThat(warm).isEqualTo(Arrays.copyOfRange(cold, 40_000, cold.length));
+	}
+
+	private StoredZip zip(Map<String, Long> crcCache) {
+		List<StoredZip.Entry> entries = new ArrayList<>();
+		contents.forEach((name, data) ->
+				entries.add(new StoredZip.Entry(name, data.length, MODIFIED, name, () -> new ByteArrayInputStream(data))));
+		return new StoredZip(entries, crcCache);
+	}
+
+	private byte[] full(Map<String, Long> crcCache) throws IOException {
+		StoredZip zip = zip(crcCache);
+		return range(zip, 0, zip.length() - 1);
+	}
+
+	private static byte[] range(StoredZip zip, long first, long last) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		zip.write(out, first, last);
+		assertThat((long) out.size()).isEqualTo(last - first + 1);
+		return out.toByteArray();
+	}
+
+	private static long crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return crc.getValue();
+	}
+
+	private static byte[] bytes(Random random, int size) {
+		byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+}
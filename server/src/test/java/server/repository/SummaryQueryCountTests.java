@@ -0,0 +1,95 @@
+package server.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import server.model.BlogModel;
+import server.model.LprogressModel;
+import server.model.PostModel;
+import server.model.UserModel;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * List endpoints must cost one select per page however many owners the page spans.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SummaryQueryCountTests {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PostRepository postRepository;
+
+	@Autowired
+	private LprogressRepository lprogressRepository;
+
+	@Autowired
+	private BlogRepository blogRepository;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		for (int u = 0; u < 10; u++) {
+			UserModel user = entityManager.persist(new UserModel(null, "User " + u, "user" + u + "@example.com", "secret", null));
+			for (int i = 0; i < 5; i++) {
+				LocalDate date = LocalDate.of(2024, 1, 1).plusDays(u * 5 + i);
+				entityManager.persist(new PostModel(null, "post", "topic", "description", "status", "p.jpg", "tag", date, date, user));
+				entityManager.persist(new LprogressModel(null, "progress", "topic", "description", "status", "l.jpg", "tag", date, date, user));
+				BlogModel blog = new BlogModel();
+				blog.setTitle("blog");
+				blog.setCreatedAt(date);
+				blog.setUser(user);
+				entityManager.persist(blog);
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void postPagesTakeOneQuery() {
+		List<PostSummary> first = postRepository.findFirstPage(Limit.of(20));
+		PostSummary last = first.get(first.size() - 1);
+		List<PostSummary> next = postRepository.findPageAfter(last.getCreatedAt(), last.getId(), Limit.of(20));
+
+		assertThat(first).hasSize(20);
+		assertThat(next).hasSize(20);
+		assertThat(first.get(0).getUser().getFullname()).isEqualTo("User 9");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void progressAndBlogPagesTakeOneQuery() {
+		assertThat(lprogressRepository.findFirstPage(Limit.of(50))).hasSize(50);
+		assertThat(blogRepository.findFirstPage(Limit.of(50))).hasSize(50);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void userListsTakeOneQuery() {
+		Long userId = postRepository.findFirstPage(Limit.of(1)).get(0).getUser().getId();
+		statistics.clear();
+
+		assertThat(postRepository.findSummariesByUser(userId)).hasSize(5);
+		assertThat(lprogressRepository.findSummariesByUser(userId)).hasSize(5);
+		assertThat(blogRepository.findSummariesByUser(userId)).hasSize(5);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+	}
+}
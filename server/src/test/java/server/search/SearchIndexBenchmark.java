@@ -0,0 +1,76 @@
+package server.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+/**
+ * Rough timing of {@link SearchIndex} at scale; not part of the test suite. Run with
+ * {@code java -cp target/classes:target/test-classes server.search.SearchIndexBenchmark [documents] [queries]}.
+ * Documents draw words from a Zipf-like vocabulary so posting lengths resemble real text.
+ */
+public class SearchIndexBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        Random random = new Random(42);
+        String[] vocabulary = new String[50_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = word(random, i);
+        }
+
+        SearchIndex index = new SearchIndex();
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            index.put(SearchIndex.Type.values()[i % 3], i, i % 10_000,
+                    sentence(random, vocabulary, 4), sentence(random, vocabulary, 30));
+        }
+        System.out.printf("indexed %d documents, %d terms: %d ms%n", size, index.termCount(), (System.nanoTime() - start) / 1_000_000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        start = System.nanoTime();
+        index.writeTo(new DataOutputStream(bytes), true);
+        System.out.printf("snapshot %d MB written: %d ms%n", bytes.size() >> 20, (System.nanoTime() - start) / 1_000_000);
+        start = System.nanoTime();
+        new SearchIndex().readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        System.out.printf("snapshot read: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        for (int round = 0; round < 3; round++) {
+            time("common term", queries, () -> index.search(vocabulary[random.nextInt(20)], null, null, 20));
+            time("two mid terms", queries, () -> index.search(vocabulary[100 + random.nextInt(1000)] + " "
+                    + vocabulary[100 + random.nextInt(1000)], null, null, 20));
+            time("prefix", queries, () -> index.search(vocabulary[random.nextInt(5000)].substring(0, 3) + "*", null, null, 20));
+            time("per user", queries, () -> index.search(vocabulary[random.nextInt(200)], (long) random.nextInt(10_000), null, 20));
+        }
+    }
+
+    private static void time(String name, int queries, Runnable query) {
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            query.run();
+        }
+        System.out.printf("  %-14s %.2f ms/query%n", name, (System.nanoTime() - start) / 1e6 / queries);
+    }
+
+    private static String sentence(Random random, String[] vocabulary, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            // rank ~ 1/u gives a Zipf-like spread of word frequencies
+            int rank = (int) Math.min(vocabulary.length - 1, Math.exp(random.nextDouble() * Math.log(vocabulary.length)) - 1);
+            text.append(vocabulary[rank]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static String word(Random random, int i) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(7);
+        for (int c = 0; c < length; c++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.append(i % 10).toString();
+    }
+}
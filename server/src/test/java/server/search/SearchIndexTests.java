@@ -0,0 +1,171 @@
+package server.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Matches, filters and survival of compaction and snapshots; ranking is only checked where it is
+ * unambiguous.
+ */
+class SearchIndexTests {
+
+	private final SearchIndex index = new SearchIndex();
+
+	@Test
+	void postingListsDecodeAcrossLargeGaps() {
+		// gaps of 1, 200 (two-byte varint) and 20,000 (three-byte varint) between matching docs
+		long[] needles = {0, 1, 201, 20_201};
+		int next = 0;
+		for (long id = 0; id <= 20_201; id++) {
+			boolean needle = next < needles.length && needles[next] == id;
+			if (needle) {
+				next++;
+			}
+			index.put(SearchIndex.Type.POST, id, 1, "item " + id, needle ? "needle" : "hay");
+		}
+
+		assertThat(ids(index.search("needle", null, null, 10))).containsExactlyInAnyOrder(0L, 1L, 201L, 20_201L);
+		assertThat(index.search("hay", null, null, 100_000)).hasSize(20_202 - needles.length);
+	}
+
+	@Test
+	void compactRenumbersAndKeepsMatches() {
+		for (long id = 1; id <= 300; id++) {
+			index.put(SearchIndex.Type.POST, id, id % 3, "post " + id, id % 2 == 0 ? "even" : "odd");
+		}
+		for (long id = 1; id <= 300; id += 5) {
+			index.remove(SearchIndex.Type.POST, id);
+		}
+		// an update marks the old version deleted and appends the new one at the end
+		index.put(SearchIndex.Type.POST, 2, 2, "post 2", "odd now");
+		List<SearchIndex.Hit> before = index.search("odd", null, null, 1000);
+		int terms = index.termCount();
+
+		assertThat(index.compact()).isTrue();
+		assertThat(index.compact()).isFalse();
+
+		// scores may shift, idf no longer counts the dropped postings
+		assertThat(ids(index.search("odd", null, null, 1000))).containsExactlyInAnyOrderElementsOf(ids(before));
+		assertThat(ids(index.search("even", null, null, 1000))).doesNotContain(2L, 6L).contains(4L);
+		assertThat(index.size()).isEqualTo(300 - 60);
+		// the title number of each removed post was its only use
+		assertThat(index.termCount()).isEqualTo(terms - 60);
+		// doc numbers continue after the last live one
+		index.put(SearchIndex.Type.BLOG, 1, 9, "fresh", "after compaction");
+		assertThat(ids(index.search("compaction", null, null, 10))).containsExactly(1L);
+		assertThat(ids(index.search("odd", null, null, 1000))).hasSize(before.size());
+	}
+
+	@Test
+	void prefixTermsExpand() {
+		index.put(SearchIndex.Type.POST, 1, 1, "Spring", null);
+		index.put(SearchIndex.Type.POST, 2, 1, "springboot", null);
+		index.put(SearchIndex.Type.POST, 3, 1, "sprout", null);
+		index.put(SearchIndex.Type.POST, 4, 1, "summer", null);
+		index.put(SearchIndex.Type.POST, 5, 1, "s", null);
+
+		assertThat(ids(index.search("spr*", null, null, 10))).containsExactlyInAnyOrder(1L, 2L, 3L);
+		assertThat(ids(index.search("spring*", null, null, 10))).containsExactlyInAnyOrder(1L, 2L);
+		assertThat(ids(index.search("spring", null, null, 10))).containsExactly(1L);
+		// a one-letter prefix is matched as a plain term
+		assertThat(ids(index.search("s*", null, null, 10))).containsExactly(5L);
+	}
+
+	@Test
+	void prefixExpansionIsCapped() {
+		for (long id = 0; id < SearchIndex.MAX_PREFIX_EXPANSIONS + 10; id++) {
+			index.put(SearchIndex.Type.POST, id, 1, String.format("tag%03d", id), null);
+		}
+
+		assertThat(index.search("tag*", null, null, 1000)).hasSize(SearchIndex.MAX_PREFIX_EXPANSIONS);
+	}
+
+	@Test
+	void accentsAndCaseAreFolded() {
+		index.put(SearchIndex.Type.BLOG, 1, 1, "Café Crème", "Über alles");
+
+		assertThat(ids(index.search("cafe", null, null, 10))).containsExactly(1L);
+		assertThat(ids(index.search("CREME uber", null, null, 10))).containsExactly(1L);
+	}
+
+	@Test
+	void userAndTypeFiltersApply() {
+		index.put(SearchIndex.Type.POST, 1, 10, "garden", null);
+		index.put(SearchIndex.Type.BLOG, 1, 10, "garden", null);
+		index.put(SearchIndex.Type.PROGRESS, 2, 20, "garden", null);
+		index.put(SearchIndex.Type.POST, 3, 20, "garden", null);
+
+		assertThat(index.search("garden", null, null, 10)).hasSize(4);
+		assertThat(index.search("garden", 10L, null, 10))
+				.extracting(SearchIndex.Hit::type, SearchIndex.Hit::id)
+				.containsExactlyInAnyOrder(tuple(SearchIndex.Type.POST, 1L),
+						tuple(SearchIndex.Type.BLOG, 1L));
+		assertThat(index.search("garden", null, SearchIndex.Type.POST, 10))
+				.extracting(SearchIndex.Hit::id).containsExactlyInAnyOrder(1L, 3L);
+		assertThat(index.search("garden", 20L, SearchIndex.Type.POST, 10))
+				.extracting(SearchIndex.Hit::id).containsExactly(3L);
+		assertThat(index.search("garden", 30L, null, 10)).isEmpty();
+	}
+
+	@Test
+	void titleWordsOutrankBodyWords() {
+		index.put(SearchIndex.Type.POST, 1, 1, "other", "kayak trip");
+		index.put(SearchIndex.Type.POST, 2, 1, "kayak", "other trip");
+
+		assertThat(ids(index.search("kayak", null, null, 10))).containsExactly(2L, 1L);
+	}
+
+	@Test
+	void snapshotRoundTrips() throws IOException {
+		for (long id = 1; id <= 500; id++) {
+			index.put(id % 2 == 0 ? SearchIndex.Type.POST : SearchIndex.Type.BLOG, id, id % 7,
+					"title " + id, "body words " + (id % 11 == 0 ? "rare" : "common"));
+		}
+		index.remove(SearchIndex.Type.POST, 22);
+		index.put(SearchIndex.Type.BLOG, 33, 5, "changed", "rare again");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		index.writeTo(new DataOutputStream(bytes), true);
+		SearchIndex read = new SearchIndex();
+		boolean complete = read.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertThat(complete).isTrue();
+		assertThat(read.size()).isEqualTo(index.size());
+		assertThat(read.termCount()).isEqualTo(index.termCount());
+		assertThat(read.ids(SearchIndex.Type.POST)).containsExactlyInAnyOrderElementsOf(index.ids(SearchIndex.Type.POST));
+		for (String query : List.of("rare", "common", "title", "changed", "tit*")) {
+			assertThat(read.search(query, null, null, 1000)).as(query)
+					.containsExactlyInAnyOrderElementsOf(index.search(query, null, null, 1000));
+			assertThat(read.search(query, 5L, SearchIndex.Type.BLOG, 1000)).as(query)
+					.containsExactlyInAnyOrderElementsOf(index.search(query, 5L, SearchIndex.Type.BLOG, 1000));
+		}
+		// the read index keeps working: replacing and removing documents it loaded
+		read.put(SearchIndex.Type.BLOG, 33, 5, "changed", "now common");
+		read.remove(SearchIndex.Type.BLOG, 55);
+		assertThat(ids(read.search("rare", null, null, 1000))).doesNotContain(22L, 33L, 55L).contains(11L, 44L);
+	}
+
+	@Test
+	void unchangedPutIsNoOp() {
+		index.put(SearchIndex.Type.POST, 1, 1, "same", "content");
+		long modifications = index.modifications();
+
+		index.put(SearchIndex.Type.POST, 1, 1, "same", "content");
+
+		assertThat(index.modifications()).isEqualTo(modifications);
+		assertThat(index.compact()).isFalse();
+	}
+
+	private static List<Long> ids(List<SearchIndex.Hit> hits) {
+		return hits.stream().map(SearchIndex.Hit::id).toList();
+	}
+}